@@ -9,6 +9,14 @@ public enum Category {
     DOORS(3),
     LUMBER(4);
 
+  private static final Category[] CATEGORIES_BY_NUMBER = new Category[values().length + 1];
+
+  static {
+    for (Category c : values()) {
+      CATEGORIES_BY_NUMBER[c.categoryNumber] = c;
+    }
+  }
+
   final int categoryNumber;
 
   Category(int categoryNumber) {
@@ -26,11 +34,8 @@ public enum Category {
    * @return returns categoryName
    */
   public static Category getCategory(int categoryNumber) {
-    for (Category c : Category.values()
-    ) {
-      if (c.getCategoryNumber() == categoryNumber) {
-        return c;
-      }
+    if (categoryNumber > 0 && categoryNumber < CATEGORIES_BY_NUMBER.length) {
+      return CATEGORIES_BY_NUMBER[categoryNumber];
     }
     throw new IllegalArgumentException("This category doesn't exist. You must type a "
         + "number between 1 and 4.");
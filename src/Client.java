@@ -1,5 +1,17 @@
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Scanner;
+import javax.management.JMException;
 
 /** A class representing a text based user interface of the application.
  *
@@ -9,7 +21,8 @@ import java.util.Scanner;
 public class Client {
   private final Scanner sc = new Scanner(System.in);
   private static boolean finished = false;
-  private final ItemRegister itemRegister = new ItemRegister();
+  private final ItemRegister itemRegister;
+  private final ReplicationFollower follower;
   private static final int ADD_ITEM = 1;
   private static final int PRINT_ITEM = 2;
   private static final int FIND_ITEM = 3;
@@ -21,19 +34,134 @@ public class Client {
   private static final int NUMBER_OF_ITEMS = 9;
   private static final int DELETE_ITEM = 10;
   private static final int ADD_DEFAULT_TESTDATA = 11;
-  private static final int EXIT = 12;
+  private static final int IMPORT_ITEMS = 12;
+  private static final int EXPORT_ITEMS = 13;
+  private static final int EXIT = 14;
+  private static final int PAGE_SIZE = 50;
+  /** How far behind its leader a follower may be when the items are read. */
+  private static final Duration MAX_STALENESS = Duration.ofSeconds(1);
 
-  /** The main start of the application.
+  public Client(ItemRegister itemRegister) {
+
+    this.itemRegister = itemRegister;
+    this.follower = null;
+  }
+
+  /** Constructor for a client that only reads the register of a follower. The items can
+   * only be changed on the leader.
+   *
+   * @param follower the follower to read the register of as ReplicationFollower
+   */
+  public Client(ReplicationFollower follower) {
+
+    this.itemRegister = follower.getRegister();
+    this.follower = follower;
+  }
+
+  /** The main start of the application. If a directory is given as an argument, the
+   * register is kept in that directory and restored from it on the next start. If
+   * --port and a port number are given, the register is also served over HTTP on that
+   * port by a {@link RegisterServer}, while the menu is used as before. If --leader-port
+   * and a port number are given, every change is sent to the followers that connect to
+   * that port by a {@link ReplicationLeader}. If --follow and the host:port of a leader
+   * are given, the register is instead kept up to date with the leader by a
+   * {@link ReplicationFollower}, and the menu and the server only read it.
    *
    * @param args Commandline arguments as an array of String
    */
   public static void main(String[] args) {
-    Client client = new Client();
+    String directory = null;
+    int port = -1;
+    int leaderPort = -1;
+    InetSocketAddress leader = null;
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--port") && i + 1 < args.length) {
+        try {
+          port = Integer.parseInt(args[++i]);
+        } catch (NumberFormatException e) {
+          System.out.println("The port must be a whole number.");
+          return;
+        }
+      } else if (args[i].equals("--leader-port") && i + 1 < args.length) {
+        try {
+          leaderPort = Integer.parseInt(args[++i]);
+        } catch (NumberFormatException e) {
+          System.out.println("The port must be a whole number.");
+          return;
+        }
+      } else if (args[i].equals("--follow") && i + 1 < args.length) {
+        String address = args[++i];
+        int colon = address.lastIndexOf(':');
+        try {
+          leader = new InetSocketAddress(address.substring(0, Math.max(colon, 0)),
+              Integer.parseInt(address.substring(colon + 1)));
+        } catch (IllegalArgumentException e) {
+          System.out.println("The leader must be given as host:port.");
+          return;
+        }
+      } else {
+        directory = args[i];
+      }
+    }
+
+    Client client;
+    if (leader != null) {
+      if (directory != null || leaderPort >= 0) {
+        System.out.println("A follower can't keep its register in a directory or lead.");
+        return;
+      }
+      ReplicationFollower follower = new ReplicationFollower(leader);
+      System.out.println("Following the leader " + leader + ".");
+      client = new Client(follower);
+    } else if (directory != null) {
+      try {
+        RegisterStorage storage = RegisterStorage.open(Path.of(directory));
+        storage.addErrorListener(e -> System.out.println(e.getMessage()));
+        client = new Client(storage.getItemRegister());
+      } catch (IOException e) {
+        System.out.println("Couldn't open the register in " + directory + ": "
+            + e.getMessage());
+        return;
+      }
+    } else {
+      client = new Client(new ItemRegister());
+    }
+    if (port >= 0) {
+      try {
+        InetSocketAddress address = new InetSocketAddress(port);
+        RegisterServer server = client.follower == null
+            ? new RegisterServer(client.itemRegister, address)
+            : new RegisterServer(client.follower, MAX_STALENESS, address);
+        System.out.println("The register is served on port " + server.getPort() + ".");
+      } catch (IOException e) {
+        System.out.println("Couldn't serve the register on port " + port + ": "
+            + e.getMessage());
+        return;
+      }
+    }
+    if (leaderPort >= 0) {
+      try {
+        ReplicationLeader replicationLeader = new ReplicationLeader(client.itemRegister,
+            new InetSocketAddress(leaderPort));
+        replicationLeader.addErrorListener(e -> System.out.println(e.getMessage()));
+        System.out.println("Changes are sent to followers on port "
+            + replicationLeader.getPort() + ".");
+      } catch (IOException e) {
+        System.out.println("Couldn't send changes on port " + leaderPort + ": "
+            + e.getMessage());
+        return;
+      }
+    }
+    try {
+      client.itemRegister.getMetrics().registerMBean("warehouse");
+    } catch (JMException e) {
+      System.out.println("Couldn't make the metrics readable with JMX: " + e.getMessage());
+    }
 
     while (!finished) {
       try {
         client.showMenu();
-      } catch (IllegalArgumentException e) {
+      } catch (IllegalArgumentException | IllegalStateException e) {
         System.out.println(e.getMessage());
       }
     }
@@ -59,9 +187,18 @@ public class Client {
                9. Find number of items in storage
                10. Delete an item
                11. Add default test data
-               12. Exit
+               12. Import items from a file
+               13. Export items to a file
+               14. Exit
               -------------------------------------""");
     int choice = Integer.parseInt(sc.nextLine());
+    if (follower != null && changesItems(choice)) {
+      System.out.println("The register follows a leader, so items can only be changed there.");
+      return;
+    }
+    if (follower != null) {
+      follower.getRegister(MAX_STALENESS);
+    }
 
     switch (choice) {
       case ADD_ITEM -> registerNewItem();
@@ -75,15 +212,22 @@ public class Client {
       case NUMBER_OF_ITEMS -> getTotalNumberOfItems();
       case DELETE_ITEM -> deleteAnItem();
       case ADD_DEFAULT_TESTDATA -> addDefaultTestData();
+      case IMPORT_ITEMS -> importItems();
+      case EXPORT_ITEMS -> exportItems();
       case EXIT -> {
         System.out.println("Thank you for using the items app!");
         finished = true;
         System.exit(0);
       }
-      default -> System.out.println("Please choose a number between 1 and 12");
+      default -> System.out.println("Please choose a number between 1 and 14");
     }
   }
 
+  private static boolean changesItems(int choice) {
+    return choice == ADD_ITEM || choice == EDIT_STOCK || choice == CHANGE_ITEM
+        || choice == DELETE_ITEM || choice == ADD_DEFAULT_TESTDATA || choice == IMPORT_ITEMS;
+  }
+
   /**
    *  Method to register a new item based on user-inputs, this method also checks for
    *  duplicate item number.
@@ -127,14 +271,36 @@ public class Client {
   }
 
   /**
-   * Method to print all items.
+   * Method to print all items, one page at a time. The items are read from a snapshot,
+   * which is closed before waiting for the user, so a user who doesn't answer doesn't
+   * make the register keep older items.
    */
   private void printAllItems() {
     System.out.println("All items: ");
+    if (itemRegister.getNumberOfItems() == 0) {
+      System.out.println("Couldn't find any items.");
+      return;
+    }
+    ItemExporter exporter = new ItemExporter(
+        new OutputStreamWriter(System.out, Charset.defaultCharset()), ItemExporter.Format.TEXT);
+    List<Item> allItems;
+    try (RegisterSnapshot snapshot = itemRegister.openSnapshot()) {
+      allItems = snapshot.getAllItems();
+    }
     try {
-      System.out.println(itemRegister.printAllItems());
-    } catch (IllegalArgumentException e) {
-      System.out.println(e.getMessage());
+      Iterator<Item> items = allItems.iterator();
+      exporter.writeItems(items, PAGE_SIZE);
+      exporter.flush();
+      while (items.hasNext()) {
+        System.out.println("Press enter to see more items, or type q to stop: ");
+        if (sc.nextLine().trim().equalsIgnoreCase("q")) {
+          return;
+        }
+        exporter.writeItems(items, PAGE_SIZE);
+        exporter.flush();
+      }
+    } catch (IOException e) {
+      System.out.println("Couldn't print the items: " + e.getMessage());
     }
   }
 
@@ -351,6 +517,12 @@ public class Client {
     System.out.println("There are " + itemRegister.getNumberOfIndividualItems()
         + " individual items in storage, " + "divided by "
         + itemRegister.getNumberOfItems() + " items.");
+    System.out.println("The items in storage are worth "
+        + String.format("%.2f", itemRegister.getTotalStockValue()) + " kr.");
+    for (Category category : Category.values()) {
+      System.out.println(category + ": "
+          + itemRegister.getInventoryTotalsInCategory(category.getCategoryNumber()) + ".");
+    }
   }
 
   /**
@@ -361,6 +533,35 @@ public class Client {
     System.out.println("Default testdata successfully added.");
   }
 
+  /**
+   * Method to import items from a CSV or JSON lines file, and show which rows were left out.
+   */
+  private void importItems() {
+    System.out.println("Type in the path of the file to import (.csv or .jsonl): ");
+    Path file = Path.of(sc.nextLine().trim());
+
+    try {
+      System.out.println(new ItemImporter(itemRegister).importFile(file));
+    } catch (IOException e) {
+      System.out.println("Couldn't read the file " + file + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Method to export all items to a CSV, JSON lines or text file.
+   */
+  private void exportItems() {
+    System.out.println("Type in the path of the file to export to (.csv, .jsonl or .txt): ");
+    Path file = Path.of(sc.nextLine().trim());
+
+    try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      long written = itemRegister.exportItems(out, ItemExporter.Format.of(file));
+      System.out.println(written + " items were exported to " + file + ".");
+    } catch (IOException e) {
+      System.out.println("Couldn't write the file " + file + ": " + e.getMessage());
+    }
+  }
+
   /**
    * Method to delete an item.
    */
@@ -0,0 +1,127 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** A class placing item numbers on shards by a consistent hash. Every shard gets many
+ * points on a ring of 64 bit hashes, and an item number belongs to the shard with the
+ * first point at or after the hash of the item number. Adding a shard only moves the item
+ * numbers that land on the new shard's points, about one item number in the new number of
+ * shards, and the points spread the item numbers evenly between the shards.
+ *
+ * <p>A ring can't be changed. A ring with one more shard is made with {@link #with}.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+class ConsistentHashRing {
+
+  private static final int POINTS_PER_SHARD = 128;
+
+  private final LinkedHashMap<String, RegisterShard> shardsByName;
+  private final long[] points;
+  private final RegisterShard[] owners;
+
+  /** Constructor for the class.
+   *
+   * @param shardsByName the shards by name as LinkedHashMap
+   */
+  ConsistentHashRing(LinkedHashMap<String, RegisterShard> shardsByName) {
+
+    this.shardsByName = shardsByName;
+    int size = shardsByName.size() * POINTS_PER_SHARD;
+    long[] unsorted = new long[size];
+    RegisterShard[] unsortedOwners = new RegisterShard[size];
+    Long[] order = new Long[size];
+    int point = 0;
+    for (Map.Entry<String, RegisterShard> shard : shardsByName.entrySet()) {
+      for (int i = 0; i < POINTS_PER_SHARD; i++) {
+        unsorted[point] = hash(shard.getKey() + "#" + i);
+        unsortedOwners[point] = shard.getValue();
+        order[point] = (long) point;
+        point++;
+      }
+    }
+    Arrays.sort(order, (a, b) -> Long.compare(unsorted[a.intValue()], unsorted[b.intValue()]));
+    this.points = new long[size];
+    this.owners = new RegisterShard[size];
+    for (int i = 0; i < size; i++) {
+      points[i] = unsorted[order[i].intValue()];
+      owners[i] = unsortedOwners[order[i].intValue()];
+    }
+  }
+
+  /** Method to make a ring with one more shard.
+   *
+   * @param name the name of the new shard as String
+   * @param shard the new shard as RegisterShard
+   * @return returns the new ring as ConsistentHashRing
+   */
+  ConsistentHashRing with(String name, RegisterShard shard) {
+    LinkedHashMap<String, RegisterShard> shards = new LinkedHashMap<>(shardsByName);
+    shards.put(name, shard);
+    return new ConsistentHashRing(shards);
+  }
+
+  boolean isEmpty() {
+
+    return points.length == 0;
+  }
+
+  boolean hasShard(String name) {
+
+    return shardsByName.containsKey(name);
+  }
+
+  /** Method to get the shards of the ring, in the order they were added.
+   *
+   * @return returns the shards as a List
+   */
+  List<RegisterShard> getShards() {
+    return Collections.unmodifiableList(new ArrayList<>(shardsByName.values()));
+  }
+
+  /** Method to get the names of the shards, in the order they were added.
+   *
+   * @return returns the names as a List
+   */
+  List<String> getShardNames() {
+    return Collections.unmodifiableList(new ArrayList<>(shardsByName.keySet()));
+  }
+
+  /** Method to find the shard an item number belongs to.
+   *
+   * @param key the normalized item number as String
+   * @return returns the shard as RegisterShard
+   */
+  RegisterShard ownerOf(String key) {
+    int index = Arrays.binarySearch(points, hash(key));
+    if (index < 0) {
+      index = -index - 1;
+    }
+    return owners[index == points.length ? 0 : index];
+  }
+
+  /** Method to hash a text to 64 bits. The characters are mixed in by FNV-1a, and the
+   * result is mixed again so that similar texts, like item numbers in a series, are
+   * spread over the whole ring.
+   *
+   * @param text the text as String
+   * @return returns the hash as long
+   */
+  static long hash(String text) {
+    long hash = 0xCBF29CE484222325L;
+    for (int i = 0; i < text.length(); i++) {
+      hash ^= text.charAt(i);
+      hash *= 0x100000001B3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    hash *= 0xC4CEB9FE1A85EC53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,61 @@
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/** A class keeping the last error of work done in the background, like sending changes
+ * to followers or saving snapshots, and telling the listeners about every error. The
+ * classes doing the work have no one to throw the error to, and don't print it, so the
+ * program using them chooses how errors are shown.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+final class ErrorListeners {
+
+  private final CopyOnWriteArrayList<Consumer<Exception>> listeners;
+  private volatile Exception lastError;
+
+  /** Constructor for the class, without listeners.
+   */
+  ErrorListeners() {
+
+    this.listeners = new CopyOnWriteArrayList<>();
+  }
+
+  /** Method to get told about every error from now on.
+   *
+   * @param listener the listener as Consumer
+   */
+  void add(Consumer<Exception> listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("The listener can't be empty.");
+    }
+    listeners.add(listener);
+  }
+
+  void remove(Consumer<Exception> listener) {
+
+    listeners.remove(listener);
+  }
+
+  Exception getLastError() {
+
+    return lastError;
+  }
+
+  /** Method to keep an error as the last one and send it to the listeners. The listeners
+   * are called on the thread that got the error, and a listener that fails doesn't stop
+   * that thread or the other listeners.
+   *
+   * @param error the error as Exception
+   */
+  void report(Exception error) {
+    lastError = error;
+    for (Consumer<Exception> listener : listeners) {
+      try {
+        listener.accept(error);
+      } catch (RuntimeException e) {
+        // The work in the background must go on, whatever the listener does.
+      }
+    }
+  }
+}
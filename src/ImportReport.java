@@ -0,0 +1,77 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** A class representing the result of importing items from a file with
+ * {@link ItemImporter}. Holds how many items were registered and why the other rows
+ * were left out. Only the first errors are kept, so that a file full of bad rows can't
+ * fill the memory.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class ImportReport {
+
+  private static final int MAX_ERRORS = 1_000;
+
+  private long numberOfImportedItems;
+  private long numberOfRejectedRows;
+  private final ArrayList<String> errors;
+
+  public ImportReport() {
+
+    this.errors = new ArrayList<>();
+  }
+
+  /** Method to count an item that was registered.
+   */
+  void itemImported() {
+    numberOfImportedItems++;
+  }
+
+  /** Method to count a row that was left out, and keep the reason if there is room.
+   *
+   * @param lineNumber number of the line in the file as long
+   * @param message why the row was left out as String
+   */
+  void rowRejected(long lineNumber, String message) {
+    numberOfRejectedRows++;
+    if (errors.size() < MAX_ERRORS) {
+      errors.add("Line " + lineNumber + ": " + message);
+    }
+  }
+
+  public long getNumberOfImportedItems() {
+
+    return numberOfImportedItems;
+  }
+
+  public long getNumberOfRejectedRows() {
+
+    return numberOfRejectedRows;
+  }
+
+  /** Method to get why rows were left out, one message for each row, in the order of the
+   * file. Only the first 1000 rows left out are included.
+   *
+   * @return returns the error messages as a List
+   */
+  public List<String> getErrors() {
+    return Collections.unmodifiableList(errors);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder report = new StringBuilder();
+    report.append(numberOfImportedItems).append(" items were imported, and ")
+        .append(numberOfRejectedRows).append(" rows were left out.");
+    for (String error : errors) {
+      report.append("\n").append(error);
+    }
+    if (numberOfRejectedRows > errors.size()) {
+      report.append("\n... and ").append(numberOfRejectedRows - errors.size())
+          .append(" more.");
+    }
+    return report.toString();
+  }
+}
@@ -0,0 +1,164 @@
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** A class keeping running totals of the items in the register: the number of items, the
+ * number of individual items and the stock value, for the whole register and for every
+ * category, brand and color. The register updates the totals on every change, so the
+ * totals can be read without looking at the items.
+ *
+ * <p>The stock value is kept in hundredths of a krone (ore) as a whole number. The price
+ * of an item is rounded the same way when it is added and removed, so the totals never
+ * drift like a sum of decimal numbers would.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+class InventoryAggregates {
+
+  private final Totals total;
+  private final EnumMap<Category, Totals> totalsByCategory;
+  private final ConcurrentHashMap<String, Totals> totalsByBrandName;
+  private final ConcurrentHashMap<String, Totals> totalsByColor;
+
+  InventoryAggregates() {
+
+    total = new Totals();
+    totalsByCategory = new EnumMap<>(Category.class);
+    for (Category category : Category.values()) {
+      totalsByCategory.put(category, new Totals());
+    }
+    totalsByBrandName = new ConcurrentHashMap<>();
+    totalsByColor = new ConcurrentHashMap<>();
+  }
+
+  /** Method to normalize a brand name or color, so that the same name written with other
+   * capital letters is counted together.
+   *
+   * @param name brand name or color as String
+   * @return returns the name in lower case as String
+   */
+  private static String groupKey(String name) {
+    return name.toLowerCase(Locale.ROOT);
+  }
+
+  private static long valueInOre(Item item) {
+    return Math.round(item.getPrice() * 100) * item.getNumberOfItems();
+  }
+
+  /** Method to add a new item to the totals.
+   *
+   * @param item the new item as Item
+   */
+  void addItem(Item item) {
+    change(item, 1);
+  }
+
+  /** Method to remove a deleted item from the totals.
+   *
+   * @param item the deleted item as Item
+   */
+  void removeItem(Item item) {
+    change(item, -1);
+  }
+
+  /** Method to update the totals after an item is changed.
+   *
+   * @param oldItem the item before the change as Item
+   * @param newItem the item after the change as Item
+   */
+  void replaceItem(Item oldItem, Item newItem) {
+    if (oldItem.getNumberOfItems() != newItem.getNumberOfItems()
+        || Double.compare(oldItem.getPrice(), newItem.getPrice()) != 0
+        || oldItem.getItemCategory() != newItem.getItemCategory()
+        || !groupKey(oldItem.getBrandName()).equals(groupKey(newItem.getBrandName()))
+        || !groupKey(oldItem.getColor()).equals(groupKey(newItem.getColor()))) {
+      change(oldItem, -1);
+      change(newItem, 1);
+    }
+  }
+
+  private void change(Item item, int sign) {
+    long individualItems = sign * (long) item.getNumberOfItems();
+    long value = sign * valueInOre(item);
+    total.add(sign, individualItems, value);
+    totalsByCategory.get(item.getItemCategory()).add(sign, individualItems, value);
+    changeGroup(totalsByBrandName, groupKey(item.getBrandName()), sign, individualItems,
+        value);
+    changeGroup(totalsByColor, groupKey(item.getColor()), sign, individualItems, value);
+  }
+
+  private static void changeGroup(ConcurrentHashMap<String, Totals> groups, String key,
+                                  int items, long individualItems, long value) {
+    groups.compute(key, (name, totals) -> {
+      Totals changed = totals == null ? new Totals() : totals;
+      changed.add(items, individualItems, value);
+      return changed.isEmpty() ? null : changed;
+    });
+  }
+
+  InventoryTotals getTotals() {
+    return total.snapshot();
+  }
+
+  InventoryTotals getTotalsInCategory(Category category) {
+    return totalsByCategory.get(category).snapshot();
+  }
+
+  InventoryTotals getTotalsForBrandName(String brandName) {
+    return snapshotOf(totalsByBrandName, groupKey(brandName));
+  }
+
+  InventoryTotals getTotalsForColor(String color) {
+    return snapshotOf(totalsByColor, groupKey(color));
+  }
+
+  Map<String, InventoryTotals> getTotalsByBrandName() {
+    return snapshotOf(totalsByBrandName);
+  }
+
+  Map<String, InventoryTotals> getTotalsByColor() {
+    return snapshotOf(totalsByColor);
+  }
+
+  private static InventoryTotals snapshotOf(ConcurrentHashMap<String, Totals> groups,
+                                            String key) {
+    Totals totals = groups.get(key);
+    return totals == null ? new InventoryTotals(0, 0, 0) : totals.snapshot();
+  }
+
+  private static TreeMap<String, InventoryTotals> snapshotOf(
+      ConcurrentHashMap<String, Totals> groups) {
+    TreeMap<String, InventoryTotals> snapshot = new TreeMap<>();
+    groups.forEach((key, totals) -> {
+      InventoryTotals values = totals.snapshot();
+      if (values.getNumberOfItems() > 0) {
+        snapshot.put(key, values);
+      }
+    });
+    return snapshot;
+  }
+
+  /** The running totals of one group of items. */
+  private static final class Totals {
+    private long numberOfItems;
+    private long numberOfIndividualItems;
+    private long stockValueInOre;
+
+    private synchronized void add(int items, long individualItems, long value) {
+      numberOfItems += items;
+      numberOfIndividualItems += individualItems;
+      stockValueInOre += value;
+    }
+
+    private synchronized boolean isEmpty() {
+      return numberOfItems == 0;
+    }
+
+    private synchronized InventoryTotals snapshot() {
+      return new InventoryTotals(numberOfItems, numberOfIndividualItems, stockValueInOre);
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/** A class representing the totals of a group of items at one moment, like every item in
+ * the register, every item in a category or every item of a brand.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class InventoryTotals {
+  private final long numberOfItems;
+  private final long numberOfIndividualItems;
+  private final long stockValueInOre;
+
+  /** Constructor for the class.
+   *
+   * @param numberOfItems           number of different items as long
+   * @param numberOfIndividualItems number of individual items in storage as long
+   * @param stockValueInOre         the price of every individual item added together, in
+   *                                hundredths of a krone, as long
+   */
+  public InventoryTotals(long numberOfItems, long numberOfIndividualItems,
+                         long stockValueInOre) {
+
+    this.numberOfItems = numberOfItems;
+    this.numberOfIndividualItems = numberOfIndividualItems;
+    this.stockValueInOre = stockValueInOre;
+  }
+
+  public long getNumberOfItems() {
+
+    return numberOfItems;
+  }
+
+  public long getNumberOfIndividualItems() {
+
+    return numberOfIndividualItems;
+  }
+
+  /** Method to get the value of the items in storage, the price of every individual item
+   * added together.
+   *
+   * @return returns the stock value in kr as double
+   */
+  public double getStockValue() {
+    return stockValueInOre / 100.0;
+  }
+
+  public long getStockValueInOre() {
+
+    return stockValueInOre;
+  }
+
+  @Override
+  public String toString() {
+    return numberOfIndividualItems + " individual items, divided by " + numberOfItems
+        + " items, worth " + String.format("%.2f", getStockValue()) + " kr";
+  }
+}
@@ -1,4 +1,9 @@
 /** A class representing each item in the warehouse storage.
+ *
+ * <p>An item is never changed after it is made. A change to the price, description or
+ * number of items makes a new item, which the register keeps instead of the old one.
+ * The register can therefore give out its own items without copying them, and users of
+ * the register can't change the register through an item.
  *
  * @author 10119
  * @version 1.1.0
@@ -7,13 +12,13 @@ public class Item {
   private final String itemNumber;
   private final String brandName;
   private final String color;
-  private String description;
+  private final String description;
   private final Category category;
-  private int numberOfItems;
+  private final int numberOfItems;
   private final double weight;
   private final double length;
   private final double height;
-  private double price;
+  private final double price;
 
 
   /** Constructor for the class, with information about the item.
@@ -38,9 +43,7 @@ public class Item {
     if (brandName.isBlank()) {
       throw new IllegalArgumentException("The brand name can't be left blank.");
     }
-    if (price < 0) {
-      throw new IllegalArgumentException("The price can't be a negative number.");
-    }
+    checkPrice(price);
     if (weight <= 0) {
       throw new IllegalArgumentException("The weight can't be 0 or a negative number.");
     }
@@ -87,6 +90,26 @@ public class Item {
     this.category = cloningItem.getItemCategory();
   }
 
+  /** Constructor for making a changed copy of an item.
+   *
+   * @param item the item to copy as Item
+   * @param description description of the copy as String
+   * @param price price of the copy as double
+   * @param numberOfItems number of items of the copy as int
+   */
+  private Item(Item item, String description, double price, int numberOfItems) {
+    this.itemNumber = item.getItemNumber();
+    this.description = description;
+    this.price = price;
+    this.brandName = item.getBrandName();
+    this.weight = item.getWeight();
+    this.length = item.getLength();
+    this.height = item.getHeight();
+    this.color = item.getColor();
+    this.numberOfItems = numberOfItems;
+    this.category = item.getItemCategory();
+  }
+
   public String getItemNumber() {
 
     return this.itemNumber;
@@ -142,24 +165,38 @@ public class Item {
     return String.valueOf(category);
   }
 
-  private Category getItemCategory() {
+  public Category getItemCategory() {
 
     return category;
   }
 
-  public void setNewPrice(double newPrice) {
+  public Item withNewPrice(double newPrice) {
+
+    checkPrice(newPrice);
+    return new Item(this, description, newPrice, numberOfItems);
+  }
 
-    this.price = newPrice;
+  /** Method to check that a price can be given to an item.
+   *
+   * @param price the price as double
+   */
+  static void checkPrice(double price) {
+    if (!Double.isFinite(price)) {
+      throw new IllegalArgumentException("The price must be a number.");
+    }
+    if (price < 0) {
+      throw new IllegalArgumentException("The price can't be a negative number.");
+    }
   }
 
-  public void setNewNumberOfItems(int newNumberOfItems) {
+  public Item withNewNumberOfItems(int newNumberOfItems) {
 
-    this.numberOfItems = newNumberOfItems;
+    return new Item(this, description, price, newNumberOfItems);
   }
 
-  public void setNewDescription(String newDescription) {
+  public Item withNewDescription(String newDescription) {
 
-    this.description = newDescription;
+    return new Item(this, newDescription, price, numberOfItems);
   }
 
   /** toString method to print all info about an item.
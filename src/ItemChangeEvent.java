@@ -0,0 +1,111 @@
+/** A class representing one change to the register, as sent to the subscribers of the
+ * {@link ItemChangeFeed}. The event holds the item before and after the change. Items
+ * can't be changed, so the event can be kept and read at any time.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class ItemChangeEvent {
+
+  /** The kinds of changes to an item. */
+  public enum Type {
+    ITEM_ADDED,
+    STOCK_CHANGED,
+    PRICE_CHANGED,
+    DESCRIPTION_CHANGED,
+    ITEM_DELETED,
+    /** More than one field was changed at once, or a field other than the number of
+     * items, price and description, like when an item is put in place of another. */
+    ITEM_REPLACED
+  }
+
+  private final long sequence;
+  private final Type type;
+  private final Item oldItem;
+  private final Item newItem;
+
+  /** Constructor for the class. The type is found by comparing the two items.
+   *
+   * @param sequence the number of the event in the feed as long
+   * @param oldItem the item before the change, or null for a new item, as Item
+   * @param newItem the item after the change, or null for a deleted item, as Item
+   */
+  ItemChangeEvent(long sequence, Item oldItem, Item newItem) {
+
+    this.sequence = sequence;
+    this.type = typeOf(oldItem, newItem);
+    this.oldItem = oldItem;
+    this.newItem = newItem;
+  }
+
+  private static Type typeOf(Item oldItem, Item newItem) {
+    if (oldItem == null) {
+      return Type.ITEM_ADDED;
+    } else if (newItem == null) {
+      return Type.ITEM_DELETED;
+    }
+    boolean stockChanged = oldItem.getNumberOfItems() != newItem.getNumberOfItems();
+    boolean priceChanged = Double.compare(oldItem.getPrice(), newItem.getPrice()) != 0;
+    boolean descriptionChanged = !oldItem.getDescription().equals(newItem.getDescription());
+    if (!hasSameOtherFields(oldItem, newItem)
+        || (stockChanged ? 1 : 0) + (priceChanged ? 1 : 0) + (descriptionChanged ? 1 : 0) != 1) {
+      return Type.ITEM_REPLACED;
+    } else if (stockChanged) {
+      return Type.STOCK_CHANGED;
+    } else if (priceChanged) {
+      return Type.PRICE_CHANGED;
+    } else {
+      return Type.DESCRIPTION_CHANGED;
+    }
+  }
+
+  /** Method to find out if two items have the same fields, other than the number of
+   * items, price and description.
+   *
+   * @param oldItem the item before the change as Item
+   * @param newItem the item after the change as Item
+   * @return returns true if the other fields are the same
+   */
+  private static boolean hasSameOtherFields(Item oldItem, Item newItem) {
+    return oldItem.getItemNumber().equals(newItem.getItemNumber())
+        && oldItem.getBrandName().equals(newItem.getBrandName())
+        && oldItem.getColor().equals(newItem.getColor())
+        && oldItem.getItemCategory() == newItem.getItemCategory()
+        && Double.compare(oldItem.getWeight(), newItem.getWeight()) == 0
+        && Double.compare(oldItem.getLength(), newItem.getLength()) == 0
+        && Double.compare(oldItem.getHeight(), newItem.getHeight()) == 0;
+  }
+
+  public long getSequence() {
+
+    return sequence;
+  }
+
+  public Type getType() {
+
+    return type;
+  }
+
+  /** Method to get the item number of the changed item.
+   *
+   * @return returns the item number as String
+   */
+  public String getItemNumber() {
+    return newItem != null ? newItem.getItemNumber() : oldItem.getItemNumber();
+  }
+
+  public Item getOldItem() {
+
+    return oldItem;
+  }
+
+  public Item getNewItem() {
+
+    return newItem;
+  }
+
+  @Override
+  public String toString() {
+    return "#" + sequence + " " + type + " " + getItemNumber();
+  }
+}
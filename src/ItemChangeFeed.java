@@ -0,0 +1,331 @@
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/** A class sending every change to the register, as an {@link ItemChangeEvent}, to any
+ * number of subscribers, so that other parts of the program can follow the changes
+ * without reading every item again.
+ *
+ * <p>The events are kept in a ring of a fixed size. A change takes the next place in the
+ * ring with one atomic counter and no lock, and every subscriber reads the ring at its own
+ * pace, keeping its own place, so a slow subscriber doesn't hold back the others. A
+ * subscriber gets its events in batches, in the order they were made, and the events of
+ * one item always come in the order of the changes.
+ *
+ * <p>When a subscriber falls so far behind that the ring is full, the changes to the
+ * register either wait for it to catch up, or the subscriber skips the events that are
+ * overwritten and can see how many it missed, as chosen when subscribing. A subscriber
+ * that slows down the register must not change the register itself while it is behind,
+ * since the change would wait for the subscriber. Changes are not slowed down at all while
+ * there are no subscribers.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class ItemChangeFeed {
+
+  /** Number of events the ring holds, if nothing else is chosen. */
+  public static final int DEFAULT_CAPACITY = 8192;
+
+  private static final int SPINS_BEFORE_PARKING = 100;
+  private static final long PARK_NANOS = 10_000;
+
+  /** What happens to a subscriber that is so far behind that the ring is full. */
+  public enum WhenFull {
+    /** The changes to the register wait until the subscriber has read more events. */
+    WAIT,
+    /** The oldest events are overwritten, and the subscriber skips them. */
+    SKIP_EVENTS
+  }
+
+  private final int mask;
+  private final ItemChangeEvent[] events;
+  private final AtomicLongArray publishedSequences;
+  private final AtomicLong nextSequence;
+  private final CopyOnWriteArrayList<Subscription> subscriptions;
+  private final AtomicLong slowestPosition;
+  private final Object newEvents;
+  private final AtomicInteger waitingSubscribers;
+
+  /** Constructor for the class.
+   *
+   * @param capacity number of events the ring holds, a power of two, as int
+   */
+  ItemChangeFeed(int capacity) {
+
+    if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("The capacity must be a power of two.");
+    }
+    this.mask = capacity - 1;
+    this.events = new ItemChangeEvent[capacity];
+    this.publishedSequences = new AtomicLongArray(capacity);
+    for (int slot = 0; slot < capacity; slot++) {
+      publishedSequences.set(slot, -1);
+    }
+    this.nextSequence = new AtomicLong();
+    this.subscriptions = new CopyOnWriteArrayList<>();
+    this.slowestPosition = new AtomicLong(Long.MAX_VALUE);
+    this.newEvents = new Object();
+    this.waitingSubscribers = new AtomicInteger();
+  }
+
+  /** Method to start reading the changes made from now on. The subscription is added to
+   * the subscribers, and the remembered place of the slowest subscriber is lowered to it,
+   * before its first event is chosen. A change that could overwrite that event therefore
+   * always looks at the new subscriber.
+   *
+   * @param whenFull what happens when the subscriber is too far behind as WhenFull
+   * @return returns the new subscription as Subscription
+   */
+  public Subscription subscribe(WhenFull whenFull) {
+    if (whenFull == null) {
+      throw new IllegalArgumentException("Choose what happens when the feed is full.");
+    }
+    Subscription subscription = new Subscription(whenFull, nextSequence.get());
+    subscriptions.add(subscription);
+    lowerSlowestPosition(subscription.position);
+    subscription.position = nextSequence.get();
+    return subscription;
+  }
+
+  /** Method to lower the remembered place of the slowest subscriber, unless another
+   * thread has already lowered it further.
+   *
+   * @param position the place of a subscriber as long
+   */
+  private void lowerSlowestPosition(long position) {
+    long remembered = slowestPosition.get();
+    while (position < remembered && !slowestPosition.compareAndSet(remembered, position)) {
+      remembered = slowestPosition.get();
+    }
+  }
+
+  /** Method to start reading the changes made from now on. Changes to the register wait
+   * for the subscriber when it is too far behind.
+   *
+   * @return returns the new subscription as Subscription
+   */
+  public Subscription subscribe() {
+    return subscribe(WhenFull.WAIT);
+  }
+
+  public int getCapacity() {
+
+    return events.length;
+  }
+
+  public int getNumberOfSubscribers() {
+
+    return subscriptions.size();
+  }
+
+  /** Method to send a change to the subscribers. Must be called while holding the lock for
+   * the item, so the events of one item are in the order of the changes.
+   *
+   * @param oldItem the item before the change, or null for a new item, as Item
+   * @param newItem the item after the change, or null for a deleted item, as Item
+   */
+  void publish(Item oldItem, Item newItem) {
+    if (subscriptions.isEmpty()) {
+      return;
+    }
+    long sequence = nextSequence.getAndIncrement();
+    awaitFreeSlot(sequence);
+    int slot = (int) sequence & mask;
+    awaitEarlierEvent(slot, sequence);
+    events[slot] = new ItemChangeEvent(sequence, oldItem, newItem);
+    publishedSequences.set(slot, sequence);
+
+    if (waitingSubscribers.get() > 0) {
+      synchronized (newEvents) {
+        newEvents.notifyAll();
+      }
+    }
+  }
+
+  /** Method to wait until every waiting subscriber has read the event that was in the
+   * place of a new event. The place of the slowest subscriber is remembered, so the
+   * subscribers are only looked at when the ring might be full. The remembered place is
+   * never after the newest event, so a subscriber starting meanwhile is not passed by, and
+   * it is only replaced if no subscriber lowered it while the subscribers were looked at.
+   *
+   * @param sequence the number of the new event as long
+   */
+  private void awaitFreeSlot(long sequence) {
+    long overwritten = sequence - events.length;
+    long remembered = slowestPosition.get();
+    if (overwritten < remembered) {
+      return;
+    }
+    int spins = 0;
+    long newest;
+    long slowest;
+    while (true) {
+      newest = nextSequence.get();
+      slowest = findSlowestPosition();
+      if (overwritten < slowest) {
+        break;
+      }
+      if (spins < SPINS_BEFORE_PARKING) {
+        spins++;
+        Thread.onSpinWait();
+      } else {
+        LockSupport.parkNanos(PARK_NANOS);
+      }
+    }
+    slowestPosition.compareAndSet(remembered, Math.min(slowest, newest));
+  }
+
+  /** Method to wait until the event a lap before a new event has been put in its place.
+   * A change that got its number earlier can be slower to put its event in the ring, and
+   * must not put it over the newer event, or the subscribers would never find the newer
+   * one. The earlier change has its number already, so the wait is short.
+   *
+   * @param slot the place of the new event as int
+   * @param sequence the number of the new event as long
+   */
+  private void awaitEarlierEvent(int slot, long sequence) {
+    long earlier = sequence - events.length;
+    int spins = 0;
+    while (publishedSequences.get(slot) < earlier) {
+      if (spins < SPINS_BEFORE_PARKING) {
+        spins++;
+        Thread.onSpinWait();
+      } else {
+        LockSupport.parkNanos(PARK_NANOS);
+      }
+    }
+  }
+
+  private long findSlowestPosition() {
+    long slowest = Long.MAX_VALUE;
+    for (Subscription subscription : subscriptions) {
+      if (subscription.whenFull == WhenFull.WAIT) {
+        slowest = Math.min(slowest, subscription.position);
+      }
+    }
+    return slowest;
+  }
+
+  /** A subscriber's place in the feed. Every subscription gets every event once, and
+   * should be closed when it is no longer read, so it doesn't hold back the register.
+   */
+  public final class Subscription implements Closeable {
+    private final WhenFull whenFull;
+    private volatile long position;
+    private volatile boolean closed;
+    private long skippedEvents;
+
+    private Subscription(WhenFull whenFull, long position) {
+      this.whenFull = whenFull;
+      this.position = position;
+    }
+
+    /** Method to read the next events, without waiting.
+     *
+     * @param maxEvents the highest number of events to read as int
+     * @return returns the events read, in order, or an empty list if there are none
+     */
+    public synchronized ArrayList<ItemChangeEvent> poll(int maxEvents) {
+      if (maxEvents < 1) {
+        throw new IllegalArgumentException("The number of events must be at least 1.");
+      }
+      if (closed) {
+        throw new IllegalStateException("The subscription is closed.");
+      }
+      ArrayList<ItemChangeEvent> batch = new ArrayList<>();
+      long sequence = position;
+      while (batch.size() < maxEvents) {
+        int slot = (int) sequence & mask;
+        long published = publishedSequences.get(slot);
+        if (published < sequence) {
+          break;
+        }
+        // A publisher that passed this subscriber may already have put a newer event in
+        // the place, so the event itself must have the number looked for.
+        ItemChangeEvent event = events[slot];
+        if (published > sequence || event.getSequence() != sequence) {
+          long oldestKept = Math.max(sequence + 1, nextSequence.get() - events.length);
+          skippedEvents += oldestKept - sequence;
+          sequence = oldestKept;
+          continue;
+        }
+        batch.add(event);
+        sequence++;
+      }
+      position = sequence;
+      return batch;
+    }
+
+    /** Method to read the next events, waiting until there is at least one event or the
+     * time is up.
+     *
+     * @param maxEvents the highest number of events to read as int
+     * @param timeout the longest time to wait as Duration
+     * @return returns the events read, in order, or an empty list if there were none
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public ArrayList<ItemChangeEvent> poll(int maxEvents, Duration timeout)
+        throws InterruptedException {
+      long deadline = System.nanoTime() + timeout.toNanos();
+      while (true) {
+        ArrayList<ItemChangeEvent> batch = poll(maxEvents);
+        long remaining = deadline - System.nanoTime();
+        if (!batch.isEmpty() || remaining <= 0) {
+          return batch;
+        }
+        waitingSubscribers.incrementAndGet();
+        try {
+          synchronized (newEvents) {
+            if (!hasEvents()) {
+              long millis = Math.max(1, remaining / 1_000_000);
+              newEvents.wait(millis);
+            }
+          }
+        } finally {
+          waitingSubscribers.decrementAndGet();
+        }
+      }
+    }
+
+    private boolean hasEvents() {
+      long sequence = position;
+      return publishedSequences.get((int) sequence & mask) >= sequence;
+    }
+
+    /** Method to find how many events the subscriber is behind.
+     *
+     * @return returns the number of events not read yet as long
+     */
+    public long getLag() {
+      return Math.max(0, nextSequence.get() - position);
+    }
+
+    /** Method to find how many events were overwritten before the subscriber read them.
+     * Always 0 for a subscriber the register waits for.
+     *
+     * @return returns the number of events skipped as long
+     */
+    public synchronized long getSkippedEvents() {
+      return skippedEvents;
+    }
+
+    public WhenFull getWhenFull() {
+
+      return whenFull;
+    }
+
+    /** Method to stop reading the feed. Changes no longer wait for this subscriber.
+     */
+    @Override
+    public void close() {
+      closed = true;
+      subscriptions.remove(this);
+    }
+  }
+}
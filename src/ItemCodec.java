@@ -0,0 +1,333 @@
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/** A class writing items to and reading items from a {@link ByteBuffer} in a compact
+ * binary form, to move items between programs or to disk.
+ *
+ * <p>An item starts with the version of the form and the number of bytes that follow.
+ * Then come the item number and description as UTF-8 with their length first, the price,
+ * weight, length and height as 8 byte doubles, the brand name and color, the number of
+ * items as a variable length number (1 byte up to 127, 2 bytes up to 16383 and so on)
+ * and the category as one byte. A reader skips the fields added by later versions, so new
+ * fields can be added at the end.
+ *
+ * <p>A codec with a dictionary writes a brand name or color the first time it sees it,
+ * and only its number in the dictionary after that, since many items share them. The
+ * items must then be read in the same order as they were written, by a codec that started
+ * with an empty dictionary too. A codec remembers its dictionary and can't be used by
+ * several threads at once.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class ItemCodec {
+
+  /** The version of the form written. */
+  public static final int VERSION = 1;
+
+  private static final int MAX_DICTIONARY_SIZE = 65_536;
+
+  private final boolean useDictionary;
+  private final HashMap<String, Integer> dictionaryIds;
+  private final ArrayList<String> dictionary;
+  private byte[] scratch;
+
+  /** Constructor for the class.
+   *
+   * @param useDictionary true to write repeated brand names and colors as numbers
+   */
+  public ItemCodec(boolean useDictionary) {
+
+    this.useDictionary = useDictionary;
+    this.dictionaryIds = new HashMap<>();
+    this.dictionary = new ArrayList<>();
+    this.scratch = new byte[64];
+  }
+
+  /** Constructor for the class, writing every text in full.
+   */
+  public ItemCodec() {
+
+    this(false);
+  }
+
+  /** Method to empty the dictionary, before writing or reading a new series of items.
+   */
+  public void reset() {
+    dictionaryIds.clear();
+    dictionary.clear();
+  }
+
+  /** Method to find the number of bytes the item will take when it is written next.
+   *
+   * @param item the item as Item
+   * @return returns the number of bytes as int
+   */
+  public int encodedSize(Item item) {
+    int bodySize = bodySize(item);
+    return 1 + varIntSize(bodySize) + bodySize;
+  }
+
+  private int bodySize(Item item) {
+    return textSize(item.getItemNumber()) + textSize(item.getDescription())
+        + 4 * Double.BYTES + sharedTextSize(item.getBrandName())
+        + sharedTextSize(item.getColor()) + varIntSize(item.getNumberOfItems()) + 1;
+  }
+
+  /** Method to write an item at the position of the buffer. Nothing is written if the item
+   * doesn't fit in the rest of the buffer.
+   *
+   * @param item the item to write as Item
+   * @param out the buffer to write to as ByteBuffer
+   * @throws BufferOverflowException if the item doesn't fit
+   */
+  public void encode(Item item, ByteBuffer out) {
+    int bodySize = bodySize(item);
+    if (out.remaining() < 1 + varIntSize(bodySize) + bodySize) {
+      throw new BufferOverflowException();
+    }
+    out.put((byte) VERSION);
+    putVarInt(out, bodySize);
+    putText(out, item.getItemNumber());
+    putText(out, item.getDescription());
+    out.putDouble(item.getPrice());
+    out.putDouble(item.getWeight());
+    out.putDouble(item.getLength());
+    out.putDouble(item.getHeight());
+    putSharedText(out, item.getBrandName());
+    putSharedText(out, item.getColor());
+    putVarInt(out, item.getNumberOfItems());
+    out.put((byte) item.getItemCategory().getCategoryNumber());
+  }
+
+  /** Method to read the item at the position of the buffer.
+   *
+   * @param in the buffer to read from as ByteBuffer
+   * @return returns the item as Item
+   * @throws BufferUnderflowException if the buffer ends in the middle of the item
+   * @throws IllegalArgumentException if the bytes are not an item, or its fields are
+   *                                  longer than its size
+   */
+  public Item decode(ByteBuffer in) {
+    int version = in.get() & 0xFF;
+    if (version == 0) {
+      throw new IllegalArgumentException("The bytes are not an item.");
+    }
+    int bodySize = getVarInt(in);
+    if (bodySize < 0) {
+      throw new IllegalArgumentException("The bytes are not an item.");
+    }
+    if (in.remaining() < bodySize) {
+      throw new BufferUnderflowException();
+    }
+    int end = in.position() + bodySize;
+
+    // The fields are read with the limit of the buffer at the end of the item, so a
+    // damaged field can't read into the next item.
+    int limit = in.limit();
+    in.limit(end);
+    String itemNumber;
+    String description;
+    double price;
+    double weight;
+    double length;
+    double height;
+    String brandName;
+    String color;
+    int numberOfItems;
+    int category;
+    try {
+      itemNumber = getText(in);
+      description = getText(in);
+      price = in.getDouble();
+      weight = in.getDouble();
+      length = in.getDouble();
+      height = in.getDouble();
+      brandName = getSharedText(in);
+      color = getSharedText(in);
+      numberOfItems = getVarInt(in);
+      category = in.get() & 0xFF;
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("The fields of the item are longer than its size.");
+    } finally {
+      in.limit(limit);
+    }
+    if (in.position() > end) {
+      throw new IllegalArgumentException("The fields of the item are longer than its size.");
+    }
+    in.position(end);
+    return new Item(itemNumber, description, price, brandName, weight, length, height, color,
+        numberOfItems, category);
+  }
+
+  private static int varIntSize(int value) {
+    return (Integer.SIZE - Integer.numberOfLeadingZeros(value | 1) + 6) / 7;
+  }
+
+  private static void putVarInt(ByteBuffer out, int value) {
+    while ((value & ~0x7F) != 0) {
+      out.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.put((byte) value);
+  }
+
+  private static int getVarInt(ByteBuffer in) {
+    int value = 0;
+    for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+      byte b = in.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("The bytes have a number that is too long.");
+  }
+
+  /** Method to find the number of bytes of a text in UTF-8, without encoding it.
+   *
+   * @param text the text as String
+   * @return returns the number of bytes as int
+   */
+  private static int utf8Length(String text) {
+    int length = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (isSurrogatePair(text, i)) {
+        length += 4;
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        length++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  private static boolean isSurrogatePair(String text, int index) {
+    return Character.isHighSurrogate(text.charAt(index)) && index + 1 < text.length()
+        && Character.isLowSurrogate(text.charAt(index + 1));
+  }
+
+  private static int textSize(String text) {
+    int length = utf8Length(text);
+    return varIntSize(length << 1) + length;
+  }
+
+  private int sharedTextSize(String text) {
+    Integer id = useDictionary ? dictionaryIds.get(text) : null;
+    return id != null ? varIntSize(id << 1 | 1) : textSize(text);
+  }
+
+  /** Method to write a text as UTF-8, straight into the buffer. The length is written
+   * first, doubled, so the lowest bit tells a text from a dictionary number.
+   *
+   * @param out the buffer as ByteBuffer
+   * @param text the text as String
+   */
+  private static void putText(ByteBuffer out, String text) {
+    putVarInt(out, utf8Length(text) << 1);
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        out.put((byte) c);
+      } else if (c < 0x800) {
+        out.put((byte) (0xC0 | c >> 6));
+        out.put((byte) (0x80 | c & 0x3F));
+      } else if (isSurrogatePair(text, i)) {
+        int codePoint = Character.toCodePoint(c, text.charAt(++i));
+        out.put((byte) (0xF0 | codePoint >> 18));
+        out.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+        out.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+        out.put((byte) (0x80 | codePoint & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        out.put((byte) '?');
+      } else {
+        out.put((byte) (0xE0 | c >> 12));
+        out.put((byte) (0x80 | c >> 6 & 0x3F));
+        out.put((byte) (0x80 | c & 0x3F));
+      }
+    }
+  }
+
+  private void putSharedText(ByteBuffer out, String text) {
+    if (!useDictionary) {
+      putText(out, text);
+      return;
+    }
+    Integer id = dictionaryIds.get(text);
+    if (id != null) {
+      putVarInt(out, id << 1 | 1);
+    } else {
+      putText(out, text);
+      remember(text);
+    }
+  }
+
+  private void remember(String text) {
+    if (dictionary.size() < MAX_DICTIONARY_SIZE) {
+      dictionaryIds.put(text, dictionary.size());
+      dictionary.add(text);
+    }
+  }
+
+  private String getText(ByteBuffer in) {
+    int header = getVarInt(in);
+    if ((header & 1) != 0) {
+      throw new IllegalArgumentException("The bytes have a dictionary number in place of "
+          + "a text.");
+    }
+    return readUtf8(in, header >>> 1);
+  }
+
+  private String getSharedText(ByteBuffer in) {
+    int header = getVarInt(in);
+    if ((header & 1) != 0) {
+      int id = header >>> 1;
+      if (id >= dictionary.size()) {
+        throw new IllegalArgumentException("The bytes refer to an unknown text.");
+      }
+      return dictionary.get(id);
+    }
+    String text = readUtf8(in, header >>> 1);
+    if (useDictionary) {
+      remember(text);
+    }
+    return text;
+  }
+
+  /** Method to read a text of a number of UTF-8 bytes. The bytes are read straight from
+   * the buffer's array when it has one.
+   *
+   * @param in the buffer as ByteBuffer
+   * @param length number of bytes as int
+   * @return returns the text as String
+   */
+  private String readUtf8(ByteBuffer in, int length) {
+    if (length > in.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    String text;
+    if (in.hasArray()) {
+      text = new String(in.array(), in.arrayOffset() + in.position(), length,
+          StandardCharsets.UTF_8);
+      in.position(in.position() + length);
+    } else {
+      if (scratch.length < length) {
+        scratch = new byte[Math.max(length, scratch.length * 2)];
+      }
+      in.get(scratch, 0, length);
+      text = new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+    return text;
+  }
+}
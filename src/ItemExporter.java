@@ -0,0 +1,408 @@
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Locale;
+
+/** A class writing items to a file or another output, one item at a time, so that a
+ * large register can be written without building all of it in memory first.
+ *
+ * <p>Every field is copied straight into a buffer, without joining the fields into a
+ * String first, and the buffer is written to the output when it is full. Whole numbers
+ * are written without making a String at all. The items can be written as CSV and JSON
+ * lines, in the format read by {@link ItemImporter}, or in the same text as
+ * {@link Item#toString()} and {@link Item#toSmallString()}. A slow output makes the
+ * writer wait, so the items are never read faster than they can be written, and a large
+ * report can be written one page at a time.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class ItemExporter implements Closeable, Flushable {
+
+  private static final int BUFFER_SIZE = 16 * 1024;
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  /** The formats the items can be written in. */
+  public enum Format {
+    CSV, JSON_LINES, TEXT, SMALL_TEXT;
+
+    /** Method to find the format of a file from the file name. Files ending with ".csv"
+     * are CSV, files ending with ".jsonl", ".ndjson" or ".json" are JSON lines, and
+     * every other file is text.
+     *
+     * @param file the file as Path
+     * @return returns the format of the file as Format
+     */
+    public static Format of(Path file) {
+      String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+      if (name.endsWith(".csv")) {
+        return CSV;
+      }
+      if (name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json")) {
+        return JSON_LINES;
+      }
+      return TEXT;
+    }
+  }
+
+  private final Writer out;
+  private final Format format;
+  private final char[] buffer;
+  private final char[] digits;
+  private int bufferEnd;
+  private boolean headerWritten;
+
+  /** Constructor for the class. The items are collected in a buffer, and written to the
+   * writer when the buffer is full or flushed.
+   *
+   * @param out where the items are written as Writer
+   * @param format the format of the items as Format
+   */
+  public ItemExporter(Writer out, Format format) {
+
+    this.out = out;
+    this.format = format;
+    this.buffer = new char[BUFFER_SIZE];
+    this.digits = new char[20];
+  }
+
+  /** Constructor for the class, writing the items as UTF-8.
+   *
+   * @param out where the items are written as OutputStream
+   * @param format the format of the items as Format
+   */
+  public ItemExporter(OutputStream out, Format format) {
+
+    this(new OutputStreamWriter(out, StandardCharsets.UTF_8), format);
+  }
+
+  /** Method to write one item.
+   *
+   * @param item the item to write as Item
+   * @throws IOException if the item can't be written
+   */
+  public void writeItem(Item item) throws IOException {
+    switch (format) {
+      case CSV -> writeCsv(item);
+      case JSON_LINES -> writeJson(item);
+      case TEXT -> writeText(item);
+      case SMALL_TEXT -> writeSmallText(item);
+      default -> throw new IllegalStateException("Unknown format " + format);
+    }
+  }
+
+  /** Method to write every item.
+   *
+   * @param items the items to write as Iterable
+   * @return returns the number of items written as long
+   * @throws IOException if the items can't be written
+   */
+  public long writeItems(Iterable<Item> items) throws IOException {
+    long written = 0;
+    for (Item item : items) {
+      writeItem(item);
+      written++;
+    }
+    writeHeaderIfNothingWritten();
+    return written;
+  }
+
+  /** Method to write one page of items, skipping the items before the page.
+   *
+   * @param items the items to write as Iterable
+   * @param offset number of items to skip as long
+   * @param limit largest number of items to write as int
+   * @return returns the number of items written as int
+   * @throws IOException if the items can't be written
+   */
+  public int writeItems(Iterable<Item> items, long offset, int limit) throws IOException {
+    if (offset < 0 || limit < 0) {
+      throw new IllegalArgumentException("The offset and limit can't be negative numbers.");
+    }
+    Iterator<Item> iterator = items.iterator();
+    for (long skipped = 0; skipped < offset && iterator.hasNext(); skipped++) {
+      iterator.next();
+    }
+    return writeItems(iterator, limit);
+  }
+
+  /** Method to write the next items from an iterator, up to a limit. The rest of the
+   * items are left in the iterator, so that the next page can be written from it later.
+   *
+   * @param items the items to write as Iterator
+   * @param limit largest number of items to write as int
+   * @return returns the number of items written as int
+   * @throws IOException if the items can't be written
+   */
+  public int writeItems(Iterator<Item> items, int limit) throws IOException {
+    if (limit < 0) {
+      throw new IllegalArgumentException("The limit can't be a negative number.");
+    }
+    int written = 0;
+    while (written < limit && items.hasNext()) {
+      writeItem(items.next());
+      written++;
+    }
+    writeHeaderIfNothingWritten();
+    return written;
+  }
+
+  private void writeHeaderIfNothingWritten() throws IOException {
+    if (format == Format.CSV && !headerWritten) {
+      writeCsvHeader();
+    }
+  }
+
+  private void writeCsvHeader() throws IOException {
+    for (int i = 0; i < ItemImporter.COLUMNS.length; i++) {
+      if (i > 0) {
+        write(',');
+      }
+      write(ItemImporter.COLUMNS[i]);
+    }
+    write('\n');
+    headerWritten = true;
+  }
+
+  private void writeCsv(Item item) throws IOException {
+    if (!headerWritten) {
+      writeCsvHeader();
+    }
+    writeCsvText(item.getItemNumber());
+    write(',');
+    writeCsvText(item.getDescription());
+    write(',');
+    writeDouble(item.getPrice());
+    write(',');
+    writeCsvText(item.getBrandName());
+    write(',');
+    writeDouble(item.getWeight());
+    write(',');
+    writeDouble(item.getLength());
+    write(',');
+    writeDouble(item.getHeight());
+    write(',');
+    writeCsvText(item.getColor());
+    write(',');
+    writeLong(item.getNumberOfItems());
+    write(',');
+    writeLong(item.getItemCategoryNumber());
+    write('\n');
+  }
+
+  private void writeCsvText(String text) throws IOException {
+    boolean quote = false;
+    for (int i = 0; i < text.length() && !quote; i++) {
+      char c = text.charAt(i);
+      quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+    if (!quote) {
+      write(text);
+      return;
+    }
+    write('"');
+    int start = 0;
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) == '"') {
+        write(text, start, i + 1 - start);
+        write('"');
+        start = i + 1;
+      }
+    }
+    write(text, start, text.length() - start);
+    write('"');
+  }
+
+  private void writeJson(Item item) throws IOException {
+    write("{\"itemNumber\": ");
+    writeJsonText(item.getItemNumber());
+    write(", \"description\": ");
+    writeJsonText(item.getDescription());
+    write(", \"price\": ");
+    writeDouble(item.getPrice());
+    write(", \"brandName\": ");
+    writeJsonText(item.getBrandName());
+    write(", \"weight\": ");
+    writeDouble(item.getWeight());
+    write(", \"length\": ");
+    writeDouble(item.getLength());
+    write(", \"height\": ");
+    writeDouble(item.getHeight());
+    write(", \"color\": ");
+    writeJsonText(item.getColor());
+    write(", \"numberOfItems\": ");
+    writeLong(item.getNumberOfItems());
+    write(", \"category\": ");
+    writeLong(item.getItemCategoryNumber());
+    write("}\n");
+  }
+
+  private void writeJsonText(String text) throws IOException {
+    write('"');
+    int start = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '"' || c == '\\' || c < ' ') {
+        write(text, start, i - start);
+        write('\\');
+        switch (c) {
+          case '"', '\\' -> write(c);
+          case '\n' -> write('n');
+          case '\r' -> write('r');
+          case '\t' -> write('t');
+          default -> {
+            write("u00");
+            write(HEX_DIGITS[c >> 4]);
+            write(HEX_DIGITS[c & 0xF]);
+          }
+        }
+        start = i + 1;
+      }
+    }
+    write(text, start, text.length() - start);
+    write('"');
+  }
+
+  private void writeText(Item item) throws IOException {
+    write("\nItem number: ");
+    write(item.getItemNumber());
+    write(", Brand name: ");
+    write(item.getBrandName());
+    write(", Category: ");
+    write(item.getItemCategory().name());
+    write(", Price: ");
+    writeDouble(item.getPrice());
+    write(" kr, Description: ");
+    write(item.getDescription());
+    write(", Color: ");
+    write(item.getColor());
+    write(", \nWeight: ");
+    writeDouble(item.getWeight());
+    write(", Length: ");
+    writeDouble(item.getLength());
+    write(", Height: ");
+    writeDouble(item.getHeight());
+    write(", Number of items: ");
+    writeLong(item.getNumberOfItems());
+    write('\n');
+  }
+
+  private void writeSmallText(Item item) throws IOException {
+    write("\nItem number: ");
+    write(item.getItemNumber());
+    write(", Brand name: ");
+    write(item.getBrandName());
+    write(", Category: ");
+    write(item.getItemCategory().name());
+    write(" (");
+    writeDouble(item.getPrice());
+    write(" kr), Description: ");
+    write(item.getDescription());
+    write(", Number of items: ");
+    writeLong(item.getNumberOfItems());
+    write('\n');
+  }
+
+  /** Method to write a decimal number the same way as Double.toString. A number without
+   * decimals is written without making a String.
+   *
+   * @param number the number as double
+   * @throws IOException if the number can't be written
+   */
+  private void writeDouble(double number) throws IOException {
+    long whole = (long) number;
+    if (whole == number && Math.abs(whole) < 10_000_000 && !isNegativeZero(number)) {
+      writeLong(whole);
+      write(".0");
+    } else {
+      write(Double.toString(number));
+    }
+  }
+
+  private static boolean isNegativeZero(double number) {
+    return number == 0 && Double.doubleToRawLongBits(number) != 0;
+  }
+
+  private void writeLong(long number) throws IOException {
+    if (number == Long.MIN_VALUE) {
+      write(Long.toString(number));
+      return;
+    }
+    long rest = Math.abs(number);
+    int start = digits.length;
+    do {
+      digits[--start] = (char) ('0' + rest % 10);
+      rest /= 10;
+    } while (rest > 0);
+    if (number < 0) {
+      digits[--start] = '-';
+    }
+    write(digits, start, digits.length - start);
+  }
+
+  private void write(char c) throws IOException {
+    if (bufferEnd == buffer.length) {
+      writeBuffer();
+    }
+    buffer[bufferEnd++] = c;
+  }
+
+  private void write(String text) throws IOException {
+    write(text, 0, text.length());
+  }
+
+  private void write(String text, int start, int length) throws IOException {
+    while (length > 0) {
+      if (bufferEnd == buffer.length) {
+        writeBuffer();
+      }
+      int chunk = Math.min(length, buffer.length - bufferEnd);
+      text.getChars(start, start + chunk, buffer, bufferEnd);
+      bufferEnd += chunk;
+      start += chunk;
+      length -= chunk;
+    }
+  }
+
+  private void write(char[] chars, int start, int length) throws IOException {
+    if (length > buffer.length - bufferEnd) {
+      writeBuffer();
+    }
+    System.arraycopy(chars, start, buffer, bufferEnd, length);
+    bufferEnd += length;
+  }
+
+  private void writeBuffer() throws IOException {
+    out.write(buffer, 0, bufferEnd);
+    bufferEnd = 0;
+  }
+
+  /** Method to write everything still in the buffer to the output.
+   *
+   * @throws IOException if the buffer can't be written
+   */
+  @Override
+  public void flush() throws IOException {
+    writeBuffer();
+    out.flush();
+  }
+
+  /** Method to write everything still in the buffer, and close the output.
+   *
+   * @throws IOException if the buffer can't be written
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      writeBuffer();
+    } finally {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,86 @@
+import java.util.Random;
+
+/** A class making synthetic items for testing and measuring the register. The same seed
+ * always makes the same items, so runs can be compared.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class ItemGenerator {
+
+  static final String[] WORDS = {"big", "small", "heavy", "light", "tall", "short", "new",
+      "old", "white", "oak", "pine", "glass", "double", "single", "sliding", "outdoor",
+      "indoor", "matte", "glossy", "treated"};
+  private static final String[] BRANDS = {"Andersen AS", "Lumber AS", "Petersen Lumber",
+      "Ina Window-shop", "Nordic Doors", "Fjord Flooring", "Bergen Bygg", "Trondheim Tre",
+      "Oslo Vinduer", "Viking Laminate"};
+  private static final String[] COLORS = {"white", "black", "green", "brown", "grey", "red",
+      "blue", "oak", "pine", "walnut", "beige", "yellow"};
+
+  private final Random random;
+
+  public ItemGenerator(long seed) {
+
+    random = new Random(seed);
+  }
+
+  /** Method to make the item number of the item with an index.
+   *
+   * @param index index of the item as int
+   * @return returns the item number as String
+   */
+  public static String itemNumber(int index) {
+    return "SKU" + Integer.toString(index, 36).toUpperCase();
+  }
+
+  /** Method to make a random word used in the descriptions.
+   *
+   * @return returns a word as String
+   */
+  public String word() {
+    return WORDS[random.nextInt(WORDS.length)];
+  }
+
+  /** Method to make the item with an index.
+   *
+   * @param index index of the item as int
+   * @return returns the item as Item
+   */
+  public Item item(int index) {
+    String description = word() + " and " + word() + " " + word();
+    double price = 10 + random.nextInt(499_000) / 100.0;
+    return new Item(itemNumber(index), description, price,
+        BRANDS[random.nextInt(BRANDS.length)], 0.1 + random.nextDouble() * 50,
+        0.1 + random.nextDouble() * 5, 0.1 + random.nextDouble() * 3,
+        COLORS[random.nextInt(COLORS.length)], random.nextInt(1000), 1 + random.nextInt(4));
+  }
+
+  /** Method to register a number of items, with the indexes from 0.
+   *
+   * @param itemRegister the register to fill as ItemRegister
+   * @param numberOfItems number of items to register as int
+   */
+  public void fill(ItemRegister itemRegister, int numberOfItems) {
+    for (int i = 0; i < numberOfItems; i++) {
+      Item item = item(i);
+      itemRegister.newItem(item.getItemNumber(), item.getDescription(), item.getPrice(),
+          item.getBrandName(), item.getWeight(), item.getLength(), item.getHeight(),
+          item.getColor(), item.getNumberOfItems(), item.getItemCategoryNumber());
+    }
+  }
+
+  /** Method to register a number of items in a memory-mapped register, with the indexes
+   * from 0.
+   *
+   * @param itemRegister the register to fill as MappedItemRegister
+   * @param numberOfItems number of items to register as int
+   */
+  public void fill(MappedItemRegister itemRegister, int numberOfItems) {
+    for (int i = 0; i < numberOfItems; i++) {
+      Item item = item(i);
+      itemRegister.newItem(item.getItemNumber(), item.getDescription(), item.getPrice(),
+          item.getBrandName(), item.getWeight(), item.getLength(), item.getHeight(),
+          item.getColor(), item.getNumberOfItems(), item.getItemCategoryNumber());
+    }
+  }
+}
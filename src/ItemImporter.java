@@ -0,0 +1,431 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+/** A class importing many items into a register from a CSV or JSON lines file.
+ *
+ * <p>The file is read a batch of lines at a time, so it is never loaded into memory as a
+ * whole. The lines of a batch are parsed and checked in parallel, while the batch before
+ * it is registered. Rows that can't be made into an item, or that have an item number
+ * already in use, are left out and reported in an {@link ImportReport}.
+ *
+ * <p>A CSV file has one item on each line, with the fields in the order of
+ * {@link #COLUMNS}. Fields containing a comma, a quote or a line break are written in
+ * quotes, with a quote in the field written twice. A quoted field can go on for at most
+ * {@value #MAX_LINES_PER_ROW} lines; if its quote is not closed by then, the first line
+ * is rejected and the lines after it are read as rows of their own, so one stray quote
+ * can't swallow the rest of the file. A first line starting with {@code itemNumber} is
+ * skipped. A JSON lines file has one JSON object on each line, with the names in
+ * {@link #COLUMNS} as keys.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class ItemImporter {
+
+  /** The fields of an item, in the order of the columns of a CSV file. */
+  static final String[] COLUMNS = {"itemNumber", "description", "price", "brandName",
+      "weight", "length", "height", "color", "numberOfItems", "category"};
+
+  private static final int BATCH_SIZE = 10_000;
+  private static final int MAX_LINES_PER_ROW = 64;
+
+  /** The formats of the files that can be imported. */
+  public enum Format {
+    CSV, JSON_LINES;
+
+    /** Method to find the format of a file from the file name. Files ending with
+     * ".jsonl", ".ndjson" or ".json" are JSON lines, and every other file is CSV.
+     *
+     * @param file the file as Path
+     * @return returns the format of the file as Format
+     */
+    public static Format of(Path file) {
+      String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+      if (name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json")) {
+        return JSON_LINES;
+      }
+      return CSV;
+    }
+  }
+
+  private final ItemRegister itemRegister;
+
+  public ItemImporter(ItemRegister itemRegister) {
+
+    this.itemRegister = itemRegister;
+  }
+
+  /** Method to import every item in a file. The format is found from the file name.
+   *
+   * @param file the file to import as Path
+   * @return returns what was imported and what was left out as ImportReport
+   * @throws IOException if the file can't be read
+   */
+  public ImportReport importFile(Path file) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      return importItems(reader, Format.of(file));
+    }
+  }
+
+  /** Method to import every item read from a reader. The reader is not closed.
+   *
+   * @param reader where the lines are read from as Reader
+   * @param format the format of the lines as Format
+   * @return returns what was imported and what was left out as ImportReport
+   * @throws IOException if the lines can't be read
+   */
+  public ImportReport importItems(Reader reader, Format format) throws IOException {
+    BufferedReader lines = reader instanceof BufferedReader buffered
+        ? buffered : new BufferedReader(reader);
+    ImportReport report = new ImportReport();
+    CompletableFuture<Batch> parsing = null;
+    ArrayDeque<String> readAgain = new ArrayDeque<>();
+    long lineNumber = 0;
+
+    while (true) {
+      Batch batch = new Batch();
+      String line;
+      while (batch.size() < BATCH_SIZE && (line = nextLine(lines, readAgain)) != null) {
+        lineNumber++;
+        long firstLineNumber = lineNumber;
+        if (format == Format.CSV && hasOpenQuote(line)) {
+          ArrayList<String> rowLines = new ArrayList<>();
+          rowLines.add(line);
+          boolean quoted = true;
+          String nextLine;
+          while (quoted && rowLines.size() < MAX_LINES_PER_ROW
+              && (nextLine = nextLine(lines, readAgain)) != null) {
+            rowLines.add(nextLine);
+            quoted = quoted != hasOpenQuote(nextLine);
+          }
+          if (quoted) {
+            // Only the first line is rejected, the others are read again as rows.
+            for (int i = rowLines.size() - 1; i > 0; i--) {
+              readAgain.push(rowLines.get(i));
+            }
+          } else {
+            line = String.join("\n", rowLines);
+            lineNumber += rowLines.size() - 1;
+          }
+        }
+        boolean header = firstLineNumber == 1 && format == Format.CSV
+            && line.regionMatches(true, 0, COLUMNS[0], 0, COLUMNS[0].length());
+        if (!header && !line.isBlank()) {
+          batch.add(firstLineNumber, line);
+        }
+      }
+      if (batch.size() == 0) {
+        break;
+      }
+      CompletableFuture<Batch> next = CompletableFuture.supplyAsync(() -> batch.parse(format));
+      if (parsing != null) {
+        register(parsing.join(), report);
+      }
+      parsing = next;
+    }
+    if (parsing != null) {
+      register(parsing.join(), report);
+    }
+    return report;
+  }
+
+  private void register(Batch batch, ImportReport report) {
+    ArrayList<Item> items = new ArrayList<>(batch.size());
+    for (int i = 0; i < batch.size(); i++) {
+      if (batch.items[i] != null) {
+        items.add(batch.items[i]);
+      }
+    }
+    ArrayList<Item> rejected = itemRegister.addItems(items);
+    IdentityHashMap<Item, Boolean> inUse = new IdentityHashMap<>();
+    for (Item item : rejected) {
+      inUse.put(item, Boolean.TRUE);
+    }
+
+    for (int i = 0; i < batch.size(); i++) {
+      Item item = batch.items[i];
+      if (item == null) {
+        report.rowRejected(batch.lineNumbers[i], batch.errors[i]);
+      } else if (inUse.containsKey(item)) {
+        report.rowRejected(batch.lineNumbers[i],
+            "The item number " + item.getItemNumber() + " is already in use.");
+      } else {
+        report.itemImported();
+      }
+    }
+  }
+
+  /** Method to make an item from the fields of a row. The checks of the item constructor
+   * are used, so an imported item is checked the same way as an item typed in.
+   *
+   * @param fields the fields of the row by name as Map
+   * @return returns the item as Item
+   */
+  static Item toItem(Map<String, String> fields) {
+    return new Item(field(fields, "itemNumber").trim(), field(fields, "description"),
+        number(fields, "price"), field(fields, "brandName"), number(fields, "weight"),
+        number(fields, "length"), number(fields, "height"), field(fields, "color"),
+        wholeNumber(fields, "numberOfItems"), wholeNumber(fields, "category"));
+  }
+
+  private static String field(Map<String, String> fields, String name) {
+    String value = fields.get(name);
+    if (value == null) {
+      throw new IllegalArgumentException("The field " + name + " is missing.");
+    }
+    return value;
+  }
+
+  private static double number(Map<String, String> fields, String name) {
+    String value = field(fields, name).trim();
+    try {
+      double number = Double.parseDouble(value);
+      if (Double.isNaN(number) || Double.isInfinite(number)) {
+        throw new NumberFormatException();
+      }
+      return number;
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("The field " + name + " must be a number, not \""
+          + value + "\".");
+    }
+  }
+
+  private static int wholeNumber(Map<String, String> fields, String name) {
+    String value = field(fields, name).trim();
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("The field " + name + " must be a whole number, "
+          + "not \"" + value + "\".");
+    }
+  }
+
+  private static String nextLine(BufferedReader lines, ArrayDeque<String> readAgain)
+      throws IOException {
+    return readAgain.isEmpty() ? lines.readLine() : readAgain.pop();
+  }
+
+  private static boolean hasOpenQuote(String line) {
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      if (line.charAt(i) == '"') {
+        quoted = !quoted;
+      }
+    }
+    return quoted;
+  }
+
+  /** Method to split a CSV line into its fields.
+   *
+   * @param line the line as String
+   * @return returns the fields by name as Map
+   */
+  static Map<String, String> parseCsv(String line) {
+    HashMap<String, String> fields = new HashMap<>();
+    StringBuilder field = new StringBuilder();
+    int column = 0;
+    boolean quoted = false;
+
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c != '"') {
+          field.append(c);
+        } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        addColumn(fields, column++, field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    if (quoted) {
+      throw new IllegalArgumentException("A quote is not closed.");
+    }
+    addColumn(fields, column++, field.toString());
+    if (column != COLUMNS.length) {
+      throw new IllegalArgumentException("The line has " + column + " fields, but an item "
+          + "has " + COLUMNS.length + ".");
+    }
+    return fields;
+  }
+
+  private static void addColumn(HashMap<String, String> fields, int column, String value) {
+    if (column < COLUMNS.length) {
+      fields.put(COLUMNS[column], value);
+    }
+  }
+
+  /** Method to read a JSON object on one line into its fields. Strings, numbers, true,
+   * false and null are read, and null is left out. Nested objects and arrays are not
+   * part of an item, and are not accepted.
+   *
+   * @param line the line as String
+   * @return returns the fields by name as Map
+   */
+  static Map<String, String> parseJson(String line) {
+    JsonReader json = new JsonReader(line);
+    HashMap<String, String> fields = new HashMap<>();
+    json.expect('{');
+    if (!json.skipIf('}')) {
+      do {
+        String name = json.readString();
+        json.expect(':');
+        String value = json.readValue();
+        if (value != null) {
+          fields.put(name, value);
+        }
+      } while (json.skipIf(','));
+      json.expect('}');
+    }
+    json.expectEnd();
+    return fields;
+  }
+
+  /** A batch of lines, and the items or errors they are parsed into. */
+  private static final class Batch {
+    private final long[] lineNumbers = new long[BATCH_SIZE];
+    private final String[] lines = new String[BATCH_SIZE];
+    private final Item[] items = new Item[BATCH_SIZE];
+    private final String[] errors = new String[BATCH_SIZE];
+    private int size;
+
+    private void add(long lineNumber, String line) {
+      lineNumbers[size] = lineNumber;
+      lines[size] = line;
+      size++;
+    }
+
+    private int size() {
+      return size;
+    }
+
+    private Batch parse(Format format) {
+      IntStream.range(0, size).parallel().forEach(i -> {
+        try {
+          items[i] = toItem(format == Format.CSV ? parseCsv(lines[i]) : parseJson(lines[i]));
+        } catch (IllegalArgumentException e) {
+          errors[i] = e.getMessage();
+        }
+        lines[i] = null;
+      });
+      return this;
+    }
+  }
+
+  /** A reader of the small part of JSON used for one item on a line. */
+  private static final class JsonReader {
+    private final String text;
+    private int position;
+
+    private JsonReader(String text) {
+      this.text = text;
+    }
+
+    private void skipWhitespace() {
+      while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+        position++;
+      }
+    }
+
+    private boolean skipIf(char c) {
+      skipWhitespace();
+      if (position < text.length() && text.charAt(position) == c) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    private void expect(char c) {
+      if (!skipIf(c)) {
+        throw new IllegalArgumentException("The line is not a JSON object, expected '" + c
+            + "' at position " + (position + 1) + ".");
+      }
+    }
+
+    private void expectEnd() {
+      skipWhitespace();
+      if (position < text.length()) {
+        throw new IllegalArgumentException("The line has more text after the JSON object.");
+      }
+    }
+
+    private String readValue() {
+      skipWhitespace();
+      if (position < text.length() && text.charAt(position) == '"') {
+        return readString();
+      }
+      int start = position;
+      while (position < text.length() && ",}".indexOf(text.charAt(position)) < 0
+          && !Character.isWhitespace(text.charAt(position))) {
+        position++;
+      }
+      String value = text.substring(start, position);
+      if (value.equals("null")) {
+        return null;
+      }
+      if (value.isEmpty() || value.startsWith("{") || value.startsWith("[")) {
+        throw new IllegalArgumentException("The line has a value that is not a string or a "
+            + "number at position " + (start + 1) + ".");
+      }
+      return value;
+    }
+
+    private String readString() {
+      expect('"');
+      StringBuilder value = new StringBuilder();
+      while (position < text.length()) {
+        char c = text.charAt(position++);
+        if (c == '"') {
+          return value.toString();
+        }
+        if (c != '\\') {
+          value.append(c);
+        } else if (position < text.length()) {
+          char escaped = text.charAt(position++);
+          switch (escaped) {
+            case 'b' -> value.append('\b');
+            case 'f' -> value.append('\f');
+            case 'n' -> value.append('\n');
+            case 'r' -> value.append('\r');
+            case 't' -> value.append('\t');
+            case 'u' -> {
+              if (position + 4 > text.length()) {
+                throw new IllegalArgumentException("The line has a broken \\u escape.");
+              }
+              try {
+                value.append((char) Integer.parseInt(text.substring(position, position + 4),
+                    16));
+              } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("The line has a broken \\u escape.");
+              }
+              position += 4;
+            }
+            default -> value.append(escaped);
+          }
+        }
+      }
+      throw new IllegalArgumentException("A string in the line is not closed.");
+    }
+  }
+}
@@ -0,0 +1,511 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/** A class writing every change to the register to a log on disk, before the change is
+ * reported as done, so that the register can be restored after a restart.
+ *
+ * <p>Every change gets the next sequence number and is first added to a buffer in
+ * memory. A thread waiting for its change to reach the disk writes and syncs the whole
+ * buffer for every thread waiting at that moment (group commit), so many changes share
+ * one sync. The log is split into segment files named by the sequence number of their
+ * first change, and the segments older than the newest snapshot are deleted.
+ *
+ * <p>Every record on disk is its length, a type, the sequence number, the changed values
+ * and a checksum. A record that was only partly written when the program stopped is
+ * found by its length or checksum and ignored.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class ItemLog implements Closeable {
+
+  static final byte NEW_ITEM = 1;
+  static final byte NUMBER_OF_ITEMS = 2;
+  static final byte PRICE = 3;
+  static final byte DESCRIPTION = 4;
+  static final byte DELETE_ITEM = 5;
+  static final byte STOCK_MOVEMENT = 6;
+  static final byte PUT_ITEM = 7;
+
+  private static final String SEGMENT_PREFIX = "items-";
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final int MAX_TEXT_BYTES = 65535;
+
+  private final Path directory;
+  private FileChannel segment;
+  private ByteArrayOutputStream pending;
+  private long lastSequence;
+  private long durableSequence;
+  private long segmentSize;
+  private boolean flushing;
+  private boolean segmentDamaged;
+
+  /** Constructor for the class, starting a new segment after the last change that was
+   * restored.
+   *
+   * @param directory the directory of the log as Path
+   * @param lastSequence the sequence number of the last restored change as long
+   * @throws IOException if the segment can't be made
+   */
+  public ItemLog(Path directory, long lastSequence) throws IOException {
+    this.directory = directory;
+    this.lastSequence = lastSequence;
+    this.durableSequence = lastSequence;
+    this.pending = new ByteArrayOutputStream();
+    this.segment = openSegment(lastSequence + 1);
+  }
+
+  private FileChannel openSegment(long firstSequence) throws IOException {
+    return FileChannel.open(directory.resolve(segmentName(firstSequence)),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  private static String segmentName(long firstSequence) {
+    return SEGMENT_PREFIX + String.format("%020d", firstSequence) + SEGMENT_SUFFIX;
+  }
+
+  /** Method to find the first sequence number of a segment from its file name.
+   *
+   * @param segment the segment file as Path
+   * @return returns the sequence number of the first change in the segment as long
+   */
+  static long firstSequenceOf(Path segment) {
+    String name = segment.getFileName().toString();
+    return Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+        name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  /** Method to find all segments in a directory, oldest first.
+   *
+   * @param directory the directory of the log as Path
+   * @return returns the segment files
+   * @throws IOException if the directory can't be read
+   */
+  static ArrayList<Path> segments(Path directory) throws IOException {
+    ArrayList<Path> segments = new ArrayList<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      files.filter(file -> {
+        String name = file.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+      }).sorted().forEach(segments::add);
+    }
+    return segments;
+  }
+
+  /** Method to check that an item can be logged, before the register is changed. Texts
+   * are logged in modified UTF-8, which can't be longer than 65535 bytes.
+   *
+   * @param item the new or changed item as Item
+   */
+  static void checkItem(Item item) {
+    checkText(item.getItemNumber(), "item number");
+    checkText(item.getDescription(), "description");
+    checkText(item.getBrandName(), "brand name");
+    checkText(item.getColor(), "color");
+  }
+
+  private static void checkText(String text, String name) {
+    int bytes = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      bytes += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+    }
+    if (bytes > MAX_TEXT_BYTES) {
+      throw new IllegalArgumentException("The " + name + " is too long to be saved.");
+    }
+  }
+
+  /** Method to log a new item.
+   *
+   * @param item the new item as Item
+   * @return returns the sequence number of the change as long
+   */
+  public long logNewItem(Item item) {
+    return append(NEW_ITEM, out -> writeItem(out, item));
+  }
+
+  /** Method to log a change to an item. Every value that was changed is logged.
+   *
+   * @param oldItem the item before the change as Item
+   * @param newItem the item after the change as Item
+   * @return returns the sequence number of the last logged change as long
+   */
+  public long logChange(Item oldItem, Item newItem) {
+    long sequence = 0;
+    if (oldItem.getNumberOfItems() != newItem.getNumberOfItems()) {
+      sequence = append(NUMBER_OF_ITEMS, out -> {
+        out.writeUTF(newItem.getItemNumber());
+        out.writeInt(newItem.getNumberOfItems());
+      });
+    }
+    if (Double.compare(oldItem.getPrice(), newItem.getPrice()) != 0) {
+      sequence = append(PRICE, out -> {
+        out.writeUTF(newItem.getItemNumber());
+        out.writeDouble(newItem.getPrice());
+      });
+    }
+    if (!oldItem.getDescription().equals(newItem.getDescription())) {
+      sequence = append(DESCRIPTION, out -> {
+        out.writeUTF(newItem.getItemNumber());
+        out.writeUTF(newItem.getDescription());
+      });
+    }
+    return sequence;
+  }
+
+  /** Method to log an item put in place of the item with the same item number, if any,
+   * as one change holding every value of the item.
+   *
+   * @param item the item put in place as Item
+   * @return returns the sequence number of the change as long
+   */
+  public long logPutItem(Item item) {
+    return append(PUT_ITEM, out -> writeItem(out, item));
+  }
+
+  /** Method to log the new number of items of several items as one change, so that
+   * either all of them or none of them are restored.
+   *
+   * @param newItems the items after the change as a List
+   * @return returns the sequence number of the change as long
+   */
+  public long logStockMovement(List<Item> newItems) {
+    return append(STOCK_MOVEMENT, out -> {
+      out.writeInt(newItems.size());
+      for (Item item : newItems) {
+        out.writeUTF(item.getItemNumber());
+        out.writeInt(item.getNumberOfItems());
+      }
+    });
+  }
+
+  /** Method to log a deleted item.
+   *
+   * @param itemNumber item number of the deleted item as String
+   * @return returns the sequence number of the change as long
+   */
+  public long logDeleteItem(String itemNumber) {
+    return append(DELETE_ITEM, out -> out.writeUTF(itemNumber));
+  }
+
+  private interface RecordWriter {
+    void write(DataOutput out) throws IOException;
+  }
+
+  private synchronized long append(byte type, RecordWriter values) {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(body);
+    long sequence = lastSequence + 1;
+    try {
+      out.writeByte(type);
+      out.writeLong(sequence);
+      values.write(out);
+
+      CRC32 checksum = new CRC32();
+      checksum.update(body.toByteArray());
+      DataOutputStream frame = new DataOutputStream(pending);
+      frame.writeInt(body.size());
+      body.writeTo(frame);
+      frame.writeInt((int) checksum.getValue());
+    } catch (IOException e) {
+      throw new IllegalStateException("Couldn't write to a buffer in memory.", e);
+    }
+    lastSequence = sequence;
+    return sequence;
+  }
+
+  /** Method to wait until a change is written and synced to the disk. If no other thread
+   * is writing, this thread writes every change in the buffer, otherwise it waits for
+   * the writing thread, which might write its change as well.
+   *
+   * @param sequence the sequence number of the change as long
+   * @throws IOException if the log can't be written
+   */
+  public void awaitDurable(long sequence) throws IOException {
+    ByteArrayOutputStream toWrite;
+    long writtenSequence;
+    long goodSize;
+    synchronized (this) {
+      while (flushing && durableSequence < sequence) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while waiting for the log.", e);
+        }
+      }
+      if (durableSequence >= sequence) {
+        return;
+      }
+      flushing = true;
+      toWrite = pending;
+      pending = new ByteArrayOutputStream();
+      writtenSequence = lastSequence;
+      goodSize = segmentSize;
+    }
+
+    boolean written = false;
+    try {
+      write(toWrite, goodSize);
+      written = true;
+    } finally {
+      synchronized (this) {
+        flushing = false;
+        if (written) {
+          durableSequence = writtenSequence;
+          segmentSize += toWrite.size();
+        } else {
+          toWrite.writeBytes(pending.toByteArray());
+          pending = toWrite;
+        }
+        notifyAll();
+      }
+    }
+  }
+
+  /** Method to write records at the end of the current segment and sync them. If an
+   * earlier write failed part of the way, the segment is first cut back to its last good
+   * size, since the records of that write are written again and would otherwise be in
+   * the segment twice, and the replay would stop at them.
+   *
+   * @param records the records to write as ByteArrayOutputStream
+   * @param goodSize the size of the segment with every record written so far as long
+   * @throws IOException if the segment can't be written
+   */
+  private void write(ByteArrayOutputStream records, long goodSize) throws IOException {
+    if (segmentDamaged) {
+      segment.truncate(goodSize);
+      segment.position(goodSize);
+    }
+    segmentDamaged = true;
+    ByteBuffer buffer = ByteBuffer.wrap(records.toByteArray());
+    while (buffer.hasRemaining()) {
+      segment.write(buffer);
+    }
+    segment.force(false);
+    segmentDamaged = false;
+  }
+
+  /** Method to close the current segment and start a new one. Every change up to now is
+   * written to the old segment first. Changes can be logged while the old segment is
+   * written, and go to the new segment.
+   *
+   * @return returns the sequence number of the last change in the old segment as long
+   * @throws IOException if the log can't be written
+   */
+  public long rotate() throws IOException {
+    ByteArrayOutputStream toWrite;
+    long writtenSequence;
+    long goodSize;
+    synchronized (this) {
+      while (flushing) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while waiting for the log.", e);
+        }
+      }
+      flushing = true;
+      toWrite = pending;
+      pending = new ByteArrayOutputStream();
+      writtenSequence = lastSequence;
+      goodSize = segmentSize;
+    }
+
+    boolean written = false;
+    FileChannel next = null;
+    FileChannel old = null;
+    try {
+      write(toWrite, goodSize);
+      written = true;
+      next = openSegment(writtenSequence + 1);
+    } finally {
+      synchronized (this) {
+        flushing = false;
+        if (written) {
+          durableSequence = writtenSequence;
+          segmentSize += toWrite.size();
+        } else {
+          toWrite.writeBytes(pending.toByteArray());
+          pending = toWrite;
+        }
+        if (next != null) {
+          old = segment;
+          segment = next;
+          segmentSize = 0;
+        }
+        notifyAll();
+      }
+    }
+    old.close();
+    return writtenSequence;
+  }
+
+  /** Method to find the sequence number of the last change logged, which may not be
+   * written yet.
+   *
+   * @return returns the sequence number of the last change as long
+   */
+  public synchronized long getLastSequence() {
+    return lastSequence;
+  }
+
+  /** Method to find the number of bytes written to the current segment.
+   *
+   * @return returns the size of the current segment as long
+   */
+  public synchronized long getSegmentSize() {
+    return segmentSize;
+  }
+
+  @Override
+  public void close() throws IOException {
+    long sequence;
+    synchronized (this) {
+      sequence = lastSequence;
+    }
+    awaitDurable(sequence);
+    synchronized (this) {
+      segment.close();
+    }
+  }
+
+  /** Method to apply the changes in a segment to a register. Changes up to and
+   * including afterSequence are skipped. A record at the end of the segment that was
+   * only partly written is cut off.
+   *
+   * @param segment the segment file as Path
+   * @param afterSequence the last sequence number already in the register as long
+   * @param register the register to change as ItemRegister
+   * @return returns the sequence number of the last change in the register as long
+   * @throws IOException if the segment can't be read or changes are missing
+   */
+  static long replay(Path segment, long afterSequence, ItemRegister register)
+      throws IOException {
+    long lastSequence = afterSequence;
+    long validLength = 0;
+    long segmentLength = Files.size(segment);
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(segment)))) {
+      while (true) {
+        byte[] body;
+        try {
+          int length = in.readInt();
+          if (length < 0 || length > segmentLength - validLength - 2 * Integer.BYTES) {
+            break;
+          }
+          body = new byte[length];
+          in.readFully(body);
+          CRC32 checksum = new CRC32();
+          checksum.update(body);
+          if (in.readInt() != (int) checksum.getValue()) {
+            break;
+          }
+        } catch (EOFException e) {
+          break;
+        }
+        DataInputStream record = new DataInputStream(new ByteArrayInputStream(body));
+        byte type = record.readByte();
+        long sequence = record.readLong();
+        if (sequence > lastSequence) {
+          if (sequence != lastSequence + 1) {
+            throw new IOException("The log is missing changes before " + sequence + ".");
+          }
+          apply(type, record, register);
+          lastSequence = sequence;
+        }
+        validLength += Integer.BYTES + body.length + Integer.BYTES;
+      }
+    }
+    if (validLength < segmentLength) {
+      try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+        channel.truncate(validLength);
+      }
+    }
+    return lastSequence;
+  }
+
+  private static void apply(byte type, DataInput in, ItemRegister register)
+      throws IOException {
+    switch (type) {
+      case NEW_ITEM -> register.addItem(readItem(in));
+      case NUMBER_OF_ITEMS -> {
+        String itemNumber = in.readUTF();
+        int numberOfItems = in.readInt();
+        int difference = numberOfItems
+            - register.getItemWithItemNumber(itemNumber).getNumberOfItems();
+        if (difference >= 0) {
+          register.increaseAmountOfOneItem(itemNumber, difference);
+        } else {
+          register.decreaseAmountOfOneItem(itemNumber, -difference);
+        }
+      }
+      case PRICE -> register.changePriceItem(in.readUTF(), in.readDouble());
+      case DESCRIPTION -> register.changeDescriptionItem(in.readUTF(), in.readUTF());
+      case DELETE_ITEM -> register.deleteItem(in.readUTF());
+      case PUT_ITEM -> register.putItem(readItem(in));
+      case STOCK_MOVEMENT -> {
+        int numberOfMovements = in.readInt();
+        ArrayList<StockMovement> movements = new ArrayList<>(numberOfMovements);
+        for (int i = 0; i < numberOfMovements; i++) {
+          String itemNumber = in.readUTF();
+          int numberOfItems = in.readInt();
+          movements.add(new StockMovement(itemNumber, numberOfItems
+              - register.getItemWithItemNumber(itemNumber).getNumberOfItems()));
+        }
+        register.moveStock(movements);
+      }
+      default -> throw new IOException("Unknown change type " + type + " in the log.");
+    }
+  }
+
+  /** Method to write every value of an item.
+   *
+   * @param out the output to write to as DataOutput
+   * @param item the item to write as Item
+   * @throws IOException if the output can't be written
+   */
+  static void writeItem(DataOutput out, Item item) throws IOException {
+    out.writeUTF(item.getItemNumber());
+    out.writeUTF(item.getDescription());
+    out.writeDouble(item.getPrice());
+    out.writeUTF(item.getBrandName());
+    out.writeDouble(item.getWeight());
+    out.writeDouble(item.getLength());
+    out.writeDouble(item.getHeight());
+    out.writeUTF(item.getColor());
+    out.writeInt(item.getNumberOfItems());
+    out.writeByte(item.getItemCategoryNumber());
+  }
+
+  /** Method to read an item written by writeItem.
+   *
+   * @param in the input to read from as DataInput
+   * @return returns the item as Item
+   * @throws IOException if the input can't be read
+   */
+  static Item readItem(DataInput in) throws IOException {
+    return new Item(in.readUTF(), in.readUTF(), in.readDouble(), in.readUTF(),
+        in.readDouble(), in.readDouble(), in.readDouble(), in.readUTF(), in.readInt(),
+        in.readByte());
+  }
+}
@@ -0,0 +1,187 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/** A class keeping the items in the register sorted by price, so that all items within
+ * a price-range can be found without looking at the items outside of it. Items can be
+ * added, removed and found by several threads at once.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class ItemPriceIndex {
+
+  private final ConcurrentSkipListMap<PriceKey, Item> itemsByPrice;
+
+  public ItemPriceIndex() {
+
+    itemsByPrice = new ConcurrentSkipListMap<>();
+  }
+
+  /** Method to add a new item to the index.
+   *
+   * @param item the registered item as Item
+   */
+  public void addItem(Item item) {
+    itemsByPrice.put(new PriceKey(item.getPrice(), item.getItemNumber()), item);
+  }
+
+  /** Method to remove a deleted item from the index.
+   *
+   * @param item the registered item as Item
+   */
+  public void removeItem(Item item) {
+    itemsByPrice.remove(new PriceKey(item.getPrice(), item.getItemNumber()));
+  }
+
+  /** Method to update the index after an item is changed. The old item is found with
+   * its old price, and the new item is placed by its new price.
+   *
+   * @param oldItem the item before the change as Item
+   * @param newItem the item after the change as Item
+   */
+  public void replaceItem(Item oldItem, Item newItem) {
+    if (Double.compare(oldItem.getPrice(), newItem.getPrice()) != 0
+        || !oldItem.getItemNumber().equals(newItem.getItemNumber())) {
+      removeItem(oldItem);
+    }
+    addItem(newItem);
+  }
+
+  /** Method to find the items within a price-range, sorted by price. Only one page of
+   * the items is returned, so a wide price-range doesn't have to be collected at once.
+   * The skipped items are still gone through one by one, so a page far into the range
+   * is slow, and {@link #findAfter} should be used to go through the pages instead.
+   *
+   * @param startPrice the lowest price as double
+   * @param endPrice the highest price as double
+   * @param offset number of items in the price-range to skip as int
+   * @param limit the highest number of items to return as int
+   * @return returns the registered items within the price-range
+   */
+  public ArrayList<Item> findBetween(double startPrice, double endPrice, int offset,
+                                     int limit) {
+    if (offset < 0 || limit < 0) {
+      throw new IllegalArgumentException("The offset and limit can't be negative numbers.");
+    }
+    ArrayList<Item> found = new ArrayList<>();
+    if (startPrice > endPrice) {
+      return found;
+    }
+
+    NavigableMap<PriceKey, Item> range = itemsByPrice.subMap(
+        new PriceKey(startPrice, ""), true, new PriceKey(endPrice, null), true);
+    int skipped = 0;
+    for (Item item : range.values()) {
+      if (found.size() == limit) {
+        break;
+      }
+      if (skipped < offset) {
+        skipped++;
+      } else {
+        found.add(item);
+      }
+    }
+    return found;
+  }
+
+  /** Method to find the page of items within a price-range that comes after an item,
+   * sorted by price. The last item of one page is given to find the next page, and the
+   * index goes straight to it, so every page is found as fast as the first one. The item
+   * doesn't have to be in the index anymore, the page starts after its old place.
+   *
+   * @param startPrice the lowest price as double
+   * @param endPrice the highest price as double
+   * @param after the last item of the previous page, or null for the first page, as Item
+   * @param limit the highest number of items to return as int
+   * @return returns the registered items within the price-range after the item
+   */
+  public ArrayList<Item> findAfter(double startPrice, double endPrice, Item after,
+                                   int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("The limit can't be a negative number.");
+    }
+    ArrayList<Item> found = new ArrayList<>();
+    Collection<Item> range = after == null ? itemsBetween(startPrice, endPrice)
+        : itemsAfter(startPrice, endPrice, after.getPrice(), after.getItemNumber());
+    for (Item item : range) {
+      if (found.size() == limit) {
+        break;
+      }
+      found.add(item);
+    }
+    return found;
+  }
+
+  /** Method to go through the items within a price-range, sorted by price, as they are
+   * found in the index. Nothing is copied, so items changed while going through may or
+   * may not be seen.
+   *
+   * @param startPrice the lowest price as double
+   * @param endPrice the highest price as double
+   * @return returns the registered items within the price-range as Collection
+   */
+  public Collection<Item> itemsBetween(double startPrice, double endPrice) {
+    if (startPrice > endPrice) {
+      return Collections.emptyList();
+    }
+    return itemsByPrice.subMap(new PriceKey(startPrice, ""), true,
+        new PriceKey(endPrice, null), true).values();
+  }
+
+  /** Method to go through the items within a price-range that come after a price and
+   * item number, sorted by price, as they are found in the index. The index goes
+   * straight to the first item, without going through the items before it. Nothing is
+   * copied, so items changed while going through may or may not be seen.
+   *
+   * @param startPrice the lowest price as double
+   * @param endPrice the highest price as double
+   * @param afterPrice the price of the last item already seen as double
+   * @param afterItemNumber the item number of the last item already seen as String
+   * @return returns the registered items within the price-range after the item
+   */
+  public Collection<Item> itemsAfter(double startPrice, double endPrice, double afterPrice,
+                                     String afterItemNumber) {
+    if (afterItemNumber == null) {
+      throw new IllegalArgumentException("The item number can't be empty.");
+    }
+    PriceKey from = new PriceKey(startPrice, "");
+    PriceKey afterKey = new PriceKey(afterPrice, afterItemNumber);
+    if (from.compareTo(afterKey) > 0) {
+      return itemsBetween(startPrice, endPrice);
+    }
+    PriceKey to = new PriceKey(endPrice, null);
+    if (afterKey.compareTo(to) >= 0) {
+      return Collections.emptyList();
+    }
+    return itemsByPrice.subMap(afterKey, false, to, true).values();
+  }
+
+  /** A key sorting the items by price, and then by item number for items with the same
+   * price. An item number of null is sorted after every item with that price, and is
+   * used as the upper limit when searching.
+   */
+  private static final class PriceKey implements Comparable<PriceKey> {
+    private final double price;
+    private final String itemNumber;
+
+    private PriceKey(double price, String itemNumber) {
+      this.price = price;
+      this.itemNumber = itemNumber;
+    }
+
+    @Override
+    public int compareTo(PriceKey other) {
+      int byPrice = Double.compare(price, other.price);
+      if (byPrice != 0) {
+        return byPrice;
+      }
+      if (itemNumber == null || other.itemNumber == null) {
+        return itemNumber == null ? (other.itemNumber == null ? 0 : 1) : -1;
+      }
+      return itemNumber.compareTo(other.itemNumber);
+    }
+  }
+}
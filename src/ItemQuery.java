@@ -0,0 +1,337 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/** A class describing a search for items by several conditions at once, like a category,
+ * a price-range, a word in the description and any other condition on the item, with the
+ * order and the highest number of items wanted. The query is run by
+ * {@link ItemRegister#findItems(ItemQuery)}, for example:
+ *
+ * <pre>
+ * register.findItems(new ItemQuery()
+ *     .inCategory(2)
+ *     .priceBetween(100, 500)
+ *     .descriptionContains("oak")
+ *     .where(item -&gt; item.getLength() * item.getHeight() &gt; 2)
+ *     .orderBy(Comparator.comparingDouble(Item::getPrice))
+ *     .limit(20));
+ * </pre>
+ *
+ * <p>Only the items in the price-range, or in the category, are looked at, when the query
+ * has them. When there are more items to look at than the parallel threshold, the items
+ * are split into chunks that are checked at the same time by the common fork-join pool,
+ * and the results are put together in the same order as a check on one thread would give,
+ * so both give the same items. With an order and a limit, only the best items are kept
+ * while checking, instead of sorting every item found. Smaller registers, and computers
+ * with one processor, are checked on the calling thread.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class ItemQuery {
+
+  /** Number of items from which a query is run in parallel, if nothing else is chosen. */
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 50_000;
+
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private Category category;
+  private double startPrice;
+  private double endPrice;
+  private String descriptionText;
+  private Predicate<Item> condition;
+  private Comparator<Item> order;
+  private int limit;
+  private int parallelThreshold;
+
+  /** Constructor for the class, making a query that finds every item.
+   */
+  public ItemQuery() {
+
+    this.startPrice = Double.NEGATIVE_INFINITY;
+    this.endPrice = Double.POSITIVE_INFINITY;
+    this.limit = Integer.MAX_VALUE;
+    this.parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+  }
+
+  /** Method to only find items in a category.
+   *
+   * @param categoryInt category number as int
+   * @return returns this query
+   */
+  public ItemQuery inCategory(int categoryInt) {
+    if (categoryInt < 1 || categoryInt > Category.values().length) {
+      throw new IllegalArgumentException("Category has to be between 1 and "
+          + Category.values().length + ".");
+    }
+    this.category = Category.getCategory(categoryInt);
+    return this;
+  }
+
+  /** Method to only find items within a price-range.
+   *
+   * @param startPrice the lowest price as double
+   * @param endPrice the highest price as double
+   * @return returns this query
+   */
+  public ItemQuery priceBetween(double startPrice, double endPrice) {
+    if (Double.isNaN(startPrice) || Double.isNaN(endPrice)) {
+      throw new IllegalArgumentException("The prices must be numbers.");
+    }
+    this.startPrice = startPrice;
+    this.endPrice = endPrice;
+    return this;
+  }
+
+  /** Method to only find items with a text in the description. Capital letters are not
+   * taken into account.
+   *
+   * @param text the text to find as String
+   * @return returns this query
+   */
+  public ItemQuery descriptionContains(String text) {
+    if (text == null) {
+      throw new IllegalArgumentException("The description text can't be empty.");
+    }
+    this.descriptionText = text.toLowerCase(Locale.ROOT);
+    return this;
+  }
+
+  /** Method to only find items for which a condition is true. The condition is added to
+   * the conditions already in the query. It can be checked on several threads at once,
+   * so it should not change anything.
+   *
+   * @param condition the condition as Predicate
+   * @return returns this query
+   */
+  public ItemQuery where(Predicate<Item> condition) {
+    if (condition == null) {
+      throw new IllegalArgumentException("The condition can't be empty.");
+    }
+    this.condition = this.condition == null ? condition : this.condition.and(condition);
+    return this;
+  }
+
+  /** Method to choose the order of the items found. Without an order the items come in
+   * no particular order.
+   *
+   * @param order the order of the items as Comparator
+   * @return returns this query
+   */
+  public ItemQuery orderBy(Comparator<Item> order) {
+    this.order = order;
+    return this;
+  }
+
+  /** Method to choose the highest number of items found. Without an order, the first
+   * matching items are returned, in the order the register looks at them.
+   *
+   * @param limit the highest number of items as int
+   * @return returns this query
+   */
+  public ItemQuery limit(int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("The limit can't be a negative number.");
+    }
+    this.limit = limit;
+    return this;
+  }
+
+  /** Method to choose the number of items from which the query is run in parallel.
+   *
+   * @param parallelThreshold number of items as int, or Integer.MAX_VALUE to never run
+   *                          in parallel
+   * @return returns this query
+   */
+  public ItemQuery parallelThreshold(int parallelThreshold) {
+    if (parallelThreshold < 1) {
+      throw new IllegalArgumentException("The parallel threshold must be at least 1.");
+    }
+    this.parallelThreshold = parallelThreshold;
+    return this;
+  }
+
+  Category getCategory() {
+
+    return category;
+  }
+
+  double getStartPrice() {
+
+    return startPrice;
+  }
+
+  double getEndPrice() {
+
+    return endPrice;
+  }
+
+  /** Method to find out if the query only finds items within a price-range.
+   *
+   * @return returns true if a price-range is chosen
+   */
+  boolean hasPriceRange() {
+    return startPrice != Double.NEGATIVE_INFINITY || endPrice != Double.POSITIVE_INFINITY;
+  }
+
+  /** Method to find out if an item matches every condition of the query. The cheapest
+   * conditions are checked first.
+   *
+   * @param item the item as Item
+   * @return returns true if the item matches
+   */
+  boolean matches(Item item) {
+    if (category != null && item.getItemCategory() != category) {
+      return false;
+    }
+    double price = item.getPrice();
+    if (price < startPrice || price > endPrice) {
+      return false;
+    }
+    if (condition != null && !condition.test(item)) {
+      return false;
+    }
+    return descriptionText == null
+        || item.getDescription().toLowerCase(Locale.ROOT).contains(descriptionText);
+  }
+
+  /** Method to run the query on the items, on several threads if there are enough items.
+   * Both ways give the same items in the same order.
+   *
+   * @param items the items to look at as an array of Item
+   * @param projection the value to get from every item found as Function
+   * @return returns the values of the items found
+   */
+  <T> ArrayList<T> run(Item[] items, Function<? super Item, ? extends T> projection) {
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+    boolean parallel = items.length >= parallelThreshold && items.length > 1
+        && pool.getParallelism() > 1;
+
+    Item[] found = parallel ? findParallel(items, pool) : find(items, 0, items.length);
+    int size = Math.min(found.length, limit);
+    Object[] values = new Object[size];
+    if (parallel) {
+      Arrays.parallelSetAll(values, i -> projection.apply(found[i]));
+    } else {
+      for (int i = 0; i < size; i++) {
+        values[i] = projection.apply(found[i]);
+      }
+    }
+    ArrayList<T> result = new ArrayList<>(size);
+    for (Object value : values) {
+      @SuppressWarnings("unchecked")
+      T projected = (T) value;
+      result.add(projected);
+    }
+    return result;
+  }
+
+  /** Method to find the items that match among some of the items, in the order of the
+   * query. Without an order, the search stops when enough items are found, and the first
+   * ones are kept. With an order and a limit, only the best items so far are kept in a
+   * heap, and items that are equal keep the order they were looked at in.
+   *
+   * @param items the items to look at as an array of Item
+   * @param start the first place to look at as int
+   * @param end the place after the last one to look at as int
+   * @return returns at most limit items found, in order, as an array of Item
+   */
+  private Item[] find(Item[] items, int start, int end) {
+    if (order != null && limit < end - start) {
+      return findBest(items, start, end);
+    }
+    ArrayList<Item> found = new ArrayList<>();
+    for (int i = start; i < end && found.size() < limit; i++) {
+      if (matches(items[i])) {
+        found.add(items[i]);
+      }
+    }
+    Item[] result = found.toArray(new Item[0]);
+    if (order != null) {
+      Arrays.sort(result, order);
+    }
+    return result;
+  }
+
+  private Item[] findBest(Item[] items, int start, int end) {
+    if (limit == 0) {
+      return new Item[0];
+    }
+    Comparator<Integer> byOrder = (first, second) -> {
+      int compared = order.compare(items[first], items[second]);
+      return compared != 0 ? compared : Integer.compare(first, second);
+    };
+    PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1, byOrder.reversed());
+    for (int i = start; i < end; i++) {
+      if (matches(items[i])) {
+        if (best.size() < limit) {
+          best.add(i);
+        } else if (byOrder.compare(i, best.peek()) < 0) {
+          best.poll();
+          best.add(i);
+        }
+      }
+    }
+    Integer[] places = best.toArray(new Integer[0]);
+    Arrays.sort(places, byOrder);
+    Item[] result = new Item[places.length];
+    for (int i = 0; i < places.length; i++) {
+      result[i] = items[places[i]];
+    }
+    return result;
+  }
+
+  /** Method to find the items that match on several threads. Every chunk finds its own
+   * items in order, and the chunks are put together as if the items were looked at on
+   * one thread.
+   *
+   * @param items the items to look at as an array of Item
+   * @param pool the threads to use as ForkJoinPool
+   * @return returns the items found, in order, as an array of Item
+   */
+  private Item[] findParallel(Item[] items, ForkJoinPool pool) {
+    int chunks = Math.min(items.length, pool.getParallelism() * CHUNKS_PER_THREAD);
+    Item[][] results = new Item[chunks][];
+    pool.invoke(chunkTask(items, results, 0, chunks));
+
+    int size = 0;
+    for (Item[] chunk : results) {
+      size += chunk.length;
+    }
+    Item[] found = new Item[size];
+    int position = 0;
+    for (Item[] chunk : results) {
+      System.arraycopy(chunk, 0, found, position, chunk.length);
+      position += chunk.length;
+    }
+    if (order != null) {
+      Arrays.parallelSort(found, order);
+    }
+    return found;
+  }
+
+  private RecursiveAction chunkTask(Item[] items, Item[][] results, int firstChunk,
+                                    int endChunk) {
+    return new RecursiveAction() {
+      @Override
+      protected void compute() {
+        if (endChunk - firstChunk == 1) {
+          int chunks = results.length;
+          int start = (int) ((long) items.length * firstChunk / chunks);
+          int end = (int) ((long) items.length * (firstChunk + 1) / chunks);
+          results[firstChunk] = find(items, start, end);
+        } else {
+          int middle = (firstChunk + endChunk) >>> 1;
+          invokeAll(chunkTask(items, results, firstChunk, middle),
+              chunkTask(items, results, middle, endChunk));
+        }
+      }
+    };
+  }
+}
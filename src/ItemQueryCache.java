@@ -0,0 +1,469 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/** A class remembering the results of the register queries that are run over and over,
+ * like the items in a category, the items with a word in the description and the items
+ * in a price-range.
+ *
+ * <p>The cache holds a limited number of results, and the result used the longest time
+ * ago is removed first when it is full. A result can also be given a time to live, after
+ * which it is found again. When an item is added, changed or deleted, only the results
+ * that item is part of, before or after the change, are removed. The register tells the
+ * cache about a change after every index has been changed, and a result found while an
+ * item it is part of was changed is not kept, since it might not include the change.
+ * Queries that the change has nothing to do with are kept, so results are still cached
+ * while other items are changed all the time. Changes to the register don't wait for the
+ * cache until the first query result is kept.
+ *
+ * <p>The queries held or being run are indexed by their category, by the powers of two
+ * their price-range spans, and by the first three letters of their description text. A
+ * change looks up the queries of the item's category, price and the letters of its
+ * description in the index without locking the cache, and only locks it to remove the
+ * results it finds, so changes to items no result is for don't wait for each other.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class ItemQueryCache {
+
+  private static final int DEFAULT_MAX_ENTRIES = 256;
+  private static final int TEXT_KEY_LENGTH = 3;
+  private static final int MIN_PRICE_BUCKET = -8;
+  private static final int MAX_PRICE_BUCKET = 64;
+
+  private final LinkedHashMap<Query, Entry> entries;
+  private final ConcurrentHashMap<Object, Set<Query>> queriesByKey;
+  private final ConcurrentHashMap<String, Set<Query>> queriesByText;
+  private int maxEntries;
+  private long timeToLiveNanos;
+  private final ArrayList<RunningQuery> runningQueries;
+  private volatile boolean used;
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long expirations;
+
+  /** Constructor for the class, holding up to 256 results that never expire.
+   */
+  public ItemQueryCache() {
+
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    this.queriesByKey = new ConcurrentHashMap<>();
+    this.queriesByText = new ConcurrentHashMap<>();
+    this.maxEntries = DEFAULT_MAX_ENTRIES;
+    this.timeToLiveNanos = 0;
+    this.runningQueries = new ArrayList<>();
+  }
+
+  /** Method to find the result of a query in the cache, or run the query and remember
+   * the result. The caller gets its own copy of the result.
+   *
+   * @param query the query as Query
+   * @param runQuery runs the query as Supplier
+   * @return returns the items found as ArrayList
+   */
+  ArrayList<Item> get(Query query, Supplier<ArrayList<Item>> runQuery) {
+    RunningQuery running;
+    synchronized (this) {
+      Entry entry = entries.get(query);
+      if (entry != null && entry.isExpired(System.nanoTime())) {
+        entries.remove(query);
+        unindexIfUnused(query);
+        expirations++;
+        entry = null;
+      }
+      if (entry != null) {
+        hits++;
+        return new ArrayList<>(entry.items);
+      }
+      misses++;
+      if (maxEntries == 0) {
+        return runQuery.get();
+      }
+      used = true;
+      running = new RunningQuery(query);
+      runningQueries.add(running);
+      index(query);
+    }
+
+    ArrayList<Item> items = null;
+    try {
+      items = runQuery.get();
+    } finally {
+      synchronized (this) {
+        runningQueries.remove(running);
+        if (items != null && !running.changed && maxEntries > 0) {
+          long expiresAt = timeToLiveNanos == 0 ? 0 : System.nanoTime() + timeToLiveNanos;
+          entries.put(query, new Entry(new ArrayList<>(items), expiresAt));
+          removeEldest();
+        } else {
+          unindexIfUnused(query);
+        }
+      }
+    }
+    return items;
+  }
+
+  private void removeEldest() {
+    Iterator<Query> eldest = entries.keySet().iterator();
+    while (entries.size() > maxEntries) {
+      Query query = eldest.next();
+      eldest.remove();
+      unindexIfUnused(query);
+      evictions++;
+    }
+  }
+
+  /** Method to put a query in the index, so changes to the items it is for find it.
+   * Must be called while holding the lock of the cache.
+   *
+   * @param query the query as Query
+   */
+  private void index(Query query) {
+    for (Object key : query.keys()) {
+      queriesFor(key).computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(query);
+    }
+  }
+
+  /** Method to take a query out of the index when no result of it is held and it isn't
+   * being run. Must be called while holding the lock of the cache.
+   *
+   * @param query the query as Query
+   */
+  private void unindexIfUnused(Query query) {
+    if (entries.containsKey(query)) {
+      return;
+    }
+    for (RunningQuery running : runningQueries) {
+      if (running.query.equals(query)) {
+        return;
+      }
+    }
+    for (Object key : query.keys()) {
+      queriesFor(key).computeIfPresent(key, (k, queries) -> {
+        queries.remove(query);
+        return queries.isEmpty() ? null : queries;
+      });
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private ConcurrentHashMap<Object, Set<Query>> queriesFor(Object key) {
+    return key instanceof String ? (ConcurrentHashMap<Object, Set<Query>>) (Object) queriesByText
+        : queriesByKey;
+  }
+
+  /** Method to find the queries in the index that an item is part of the result of.
+   *
+   * @param item the item, or null, as Item
+   * @param found the queries found as HashSet
+   */
+  private void findQueries(Item item, HashSet<Query> found) {
+    if (item == null) {
+      return;
+    }
+    addQueries(queriesByKey, item.getItemCategory(), item, found);
+    addQueries(queriesByKey, priceBucket(item.getPrice()), item, found);
+    if (queriesByText.isEmpty()) {
+      return;
+    }
+    String description = item.getDescription().toLowerCase(Locale.ROOT);
+    addQueries(queriesByText, "", item, found);
+    for (int start = 0; start < description.length(); start++) {
+      int end = Math.min(start + TEXT_KEY_LENGTH, description.length());
+      for (int keyEnd = start + 1; keyEnd <= end; keyEnd++) {
+        addQueries(queriesByText, description.substring(start, keyEnd), item, found);
+      }
+    }
+  }
+
+  private static void addQueries(ConcurrentHashMap<?, Set<Query>> index, Object key,
+                                 Item item, HashSet<Query> found) {
+    Set<Query> queries = index.get(key);
+    if (queries != null) {
+      for (Query query : queries) {
+        if (query.includes(item)) {
+          found.add(query);
+        }
+      }
+    }
+  }
+
+  /** Method to find the power of two a price is in, kept between a 256th of a krone and
+   * 2^64 kroner so that a price-range spans a small number of them. A price of 0 or less
+   * is in the lowest one.
+   *
+   * @param price the price as double
+   * @return returns the power of two as int
+   */
+  private static int priceBucket(double price) {
+    if (!(price > 0)) {
+      return MIN_PRICE_BUCKET;
+    }
+    return Math.max(MIN_PRICE_BUCKET, Math.min(MAX_PRICE_BUCKET, Math.getExponent(price)));
+  }
+
+  /** Method to remove every result an item is part of, before or after a change. Must be
+   * called after the change is made in every index, so that a query run after this finds
+   * the change. A query is put in the index of the cache before it is run, so a change
+   * either finds the query in the index, or is made before the query is run.
+   *
+   * @param oldItem the item before the change, or null for a new item, as Item
+   * @param newItem the item after the change, or null for a deleted item, as Item
+   */
+  void itemChanged(Item oldItem, Item newItem) {
+    if (!used) {
+      return;
+    }
+    HashSet<Query> found = new HashSet<>();
+    findQueries(oldItem, found);
+    findQueries(newItem, found);
+    if (found.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      for (Query query : found) {
+        entries.remove(query);
+      }
+      for (RunningQuery running : runningQueries) {
+        if (found.contains(running.query)) {
+          running.changed = true;
+        }
+      }
+      for (Query query : found) {
+        unindexIfUnused(query);
+      }
+    }
+  }
+
+  /** Method to set the largest number of results held. The results used the longest time
+   * ago are removed if there are too many. A limit of 0 turns off the cache.
+   *
+   * @param maxEntries largest number of results as int
+   */
+  public synchronized void setMaxEntries(int maxEntries) {
+    if (maxEntries < 0) {
+      throw new IllegalArgumentException("The number of results can't be negative.");
+    }
+    this.maxEntries = maxEntries;
+    removeEldest();
+  }
+
+  /** Method to set how long a result is kept before the query is run again. Results
+   * already held keep their time.
+   *
+   * @param timeToLive how long a result is kept, or null to keep results until they
+   *                   change, as Duration
+   */
+  public synchronized void setTimeToLive(Duration timeToLive) {
+    if (timeToLive != null && (timeToLive.isNegative() || timeToLive.isZero())) {
+      throw new IllegalArgumentException("The time to live must be longer than 0.");
+    }
+    this.timeToLiveNanos = timeToLive == null ? 0 : timeToLive.toNanos();
+  }
+
+  /** Method to remove every result.
+   */
+  public synchronized void clear() {
+    for (RunningQuery running : runningQueries) {
+      running.changed = true;
+    }
+    entries.clear();
+    queriesByKey.clear();
+    queriesByText.clear();
+  }
+
+  public synchronized int getNumberOfEntries() {
+
+    return entries.size();
+  }
+
+  public synchronized long getHits() {
+
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+
+    return misses;
+  }
+
+  public synchronized long getEvictions() {
+
+    return evictions;
+  }
+
+  public synchronized long getExpirations() {
+
+    return expirations;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "Query cache: " + entries.size() + " results, " + hits + " hits, " + misses
+        + " misses, " + evictions + " evictions, " + expirations + " expirations";
+  }
+
+  /** A query whose result can be cached. Holds what the query is, and finds out if an
+   * item is part of its result.
+   */
+  abstract static class Query {
+
+    static Query byCategory(Category category) {
+      return new CategoryQuery(category);
+    }
+
+    static Query byDescription(String text) {
+      return new DescriptionQuery(text);
+    }
+
+    static Query byPrice(double startPrice, double endPrice, int offset, int limit) {
+      return new PriceQuery(startPrice, endPrice, offset, limit);
+    }
+
+    /** Method to find out if an item is part of the result of the query.
+     *
+     * @param item the item, or null, as Item
+     * @return returns true if the item is part of the result
+     */
+    abstract boolean includes(Item item);
+
+    /** Method to get the keys the query is indexed by. Every item the query includes has
+     * at least one of the keys.
+     *
+     * @return returns the keys as List
+     */
+    abstract List<Object> keys();
+  }
+
+  private static final class CategoryQuery extends Query {
+    private final Category category;
+
+    private CategoryQuery(Category category) {
+      this.category = category;
+    }
+
+    @Override
+    boolean includes(Item item) {
+      return item != null && item.getItemCategory() == category;
+    }
+
+    @Override
+    List<Object> keys() {
+      return List.of(category);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof CategoryQuery query && query.category == category;
+    }
+
+    @Override
+    public int hashCode() {
+      return category.hashCode();
+    }
+  }
+
+  private static final class DescriptionQuery extends Query {
+    private final String text;
+
+    private DescriptionQuery(String text) {
+      this.text = text;
+    }
+
+    @Override
+    boolean includes(Item item) {
+      return item != null && item.getDescription().toLowerCase(Locale.ROOT).contains(text);
+    }
+
+    @Override
+    List<Object> keys() {
+      return List.of(text.substring(0, Math.min(TEXT_KEY_LENGTH, text.length())));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof DescriptionQuery query && query.text.equals(text);
+    }
+
+    @Override
+    public int hashCode() {
+      return text.hashCode();
+    }
+  }
+
+  private static final class PriceQuery extends Query {
+    private final double startPrice;
+    private final double endPrice;
+    private final int offset;
+    private final int limit;
+
+    private PriceQuery(double startPrice, double endPrice, int offset, int limit) {
+      this.startPrice = startPrice;
+      this.endPrice = endPrice;
+      this.offset = offset;
+      this.limit = limit;
+    }
+
+    @Override
+    boolean includes(Item item) {
+      return item != null && Double.compare(item.getPrice(), startPrice) >= 0
+          && Double.compare(item.getPrice(), endPrice) <= 0;
+    }
+
+    @Override
+    List<Object> keys() {
+      ArrayList<Object> keys = new ArrayList<>();
+      for (int bucket = priceBucket(startPrice); bucket <= priceBucket(endPrice); bucket++) {
+        keys.add(bucket);
+      }
+      return keys;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof PriceQuery query
+          && Double.compare(query.startPrice, startPrice) == 0
+          && Double.compare(query.endPrice, endPrice) == 0
+          && query.offset == offset && query.limit == limit;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(startPrice, endPrice, offset, limit);
+    }
+  }
+
+  /** A query being run, and if an item it is part of was changed in the meantime. */
+  private static final class RunningQuery {
+    private final Query query;
+    private boolean changed;
+
+    private RunningQuery(Query query) {
+      this.query = query;
+    }
+  }
+
+  private static final class Entry {
+    private final ArrayList<Item> items;
+    private final long expiresAt;
+
+    private Entry(ArrayList<Item> items, long expiresAt) {
+      this.items = items;
+      this.expiresAt = expiresAt;
+    }
+
+    private boolean isExpired(long now) {
+      return expiresAt != 0 && now - expiresAt >= 0;
+    }
+  }
+}
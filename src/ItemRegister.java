@@ -1,19 +1,164 @@
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 /** A class administrating the Warehouse storage, with methods for finding,
  * editing and searching for items.
  *
+ * <p>The register can be used by several threads at once, for example several warehouse
+ * terminals. Looking up an item by item number never waits for a lock. Every change to an
+ * item is made while holding one of a fixed number of locks chosen by the item number,
+ * so changes to different items can run at the same time, while two changes to the same
+ * item, like two pickers taking the last items, happen one after the other. Lists and
+ * searches show every change that was finished before they started, and may or may not
+ * show changes made while they run. Reports that must match one moment, like printing or
+ * exporting every item, read a {@link RegisterSnapshot} instead.
+ *
+ * <p>The items given out by the register are the register's own items. Items can't be
+ * changed, so they are shared instead of copied, and a change to an item puts a new item
+ * in its place.
+ *
  * @author 10119
  * @version 1.1.0
  */
 public class ItemRegister {
 
-  private final ArrayList<Item> allItems;
+  private static final int LOCK_STRIPES = 64;
+  private static final int[] ALL_STRIPES = IntStream.range(0, LOCK_STRIPES).toArray();
+
+  private final ConcurrentHashMap<String, Item> itemsByItemNumber;
+  private final Object[] itemLocks;
+  private final LinkedHashSet<String> allItems;
+  private final EnumMap<Category, LinkedHashSet<String>> itemsByCategory;
+  private final InventoryAggregates aggregates;
+  private final ItemQueryCache queryCache;
+  private final ItemChangeFeed changeFeed;
+  private final ReorderMonitor reorderMonitor;
+  private final RegisterMetrics metrics;
+  private final ItemVersions versions;
+  private final ItemSearchIndex searchIndex;
+  private final ItemPriceIndex priceIndex;
+  private final CopyOnWriteArrayList<SortedItemView> sortedViews;
+  private final SortedItemView itemsByPrice;
+  private final SortedItemView itemsByColor;
+  private final SortedItemView itemsByBrandName;
+  private volatile ItemLog log;
 
   public ItemRegister() {
 
-    allItems = new ArrayList<>();
+    itemsByItemNumber = new ConcurrentHashMap<>();
+    itemLocks = new Object[LOCK_STRIPES];
+    for (int i = 0; i < LOCK_STRIPES; i++) {
+      itemLocks[i] = new Object();
+    }
+    allItems = new LinkedHashSet<>();
+    itemsByCategory = new EnumMap<>(Category.class);
+    for (Category category : Category.values()) {
+      itemsByCategory.put(category, new LinkedHashSet<>());
+    }
+    aggregates = new InventoryAggregates();
+    queryCache = new ItemQueryCache();
+    changeFeed = new ItemChangeFeed(ItemChangeFeed.DEFAULT_CAPACITY);
+    reorderMonitor = new ReorderMonitor(this);
+    metrics = new RegisterMetrics(this::getSizes);
+    versions = new ItemVersions();
+    searchIndex = new ItemSearchIndex(this::findItem);
+    priceIndex = new ItemPriceIndex();
+    sortedViews = new CopyOnWriteArrayList<>();
+    itemsByPrice = getSortedView(Comparator.comparingDouble(Item::getPrice));
+    itemsByColor = getSortedView(Comparator.comparing(Item::getColor));
+    itemsByBrandName = getSortedView(Comparator.comparing(Item::getBrandName));
+  }
+
+  /** Method to normalize an item number, so that item numbers are compared without
+   * regard to case.
+   *
+   * @param itemNumber item number as String
+   * @return returns the item number used as key in the index as String
+   */
+  private static String itemKey(String itemNumber) {
+    return itemNumber.toLowerCase(Locale.ROOT);
+  }
+
+  /** Method to find the lock that must be held while changing the item with the key.
+   *
+   * @param key the normalized item number as String
+   * @return returns the lock for the item as Object
+   */
+  private Object lockFor(String key) {
+    return itemLocks[stripeOf(key)];
+  }
+
+  private static int stripeOf(String key) {
+    return Math.floorMod(key.hashCode(), LOCK_STRIPES);
+  }
+
+  /** Method to find the registered item with the item number, or null if it doesn't exist.
+   *
+   * @param itemNumber item number as String
+   * @return returns the registered item as Item
+   */
+  private Item findItem(String itemNumber) {
+    return itemsByItemNumber.get(itemKey(itemNumber));
+  }
+
+  /** Method to find the registered item with a normalized item number, or null if it
+   * doesn't exist.
+   *
+   * @param key the normalized item number as String
+   * @return returns the registered item as Item
+   */
+  Item itemWithKey(String key) {
+    return itemsByItemNumber.get(key);
+  }
+
+  /** Method to get a list of the registered items with the item numbers, in the same
+   * order as the item numbers. Items deleted in the meantime are left out.
+   *
+   * @param keys normalized item numbers
+   * @return returns the registered items
+   */
+  private ArrayList<Item> itemsWithKeys(Collection<String> keys) {
+    ArrayList<Item> items = new ArrayList<>(keys.size());
+    for (String key : keys) {
+      Item item = itemsByItemNumber.get(key);
+      if (item != null) {
+        items.add(item);
+      }
+    }
+    return items;
+  }
+
+  /** Method to get a list of all registered items, in the order they were registered.
+   *
+   * @return returns the registered items
+   */
+  ArrayList<Item> itemsInOrder() {
+    ArrayList<String> keys;
+    synchronized (allItems) {
+      keys = new ArrayList<>(allItems);
+    }
+    return itemsWithKeys(keys);
   }
 
   /** Method to test if the item number already exists, the method returns true if the
@@ -22,14 +167,7 @@ public class ItemRegister {
    * @return returns if the item number is duplicate as boolean
    */
   public boolean testForDuplicateItemNumber(String itemNumber) {
-    boolean itemExists = false;
-    for (Item items : allItems) {
-      if (items.getItemNumber().equalsIgnoreCase(itemNumber)) {
-        itemExists = true;
-        break;
-      }
-    }
-    return itemExists;
+    return itemsByItemNumber.containsKey(itemKey(itemNumber));
   }
 
   /** Method to register a new item.
@@ -48,15 +186,101 @@ public class ItemRegister {
   public void newItem(String itemNumber, String description, double price, String brandName,
                       double weight, double length, double height, String color, int numberOfItems,
                       int categoryNumber) {
+    long start = metrics.start();
+    try {
+      Item newItem = new Item(itemNumber, description, price, brandName, weight, length, height,
+                  color, numberOfItems, categoryNumber);
+
+      addItem(newItem);
+    } finally {
+      metrics.stop(RegisterMetrics.Operation.NEW_ITEM, start);
+    }
+  }
 
-    Item newItem = new Item(itemNumber, description, price, brandName, weight, length, height,
-                color, numberOfItems, categoryNumber);
+  /** Method to register an item that is already made.
+   *
+   * @param newItem the new item as Item
+   */
+  void addItem(Item newItem) {
+    awaitDurable(insertItem(newItem));
+  }
 
-    if (!testForDuplicateItemNumber(itemNumber)) {
-      allItems.add(newItem);
-    } else {
-      throw new IllegalArgumentException("This item number is already in use.");
+  /** Method to register a batch of items that are already made. Items with an item number
+   * that is already in use are left out, and every other item is registered. The method
+   * waits for the log once for the whole batch instead of once for every item.
+   *
+   * @param newItems the new items as a List
+   * @return returns the items left out because the item number is in use as an ArrayList
+   */
+  ArrayList<Item> addItems(List<Item> newItems) {
+    ArrayList<Item> rejected = new ArrayList<>();
+    long sequence = 0;
+    for (Item newItem : newItems) {
+      try {
+        sequence = Math.max(sequence, insertItem(newItem));
+      } catch (IllegalArgumentException e) {
+        rejected.add(newItem);
+      }
+    }
+    awaitDurable(sequence);
+    return rejected;
+  }
+
+  /** Method to make the register hold an item copied from another register, in place of
+   * the item with the same item number, if any. Used by a {@link ReplicationFollower}.
+   * The copied item may differ in every value, and is put in place in one step while the
+   * item is locked, so readers find either the old or the new item and never neither. The
+   * change is logged as one record holding the whole item.
+   *
+   * @param item the copied item as Item
+   */
+  void putItem(Item item) {
+    String key = itemKey(item.getItemNumber());
+    long sequence = 0;
+    synchronized (lockFor(key)) {
+      Item current = itemsByItemNumber.get(key);
+      if (current == null) {
+        sequence = insertItem(item);
+      } else if (current != item) {
+        checkLoggable(item);
+        updateItem(key, current, item);
+        ItemLog currentLog = log;
+        sequence = currentLog == null ? 0 : currentLog.logPutItem(item);
+      }
     }
+    awaitDurable(sequence);
+  }
+
+  private long insertItem(Item newItem) {
+    checkLoggable(newItem);
+    String key = itemKey(newItem.getItemNumber());
+    long sequence = 0;
+    synchronized (lockFor(key)) {
+      if (!itemsByItemNumber.containsKey(key)) {
+        versions.itemReplaced(key, null);
+        itemsByItemNumber.put(key, newItem);
+        synchronized (allItems) {
+          allItems.add(key);
+          itemsByCategory.get(newItem.getItemCategory()).add(key);
+        }
+        aggregates.addItem(newItem);
+        searchIndex.addItem(newItem);
+        priceIndex.addItem(newItem);
+        for (SortedItemView view : sortedViews) {
+          view.addItem(newItem);
+        }
+        queryCache.itemChanged(null, newItem);
+        reorderMonitor.itemChanged(null, newItem);
+        changeFeed.publish(null, newItem);
+        ItemLog currentLog = log;
+        if (currentLog != null) {
+          sequence = currentLog.logNewItem(newItem);
+        }
+      } else {
+        throw new IllegalArgumentException("This item number is already in use.");
+      }
+    }
+    return sequence;
   }
 
   /** Method to print info about all the items registered.
@@ -64,40 +288,80 @@ public class ItemRegister {
    * @return returns info about all the items
    */
   public String printAllItems() {
-    StringBuilder allItemsList = new StringBuilder();
+    StringWriter allItemsList = new StringWriter();
+    printAllItems(allItemsList);
+    return allItemsList.toString();
+  }
 
-    if (getNumberOfItems() > 0) {
-      for (Item items : allItems) {
-        allItemsList.append(items).append("\n");
-      }
-      return allItemsList.toString();
+  /** Method to write info about all the items registered, one item at a time, without
+   * building all of the text in memory first. The items are written as they were when
+   * the method was called, even if they change while they are written.
+   *
+   * @param out where the info is written as Writer
+   */
+  public void printAllItems(Writer out) {
+    try (RegisterSnapshot snapshot = openSnapshot()) {
+      snapshot.printAllItems(out);
     }
-    throw new IllegalArgumentException("Couldn't find any items.");
   }
 
   /** Method to print all items in a list, but with less information.
    *
    */
-  public void printItemsSmallString(ArrayList<Item> list) {
-    if (list.size() > 0) {
-      for (Item items : list) {
-        System.out.println(items.toSmallString());
+  public void printItemsSmallString(Collection<Item> list) {
+    if (!list.isEmpty()) {
+      try {
+        ItemExporter exporter = new ItemExporter(
+            new OutputStreamWriter(System.out, Charset.defaultCharset()),
+            ItemExporter.Format.SMALL_TEXT);
+        exporter.writeItems(list);
+        exporter.flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
       }
     } else {
       throw new IllegalArgumentException("Couldn't find any items");
     }
   }
 
+  /** Method to write all the items registered in a format that can be imported again.
+   *
+   * @param out where the items are written as Writer
+   * @param format the format of the items as ItemExporter.Format
+   * @return returns the number of items written as long
+   * @throws IOException if the items can't be written
+   */
+  public long exportItems(Writer out, ItemExporter.Format format) throws IOException {
+    try (RegisterSnapshot snapshot = openSnapshot()) {
+      ItemExporter exporter = new ItemExporter(out, format);
+      long written = exporter.writeItems(snapshot);
+      exporter.flush();
+      return written;
+    }
+  }
+
+  /** Method to get all the items registered, in the order they were registered.
+   *
+   * @return returns the registered items as a List that can't be changed
+   */
+  public List<Item> getAllItems() {
+    return Collections.unmodifiableList(itemsInOrder());
+  }
+
   /** Method to find an item with a specific itemNumber.
    *
    */
   public Item getItemWithItemNumber(String itemNumber) {
-    for (Item items : allItems) {
-      if (items.getItemNumber().equalsIgnoreCase(itemNumber)) {
-        return new Item(items);
+    long start = metrics.start();
+    try {
+      Item item = findItem(itemNumber);
+      if (item != null) {
+        return item;
       }
+      throw new IllegalArgumentException("This item doesn't exist.");
+    } finally {
+      metrics.stop(RegisterMetrics.Operation.LOOKUP, start);
     }
-    throw new IllegalArgumentException("This item doesn't exist.");
   }
 
   /** Method to find an item with a specific description.
@@ -106,16 +370,91 @@ public class ItemRegister {
    * @return returns a list of items with the same description
    */
   public ArrayList<Item> getItemWithDescription(String description) {
+    long start = metrics.start();
+    try {
+      if (description.isEmpty()) {
+        return itemsInOrder();
+      }
+      return queryCache.get(ItemQueryCache.Query.byDescription(description),
+          () -> searchIndex.findByDescription(description));
+    } finally {
+      metrics.stop(RegisterMetrics.Operation.SEARCH, start);
+    }
+  }
 
-    ArrayList<Item> itemsWithDescription = new ArrayList<>();
+  /** Method to search for items by one or more words in the description, brand name
+   * or color. Every word must be found in the item.
+   *
+   * @param query words to search for as String
+   * @return returns a list of the items found, with the best match first
+   */
+  public ArrayList<Item> searchItems(String query) {
+    long start = metrics.start();
+    try {
+      return searchIndex.search(query);
+    } finally {
+      metrics.stop(RegisterMetrics.Operation.SEARCH, start);
+    }
+  }
+
+  /** Method to find the items matching every condition of a query. Large registers are
+   * searched on several threads, see {@link ItemQuery}.
+   *
+   * @param query the conditions, order and limit as ItemQuery
+   * @return returns a list of the items found
+   */
+  public ArrayList<Item> findItems(ItemQuery query) {
+    return findItems(query, item -> item);
+  }
 
-    for (Item items : allItems) {
-      if (items.getDescription().toLowerCase().contains(description)) {
-        Item deepCopy = new Item(items);
-        itemsWithDescription.add(deepCopy);
+  /** Method to find the items matching every condition of a query, and get one value from
+   * each of them, like the item number or the stock value.
+   *
+   * @param query the conditions, order and limit as ItemQuery
+   * @param projection the value to get from every item found as Function
+   * @return returns a list of the values, in the order of the items found
+   */
+  public <T> ArrayList<T> findItems(ItemQuery query,
+                                    Function<? super Item, ? extends T> projection) {
+    long start = metrics.start();
+    try {
+      return query.run(itemsToQuery(query), projection);
+    } finally {
+      metrics.stop(RegisterMetrics.Operation.QUERY, start);
+    }
+  }
+
+  /** Method to find the items a query has to look at. The items in the price-range of the
+   * query are taken from the price index, unless there are more of them than items in
+   * the category of the query, which are then taken instead.
+   *
+   * @param query the query as ItemQuery
+   * @return returns the items to look at as an array of Item
+   */
+  private Item[] itemsToQuery(ItemQuery query) {
+    Category category = query.getCategory();
+    int inCategory = Integer.MAX_VALUE;
+    if (category != null) {
+      synchronized (allItems) {
+        inCategory = itemsByCategory.get(category).size();
+      }
+    }
+    if (query.hasPriceRange()) {
+      int enough = inCategory == Integer.MAX_VALUE ? inCategory : inCategory + 1;
+      ArrayList<Item> inRange = priceIndex.findBetween(query.getStartPrice(),
+          query.getEndPrice(), 0, enough);
+      if (inRange.size() < enough) {
+        return inRange.toArray(new Item[0]);
+      }
+    }
+    if (category != null) {
+      ArrayList<String> keys;
+      synchronized (allItems) {
+        keys = new ArrayList<>(itemsByCategory.get(category));
       }
+      return itemsWithKeys(keys).toArray(new Item[0]);
     }
-    return itemsWithDescription;
+    return itemsByItemNumber.values().toArray(new Item[0]);
   }
 
   /** Method to find an item with a specific itemNumber and description.
@@ -125,29 +464,122 @@ public class ItemRegister {
    * @return returns a list of items with the same item number and description
    */
   public Item getItemWithItemNumberAndDescription(String itemNumber, String description) {
-    for (Item items : allItems) {
-      if (items.getItemNumber().equalsIgnoreCase(itemNumber)
-          && items.getDescription().toLowerCase().contains(description)) {
-        return new Item(items);
+    long start = metrics.start();
+    try {
+      Item item = findItem(itemNumber);
+      if (item != null && item.getDescription().toLowerCase().contains(description)) {
+        return item;
       }
+      throw new IllegalArgumentException("This item doesn't exist.");
+    } finally {
+      metrics.stop(RegisterMetrics.Operation.LOOKUP, start);
     }
-    throw new IllegalArgumentException("This item doesn't exist.");
   }
 
   /** Method to find an item by category.
    *
    */
   public ArrayList<Item> getItemsByCategory(int categoryInt) {
-
-    ArrayList<Item> itemsWithCategory = new ArrayList<>();
-
-    for (Item items : allItems) {
-      if (items.getItemCategoryNumber() == categoryInt) {
-        Item deepCopy = new Item(items);
-        itemsWithCategory.add(deepCopy);
+    long start = metrics.start();
+    try {
+      if (categoryInt < 1 || categoryInt > Category.values().length) {
+        return new ArrayList<>();
       }
+      Category category = Category.getCategory(categoryInt);
+      return queryCache.get(ItemQueryCache.Query.byCategory(category), () -> {
+        ArrayList<String> keys;
+        synchronized (allItems) {
+          keys = new ArrayList<>(itemsByCategory.get(category));
+        }
+        return itemsWithKeys(keys);
+      });
+    } finally {
+      metrics.stop(RegisterMetrics.Operation.SEARCH, start);
     }
-    return itemsWithCategory;
+  }
+
+  /** Method to find number of items in a category.
+   *
+   * @param categoryInt category number as int
+   * @return returns number of items in the category as int
+   */
+  public int getNumberOfItemsInCategory(int categoryInt) {
+    return (int) aggregates.getTotalsInCategory(Category.getCategory(categoryInt))
+        .getNumberOfItems();
+  }
+
+  /** Method to find number of individual items in storage in a category.
+   *
+   * @param categoryInt category number as int
+   * @return returns number of individual items in the category as int
+   */
+  public int getNumberOfIndividualItemsInCategory(int categoryInt) {
+    return (int) aggregates.getTotalsInCategory(Category.getCategory(categoryInt))
+        .getNumberOfIndividualItems();
+  }
+
+  /** Method to find the number of items, individual items and the stock value of every
+   * item registered. The totals are kept up to date on every change, so they are found
+   * without looking at the items.
+   *
+   * @return returns the totals of the register as InventoryTotals
+   */
+  public InventoryTotals getInventoryTotals() {
+    return aggregates.getTotals();
+  }
+
+  /** Method to find the totals of the items in a category.
+   *
+   * @param categoryInt category number as int
+   * @return returns the totals of the category as InventoryTotals
+   */
+  public InventoryTotals getInventoryTotalsInCategory(int categoryInt) {
+    return aggregates.getTotalsInCategory(Category.getCategory(categoryInt));
+  }
+
+  /** Method to find the totals of the items of a brand. Capital letters in the brand name
+   * are ignored.
+   *
+   * @param brandName brand name as String
+   * @return returns the totals of the brand as InventoryTotals
+   */
+  public InventoryTotals getInventoryTotalsForBrandName(String brandName) {
+    return aggregates.getTotalsForBrandName(brandName);
+  }
+
+  /** Method to find the totals of the items with a color. Capital letters in the color
+   * are ignored.
+   *
+   * @param color color as String
+   * @return returns the totals of the color as InventoryTotals
+   */
+  public InventoryTotals getInventoryTotalsForColor(String color) {
+    return aggregates.getTotalsForColor(color);
+  }
+
+  /** Method to find the totals of every brand, sorted by the brand name in lower case.
+   *
+   * @return returns the totals by brand name as a Map
+   */
+  public Map<String, InventoryTotals> getInventoryTotalsByBrandName() {
+    return aggregates.getTotalsByBrandName();
+  }
+
+  /** Method to find the totals of every color, sorted by the color in lower case.
+   *
+   * @return returns the totals by color as a Map
+   */
+  public Map<String, InventoryTotals> getInventoryTotalsByColor() {
+    return aggregates.getTotalsByColor();
+  }
+
+  /** Method to find the value of every item in storage, the price of every individual
+   * item added together.
+   *
+   * @return returns the stock value in kr as double
+   */
+  public double getTotalStockValue() {
+    return aggregates.getTotals().getStockValue();
   }
 
   /** Method to increase the amounts of one item.
@@ -156,29 +588,111 @@ public class ItemRegister {
    * @param addNumberOfItems the new number of items to add to the original number as int
    */
   public void increaseAmountOfOneItem(String itemNumber, int addNumberOfItems) {
-    for (Item items : allItems) {
-      if (items.getItemNumber().equalsIgnoreCase(itemNumber)) {
-        int newNumberOfItems = items.getNumberOfItems() + addNumberOfItems;
-        items.setNewNumberOfItems(newNumberOfItems);
+    long start = metrics.start();
+    try {
+      String key = itemKey(itemNumber);
+      long sequence = 0;
+      synchronized (lockFor(key)) {
+        Item item = itemsByItemNumber.get(key);
+        if (item != null) {
+          int newNumberOfItems = item.getNumberOfItems() + addNumberOfItems;
+          sequence = replaceItem(key, item, item.withNewNumberOfItems(newNumberOfItems));
+        }
       }
+      awaitDurable(sequence);
+    } finally {
+      metrics.stop(RegisterMetrics.Operation.STOCK_CHANGE, start);
     }
   }
 
-  /** Method to decrease the amount of one item.
+  /** Method to decrease the amount of one item. The check and the decrease are done
+   * together, so the number of items never becomes negative when several users take
+   * items at the same time.
    *
    * @param itemNumber item number as String
    * @param subtractNumberOfItems the number of items to subtract from the original number as int
    */
   public void decreaseAmountOfOneItem(String itemNumber, int subtractNumberOfItems) {
-    for (Item items : allItems) {
-      if (items.getItemNumber().equalsIgnoreCase(itemNumber)) {
-        int newNumberOfItems = items.getNumberOfItems() - subtractNumberOfItems;
-        if (newNumberOfItems < 0) {
-          throw new IllegalArgumentException("The number of items can't be negative.");
-        } else {
-          items.setNewNumberOfItems(newNumberOfItems);
+    long start = metrics.start();
+    try {
+      String key = itemKey(itemNumber);
+      long sequence = 0;
+      synchronized (lockFor(key)) {
+        Item item = itemsByItemNumber.get(key);
+        if (item != null) {
+          int newNumberOfItems = item.getNumberOfItems() - subtractNumberOfItems;
+          if (newNumberOfItems < 0) {
+            throw new IllegalArgumentException("The number of items can't be negative.");
+          } else {
+            sequence = replaceItem(key, item, item.withNewNumberOfItems(newNumberOfItems));
+          }
         }
       }
+      awaitDurable(sequence);
+    } finally {
+      metrics.stop(RegisterMetrics.Operation.STOCK_CHANGE, start);
+    }
+  }
+
+  /** Method to make many changes to the number of items at once, like a goods receipt or
+   * a pick list. The changes to the same item are added together first. Either every
+   * change is made, or none of them are made if an item doesn't exist or would get a
+   * negative number of items. The changes are logged together, so they are restored
+   * together after a restart.
+   *
+   * @param movements the changes to make as a Collection of StockMovement
+   */
+  public void moveStock(Collection<StockMovement> movements) {
+    long start = metrics.start();
+    try {
+      LinkedHashMap<String, Long> changes = new LinkedHashMap<>();
+      HashMap<String, String> itemNumbers = new HashMap<>();
+      for (StockMovement movement : movements) {
+        String key = itemKey(movement.getItemNumber());
+        changes.merge(key, (long) movement.getChange(), Long::sum);
+        itemNumbers.putIfAbsent(key, movement.getItemNumber());
+      }
+      if (changes.isEmpty()) {
+        return;
+      }
+
+      int[] stripes = changes.keySet().stream()
+          .mapToInt(ItemRegister::stripeOf).distinct().sorted().toArray();
+      long[] sequence = new long[1];
+      lockStripes(stripes, 0, () -> {
+        ArrayList<Item> oldItems = new ArrayList<>(changes.size());
+        ArrayList<Item> newItems = new ArrayList<>(changes.size());
+        for (Map.Entry<String, Long> change : changes.entrySet()) {
+          Item item = itemsByItemNumber.get(change.getKey());
+          if (item == null) {
+            throw new IllegalArgumentException("The item " + itemNumbers.get(change.getKey())
+                + " doesn't exist.");
+          }
+          long newNumberOfItems = item.getNumberOfItems() + change.getValue();
+          if (newNumberOfItems < 0) {
+            throw new IllegalArgumentException("The number of items of "
+                + item.getItemNumber() + " can't be negative.");
+          }
+          if (newNumberOfItems > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The number of items of "
+                + item.getItemNumber() + " is too large.");
+          }
+          if (newNumberOfItems != item.getNumberOfItems()) {
+            oldItems.add(item);
+            newItems.add(item.withNewNumberOfItems((int) newNumberOfItems));
+          }
+        }
+        for (int i = 0; i < newItems.size(); i++) {
+          updateItem(itemKey(newItems.get(i).getItemNumber()), oldItems.get(i), newItems.get(i));
+        }
+        ItemLog currentLog = log;
+        if (currentLog != null && !newItems.isEmpty()) {
+          sequence[0] = currentLog.logStockMovement(newItems);
+        }
+      });
+      awaitDurable(sequence[0]);
+    } finally {
+      metrics.stop(RegisterMetrics.Operation.STOCK_CHANGE, start);
     }
   }
 
@@ -188,24 +702,46 @@ public class ItemRegister {
    * @param newPrice the new price of item as double
    */
   public void changePriceItem(String itemNumber, double newPrice) {
-    for (Item items : allItems) {
-      if (items.getItemNumber().equalsIgnoreCase(itemNumber)) {
-        items.setNewPrice(newPrice);
+    long start = metrics.start();
+    try {
+      Item.checkPrice(newPrice);
+      String key = itemKey(itemNumber);
+      long sequence = 0;
+      synchronized (lockFor(key)) {
+        Item item = itemsByItemNumber.get(key);
+        if (item != null) {
+          sequence = replaceItem(key, item, item.withNewPrice(newPrice));
+        }
       }
+      awaitDurable(sequence);
+    } finally {
+      metrics.stop(RegisterMetrics.Operation.PRICE_CHANGE, start);
     }
   }
 
   /** Method to create a discount on an item.
    *
    * @param itemNumber item number as String
-   * @param discountPercent the discount in percent as double
+   * @param discountPercent the discount in percent, between 0 and 100, as double
    */
   public void giveDiscountItem(String itemNumber, double discountPercent) {
-    for (Item items : allItems) {
-      if (items.getItemNumber().equalsIgnoreCase(itemNumber)) {
-        double newPrice = items.getPrice() - ((items.getPrice() * discountPercent) / 100);
-        items.setNewPrice(newPrice);
+    long start = metrics.start();
+    try {
+      if (!(discountPercent >= 0 && discountPercent <= 100)) {
+        throw new IllegalArgumentException("The discount must be between 0% and 100%.");
       }
+      String key = itemKey(itemNumber);
+      long sequence = 0;
+      synchronized (lockFor(key)) {
+        Item item = itemsByItemNumber.get(key);
+        if (item != null) {
+          double newPrice = item.getPrice() - ((item.getPrice() * discountPercent) / 100);
+          sequence = replaceItem(key, item, item.withNewPrice(newPrice));
+        }
+      }
+      awaitDurable(sequence);
+    } finally {
+      metrics.stop(RegisterMetrics.Operation.PRICE_CHANGE, start);
     }
   }
 
@@ -214,54 +750,356 @@ public class ItemRegister {
    * @param newDescription description of item as String
    */
   public void changeDescriptionItem(String itemNumber, String newDescription) {
-    for (Item items : allItems) {
-      if (items.getItemNumber().equalsIgnoreCase(itemNumber)) {
-        items.setNewDescription(newDescription);
+    long start = metrics.start();
+    try {
+      String key = itemKey(itemNumber);
+      long sequence = 0;
+      synchronized (lockFor(key)) {
+        Item item = itemsByItemNumber.get(key);
+        if (item != null) {
+          sequence = replaceItem(key, item, item.withNewDescription(newDescription));
+        }
+      }
+      awaitDurable(sequence);
+    } finally {
+      metrics.stop(RegisterMetrics.Operation.DESCRIPTION_CHANGE, start);
+    }
+  }
+
+  /** Method to put a changed item in the place of the old item, in the register and in
+   * every index, and to log the change. Must be called while holding the lock for the
+   * item.
+   *
+   * @param key the normalized item number as String
+   * @param oldItem the registered item as Item
+   * @param newItem the changed item as Item
+   * @return returns the sequence number of the logged change, or 0 without a log, as long
+   */
+  private long replaceItem(String key, Item oldItem, Item newItem) {
+    checkLoggable(newItem);
+    updateItem(key, oldItem, newItem);
+    ItemLog currentLog = log;
+    return currentLog == null ? 0 : currentLog.logChange(oldItem, newItem);
+  }
+
+  /** Method to check that a new or changed item can be logged, before the register is
+   * changed, so the register never keeps a change that couldn't be logged.
+   *
+   * @param item the new or changed item as Item
+   */
+  private void checkLoggable(Item item) {
+    if (log != null) {
+      ItemLog.checkItem(item);
+    }
+  }
+
+  private void updateItem(String key, Item oldItem, Item newItem) {
+    versions.itemReplaced(key, oldItem);
+    itemsByItemNumber.put(key, newItem);
+    if (oldItem.getItemCategory() != newItem.getItemCategory()) {
+      synchronized (allItems) {
+        itemsByCategory.get(oldItem.getItemCategory()).remove(key);
+        itemsByCategory.get(newItem.getItemCategory()).add(key);
+      }
+    }
+    aggregates.replaceItem(oldItem, newItem);
+    searchIndex.replaceItem(oldItem, newItem);
+    priceIndex.replaceItem(oldItem, newItem);
+    for (SortedItemView view : sortedViews) {
+      view.replaceItem(oldItem, newItem);
+    }
+    queryCache.itemChanged(oldItem, newItem);
+    reorderMonitor.itemChanged(oldItem, newItem);
+    changeFeed.publish(oldItem, newItem);
+  }
+
+  /** Method to wait until a logged change is saved on disk. The change is already made
+   * in the register when this is called, so it is kept even if it couldn't be saved.
+   *
+   * @param sequence the sequence number of the logged change, or 0, as long
+   */
+  private void awaitDurable(long sequence) {
+    ItemLog currentLog = log;
+    if (currentLog != null && sequence > 0) {
+      try {
+        currentLog.awaitDurable(sequence);
+      } catch (IOException e) {
+        throw new UncheckedIOException("The change couldn't be saved.", e);
+      }
+    }
+  }
+
+  /** Method to start logging every change to the register. The items already in the
+   * register are not logged.
+   *
+   * @param log the log to write to as ItemLog, or null to stop logging
+   */
+  void setLog(ItemLog log) {
+    this.log = log;
+  }
+
+  /** Method to run an action while no item in the register can be changed, for example
+   * to save a snapshot of the register that matches the log.
+   *
+   * @param action the action to run as Runnable
+   */
+  void runWhileUnchanged(Runnable action) {
+    lockStripes(ALL_STRIPES, 0, action);
+  }
+
+  /** Method to open a snapshot of the register, to read every item as it is now while
+   * the register keeps changing. Opening a snapshot waits for the changes being made to
+   * finish, but only holds up new changes while the version is pinned. The item numbers
+   * are listed afterwards, and the versions kept since the pin tell which of them were in
+   * use at the version. Items deleted since the pin come last in the snapshot. The
+   * snapshot must be closed when it is no longer used.
+   *
+   * @return returns the snapshot as RegisterSnapshot
+   */
+  public RegisterSnapshot openSnapshot() {
+    return openSnapshot(() -> { });
+  }
+
+  /** Method to open a snapshot of the register, and run an action at the moment the
+   * version is pinned, while no item can be changed. Starting to follow the change feed
+   * in the action gives exactly the changes made after the snapshot.
+   *
+   * @param atVersion the action to run as Runnable
+   * @return returns the snapshot as RegisterSnapshot
+   */
+  RegisterSnapshot openSnapshot(Runnable atVersion) {
+    long[] pinned = new long[1];
+    runWhileUnchanged(() -> {
+      pinned[0] = versions.pin();
+      atVersion.run();
+    });
+    long version = pinned[0];
+
+    ArrayList<String> registered;
+    synchronized (allItems) {
+      registered = new ArrayList<>(allItems);
+    }
+    Set<String> changedKeys = versions.getChangedKeys();
+    ArrayList<String> keys = new ArrayList<>(registered.size());
+    for (String key : registered) {
+      if (!changedKeys.contains(key)
+          || versions.itemAt(key, itemsByItemNumber.get(key), version) != null) {
+        keys.add(key);
+      }
+    }
+    if (!changedKeys.isEmpty()) {
+      HashSet<String> registeredKeys = new HashSet<>(registered);
+      for (String key : changedKeys) {
+        if (!registeredKeys.contains(key)
+            && versions.itemAt(key, itemsByItemNumber.get(key), version) != null) {
+          keys.add(key);
+        }
+      }
+    }
+    return new RegisterSnapshot(this, versions, version, keys);
+  }
+
+  /** Method to run an action while holding the locks of some stripes. The locks are
+   * always taken in increasing order, so two threads locking several stripes can't wait
+   * for each other.
+   *
+   * @param stripes the stripes to lock, sorted, as an array of int
+   * @param index the first stripe in the array not locked yet as int
+   * @param action the action to run as Runnable
+   */
+  private void lockStripes(int[] stripes, int index, Runnable action) {
+    if (index == stripes.length) {
+      action.run();
+    } else {
+      synchronized (itemLocks[stripes[index]]) {
+        lockStripes(stripes, index + 1, action);
       }
     }
   }
 
   /** Method to sort items by price.
    *
-   * @return returns list sorted by price
+   * @return returns a read-only view of the items sorted by price
    */
-  public ArrayList<Item> sortItemsByPrice() {
-    allItems.sort(Comparator.comparing(Item::getPrice));
-    return allItems;
+  public Collection<Item> sortItemsByPrice() {
+    return itemsByPrice;
   }
 
   /** Method to sort items by color.
    *
-   * @return returns list sorted by color
+   * @return returns a read-only view of the items sorted by color
    */
-  public ArrayList<Item> sortItemsByColor() {
-    allItems.sort(Comparator.comparing(Item::getColor));
-    return allItems;
+  public Collection<Item> sortItemsByColor() {
+    return itemsByColor;
   }
 
   /** Method to sort items by brand name.
    *
-   * @return returns list sorted by brand name
+   * @return returns a read-only view of the items sorted by brand name
    */
-  public ArrayList<Item> sortItemsByBrandName() {
-    allItems.sort(Comparator.comparing(Item::getBrandName));
-    return allItems;
+  public Collection<Item> sortItemsByBrandName() {
+    return itemsByBrandName;
+  }
+
+  /** Method to make a view of the items sorted in an order. The view is kept sorted as
+   * the items change for as long as the register exists, and makes every change a little
+   * slower, so only the views of the register are made, when it is made.
+   *
+   * @param comparator the order of the items as Comparator
+   * @return returns a read-only view of the items in the chosen order
+   */
+  private SortedItemView getSortedView(Comparator<Item> comparator) {
+    SortedItemView view = new SortedItemView(comparator);
+    sortedViews.add(view);
+    for (Map.Entry<String, Item> entry : itemsByItemNumber.entrySet()) {
+      synchronized (lockFor(entry.getKey())) {
+        if (itemsByItemNumber.get(entry.getKey()) == entry.getValue()) {
+          view.addItem(entry.getValue());
+        }
+      }
+    }
+    return view;
   }
 
   /** Method to find all items within a price-range.
    *
-   * @return returns list of all items between the two chosen prices
+   * @return returns list of all items between the two chosen prices, sorted by price
    */
   public ArrayList<Item> getAllItemsBetweenPrice(double startPrice, double endPrice) {
-    ArrayList<Item> itemsBetweenPrices = new ArrayList<>();
-    for (Item items : allItems) {
-      if (items.getPrice() >= startPrice && items.getPrice() <= endPrice) {
-        Item deepCopy = new Item(items);
-        itemsBetweenPrices.add(deepCopy);
-        return itemsBetweenPrices;
+    ArrayList<Item> itemsBetweenPrices = getAllItemsBetweenPrice(startPrice, endPrice, 0,
+        Integer.MAX_VALUE);
+    if (itemsBetweenPrices.isEmpty()) {
+      throw new IllegalArgumentException("Couldn't find any items.");
+    }
+    return itemsBetweenPrices;
+  }
+
+  /** Method to find one page of the items within a price-range.
+   *
+   * @param startPrice the lowest price as double
+   * @param endPrice the highest price as double
+   * @param offset number of items in the price-range to skip as int
+   * @param limit the highest number of items on the page as int
+   * @return returns list of the items on the page, sorted by price
+   */
+  public ArrayList<Item> getAllItemsBetweenPrice(double startPrice, double endPrice, int offset,
+                                                 int limit) {
+    long start = metrics.start();
+    try {
+      if (offset < 0 || limit < 0) {
+        throw new IllegalArgumentException("The offset and limit can't be negative numbers.");
       }
+      return queryCache.get(ItemQueryCache.Query.byPrice(startPrice, endPrice, offset, limit),
+          () -> priceIndex.findBetween(startPrice, endPrice, offset, limit));
+    } finally {
+      metrics.stop(RegisterMetrics.Operation.SEARCH, start);
+    }
+  }
+
+  /** Method to find the page of items within a price-range that comes after the last
+   * item of the previous page. Unlike paging with an offset, the page is found without
+   * going through the items before it, so a page far into a wide price-range is as fast
+   * as the first one. The pages are not cached.
+   *
+   * @param startPrice the lowest price as double
+   * @param endPrice the highest price as double
+   * @param after the last item of the previous page, or null for the first page, as Item
+   * @param limit the highest number of items on the page as int
+   * @return returns list of the items on the page, sorted by price
+   */
+  public ArrayList<Item> getItemsBetweenPriceAfter(double startPrice, double endPrice,
+                                                   Item after, int limit) {
+    long start = metrics.start();
+    try {
+      return priceIndex.findAfter(startPrice, endPrice, after, limit);
+    } finally {
+      metrics.stop(RegisterMetrics.Operation.SEARCH, start);
     }
-    throw new IllegalArgumentException("Couldn't find any items.");
+  }
+
+  /** Method to go through the items within a price-range, sorted by price, straight from
+   * the price index. The items are not collected in a list or cached, so a wide
+   * price-range can be sent without holding it in memory. Items changed while going
+   * through may or may not be seen.
+   *
+   * @param startPrice the lowest price as double
+   * @param endPrice the highest price as double
+   * @return returns the items within the price-range as Iterable
+   */
+  Iterable<Item> itemsBetweenPrice(double startPrice, double endPrice) {
+    return priceIndex.itemsBetween(startPrice, endPrice);
+  }
+
+  /** Method to go through the items within a price-range that come after the last item
+   * already sent, sorted by price, straight from the price index. The index goes
+   * straight to the first item, so a page far into a wide price-range is as fast to send
+   * as the first one.
+   *
+   * @param startPrice the lowest price as double
+   * @param endPrice the highest price as double
+   * @param afterPrice the price of the last item already sent as double
+   * @param afterItemNumber the item number of the last item already sent as String
+   * @return returns the items within the price-range after the item as Iterable
+   */
+  Iterable<Item> itemsBetweenPrice(double startPrice, double endPrice, double afterPrice,
+                                   String afterItemNumber) {
+    return priceIndex.itemsAfter(startPrice, endPrice, afterPrice, afterItemNumber);
+  }
+
+  /** Method to get the cache of query results, to change its size and time to live or
+   * read how often it is used.
+   *
+   * @return returns the query cache of the register as ItemQueryCache
+   */
+  public ItemQueryCache getQueryCache() {
+    return queryCache;
+  }
+
+  /** Method to get the feed of changes to the register, to follow the changes as they
+   * are made.
+   *
+   * @return returns the change feed of the register as ItemChangeFeed
+   */
+  public ItemChangeFeed getChangeFeed() {
+    return changeFeed;
+  }
+
+  /** Method to get the monitor of reorder points, to set the reorder points and find the
+   * items that must be ordered.
+   *
+   * @return returns the reorder monitor of the register as ReorderMonitor
+   */
+  public ReorderMonitor getReorderMonitor() {
+    return reorderMonitor;
+  }
+
+  /** Method to get the metrics of the register, to read how often each operation runs
+   * and how long it takes.
+   *
+   * @return returns the metrics of the register as RegisterMetrics
+   */
+  public RegisterMetrics getMetrics() {
+    return metrics;
+  }
+
+  /** Method to find the number of entries in the register and its indexes, for the
+   * metrics. Only sizes that can be found without counting the entries are included.
+   *
+   * @return returns the sizes by name
+   */
+  private Map<String, Long> getSizes() {
+    LinkedHashMap<String, Long> sizes = new LinkedHashMap<>();
+    sizes.put("items", (long) itemsByItemNumber.size());
+    sizes.put("individual items", aggregates.getTotals().getNumberOfIndividualItems());
+    sizes.put("indexed texts", (long) searchIndex.getNumberOfTexts());
+    sizes.put("indexed n-grams", (long) searchIndex.getNumberOfGrams());
+    sizes.put("sorted views", (long) sortedViews.size());
+    sizes.put("cached query results", (long) queryCache.getNumberOfEntries());
+    sizes.put("change feed subscribers", (long) changeFeed.getNumberOfSubscribers());
+    sizes.put("items needing reorder", (long) reorderMonitor.getNumberOfItemsNeedingReorder());
+    sizes.put("open snapshots", (long) versions.getNumberOfPins());
+    sizes.put("items with kept versions", (long) versions.getNumberOfChangedItems());
+    return sizes;
   }
 
   /** Method to find number of items in storage.
@@ -269,7 +1107,7 @@ public class ItemRegister {
    * @return returns number of items in storage as int
    */
   public int getNumberOfItems() {
-    return allItems.size();
+    return itemsByItemNumber.size();
   }
 
   /** Method to find number of individual items in storage.
@@ -277,11 +1115,7 @@ public class ItemRegister {
    * @return returns number of individual items in storage as int
    */
   public int getNumberOfIndividualItems() {
-    int sum = 0;
-    for (Item items : allItems) {
-      sum += items.getNumberOfItems();
-    }
-    return sum;
+    return (int) aggregates.getTotals().getNumberOfIndividualItems();
   }
 
   /** Method to add default testdata to the itemRegister.
@@ -306,10 +1140,37 @@ public class ItemRegister {
    * @param itemNumber item number as String
    */
   public void deleteItem(String itemNumber) {
-    for (int i = 0; i < getNumberOfItems(); i++) {
-      if (allItems.get(i).getItemNumber().equalsIgnoreCase(itemNumber)) {
-        allItems.remove(allItems.get(i));
+    long start = metrics.start();
+    try {
+      String key = itemKey(itemNumber);
+      long sequence = 0;
+      synchronized (lockFor(key)) {
+        Item item = itemsByItemNumber.get(key);
+        if (item != null) {
+          versions.itemReplaced(key, item);
+          itemsByItemNumber.remove(key);
+          synchronized (allItems) {
+            allItems.remove(key);
+            itemsByCategory.get(item.getItemCategory()).remove(key);
+          }
+          aggregates.removeItem(item);
+          searchIndex.removeItem(item);
+          priceIndex.removeItem(item);
+          for (SortedItemView view : sortedViews) {
+            view.removeItem(item);
+          }
+          queryCache.itemChanged(item, null);
+          reorderMonitor.itemChanged(item, null);
+          changeFeed.publish(item, null);
+          ItemLog currentLog = log;
+          if (currentLog != null) {
+            sequence = currentLog.logDeleteItem(item.getItemNumber());
+          }
+        }
       }
+      awaitDurable(sequence);
+    } finally {
+      metrics.stop(RegisterMetrics.Operation.DELETE_ITEM, start);
     }
   }
 }
\ No newline at end of file
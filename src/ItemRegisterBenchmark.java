@@ -0,0 +1,246 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+/** A class measuring how long the register operations take, for registers of different
+ * sizes filled with items from {@link ItemGenerator}. Every operation is run a few times
+ * to warm up before it is measured, and the results are written as JSON so that two runs
+ * can be compared.
+ *
+ * <p>Usage: {@code java ItemRegisterBenchmark [--sizes 1000,100000] [--warmup 3]
+ * [--iterations 5] [--register heap|mapped] [--out results.json]}. A register of 10
+ * million items needs a few gigabytes of heap. With {@code --register mapped} a
+ * {@link MappedItemRegister} in a temporary directory is measured instead, for the
+ * operations it has. The query cache of the register is turned off, so that every query
+ * is measured as a search.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class ItemRegisterBenchmark {
+
+  private static final int[] DEFAULT_SIZES = {1_000, 10_000, 100_000, 1_000_000, 10_000_000};
+  private static final int LOOKUPS_PER_ITERATION = 100_000;
+  private static final int DELETES = 10_000;
+  private static final long SEED = 42;
+
+  private final int warmupIterations;
+  private final int measuredIterations;
+  private final String register;
+  private final ArrayList<String> results;
+  private long sink;  // results are added here, so the JIT can't skip the operations
+
+  /** Constructor for the class.
+   *
+   * @param warmupIterations number of iterations run before measuring as int
+   * @param measuredIterations number of iterations measured as int
+   * @param register the register measured, heap or mapped, as String
+   */
+  public ItemRegisterBenchmark(int warmupIterations, int measuredIterations, String register) {
+
+    this.warmupIterations = warmupIterations;
+    this.measuredIterations = measuredIterations;
+    this.register = register;
+    this.results = new ArrayList<>();
+  }
+
+  /** The main start of the benchmark.
+   *
+   * @param args Commandline arguments as an array of String
+   * @throws IOException if the results can't be written
+   */
+  public static void main(String[] args) throws IOException {
+    int[] sizes = DEFAULT_SIZES;
+    int warmup = 3;
+    int iterations = 5;
+    Path out = null;
+    String register = "heap";
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      switch (args[i]) {
+        case "--sizes" -> {
+          String[] parts = args[i + 1].split(",");
+          sizes = new int[parts.length];
+          for (int j = 0; j < parts.length; j++) {
+            sizes[j] = Integer.parseInt(parts[j].trim().replace("_", ""));
+          }
+        }
+        case "--warmup" -> warmup = Integer.parseInt(args[i + 1]);
+        case "--iterations" -> iterations = Integer.parseInt(args[i + 1]);
+        case "--out" -> out = Path.of(args[i + 1]);
+        case "--register" -> register = args[i + 1];
+        default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+
+    if (!register.equals("heap") && !register.equals("mapped")) {
+      throw new IllegalArgumentException("The register must be heap or mapped.");
+    }
+    ItemRegisterBenchmark benchmark = new ItemRegisterBenchmark(warmup, iterations, register);
+    for (int size : sizes) {
+      if (register.equals("mapped")) {
+        benchmark.runMapped(size);
+      } else {
+        benchmark.run(size);
+      }
+    }
+    String json = benchmark.toJson();
+    if (out == null) {
+      System.out.println(json);
+    } else {
+      Files.writeString(out, json);
+      System.out.println("Results written to " + out);
+    }
+  }
+
+  /** Method to run every benchmark for one size of register.
+   *
+   * @param size number of items in the register as int
+   */
+  public void run(int size) {
+    int loads = size <= 100_000 ? warmupIterations + measuredIterations : 1;
+    ItemRegister itemRegister = null;
+    double[] loadTimes = new double[loads];
+    for (int i = 0; i < loads; i++) {
+      itemRegister = new ItemRegister();
+      long start = System.nanoTime();
+      new ItemGenerator(SEED).fill(itemRegister, size);
+      loadTimes[i] = (System.nanoTime() - start) / (double) size;
+    }
+    int firstMeasured = loads == 1 ? 0 : warmupIterations;
+    record("newItem", size, size, loadTimes, firstMeasured);
+
+    ItemRegister filled = itemRegister;
+    // The categories and words repeat, so with the query cache on most queries would be
+    // measured as cache hits instead of as searches.
+    filled.getQueryCache().setMaxEntries(0);
+    Random random = new Random(SEED);
+    ItemGenerator words = new ItemGenerator(SEED);
+    int scans = Math.max(1, 1_000_000 / size);
+
+    measure("getItemWithItemNumber", size, LOOKUPS_PER_ITERATION, i ->
+        sink += filled.getItemWithItemNumber(
+            ItemGenerator.itemNumber(random.nextInt(size))).getNumberOfItems());
+    measure("getItemWithDescription", size, Math.max(10, scans), i ->
+        sink += filled.getItemWithDescription(words.word() + " and").size());
+    measure("getItemsByCategory", size, scans, i ->
+        sink += filled.getItemsByCategory(1 + random.nextInt(4)).size());
+    measure("getAllItemsBetweenPrice", size, Math.max(10, scans), i -> {
+      double start = 10 + random.nextInt(4_900);
+      sink += filled.getAllItemsBetweenPrice(start, start + 10, 0, Integer.MAX_VALUE).size();
+    });
+    measure("sortItemsByPrice", size, scans, i -> iterate(filled.sortItemsByPrice()));
+    measure("sortItemsByColor", size, scans, i -> iterate(filled.sortItemsByColor()));
+    measure("sortItemsByBrandName", size, scans, i -> iterate(filled.sortItemsByBrandName()));
+    measure("getNumberOfIndividualItems", size, scans, i ->
+        sink += filled.getNumberOfIndividualItems());
+
+    int deletes = Math.min(DELETES, size);
+    long start = System.nanoTime();
+    for (int i = 0; i < deletes; i++) {
+      filled.deleteItem(ItemGenerator.itemNumber(i));
+    }
+    record("deleteItem", size, deletes,
+        new double[] {(System.nanoTime() - start) / (double) deletes}, 0);
+  }
+
+  /** Method to run the benchmarks of the operations a {@link MappedItemRegister} has, for
+   * one size of register. The register is made in a temporary directory, which is
+   * deleted afterwards.
+   *
+   * @param size number of items in the register as int
+   * @throws IOException if the register can't be made or deleted
+   */
+  public void runMapped(int size) throws IOException {
+    Path directory = Files.createTempDirectory("mapped-register");
+    try (MappedItemRegister filled = MappedItemRegister.open(directory)) {
+      long start = System.nanoTime();
+      new ItemGenerator(SEED).fill(filled, size);
+      record("newItem", size, size, new double[] {(System.nanoTime() - start) / (double) size},
+          0);
+
+      Random random = new Random(SEED);
+      int scans = Math.max(1, 1_000_000 / size);
+      measure("getItemWithItemNumber", size, LOOKUPS_PER_ITERATION, i ->
+          sink += filled.getItemWithItemNumber(
+              ItemGenerator.itemNumber(random.nextInt(size))).getNumberOfItems());
+      measure("getItemsByCategory", size, scans, i ->
+          sink += filled.getItemsByCategory(1 + random.nextInt(4)).size());
+      measure("getAllItemsBetweenPrice", size, Math.max(10, scans), i -> {
+        double low = 10 + random.nextInt(4_900);
+        try {
+          sink += filled.getAllItemsBetweenPrice(low, low + 10).size();
+        } catch (IllegalArgumentException e) {
+          // No items in the price-range.
+        }
+      });
+      measure("getNumberOfIndividualItems", size, scans, i ->
+          sink += filled.getNumberOfIndividualItems());
+
+      int deletes = Math.min(DELETES, size);
+      start = System.nanoTime();
+      for (int i = 0; i < deletes; i++) {
+        filled.deleteItem(ItemGenerator.itemNumber(i));
+      }
+      record("deleteItem", size, deletes,
+          new double[] {(System.nanoTime() - start) / (double) deletes}, 0);
+    } finally {
+      try (Stream<Path> files = Files.list(directory)) {
+        for (Path file : files.toList()) {
+          Files.delete(file);
+        }
+      }
+      Files.delete(directory);
+    }
+  }
+
+  private void iterate(Iterable<Item> items) {
+    for (Item item : items) {
+      sink += item.getNumberOfItems();
+    }
+  }
+
+  private void measure(String name, int size, int operations, IntConsumer operation) {
+    double[] times = new double[warmupIterations + measuredIterations];
+    for (int iteration = 0; iteration < times.length; iteration++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < operations; i++) {
+        operation.accept(i);
+      }
+      times[iteration] = (System.nanoTime() - start) / (double) operations;
+    }
+    record(name, size, operations, times, warmupIterations);
+  }
+
+  private void record(String name, int size, int operations, double[] nanosPerOperation,
+                      int firstMeasured) {
+    double sum = 0;
+    double min = Double.MAX_VALUE;
+    double max = 0;
+    int count = nanosPerOperation.length - firstMeasured;
+    for (int i = firstMeasured; i < nanosPerOperation.length; i++) {
+      sum += nanosPerOperation[i];
+      min = Math.min(min, nanosPerOperation[i]);
+      max = Math.max(max, nanosPerOperation[i]);
+    }
+    double mean = sum / count;
+    results.add(String.format(Locale.ROOT, "  {\"benchmark\": \"%s\", \"register\": \"%s\", "
+            + "\"size\": %d, \"operationsPerIteration\": %d, \"iterations\": %d, "
+            + "\"nsPerOp\": %.1f, \"minNsPerOp\": %.1f, \"maxNsPerOp\": %.1f, "
+            + "\"opsPerSecond\": %.1f}",
+        name, register, size, operations, count, mean, min, max, 1e9 / mean));
+    System.err.printf(Locale.ROOT, "%-26s %,12d items %,14.1f ns/op%n", name, size, mean);
+  }
+
+  /** Method to get the results of every benchmark run so far.
+   *
+   * @return returns the results as a JSON array as String
+   */
+  public String toJson() {
+    return "[\n" + String.join(",\n", results) + "\n]\n";
+  }
+}
@@ -0,0 +1,344 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/** A class indexing the description, brand name and color of the items in the register,
+ * so that text searches only have to look at the items sharing a piece of text with the
+ * search, instead of every item.
+ *
+ * <p>Many items share the same text, like a brand name or a color, so each field keeps
+ * the item numbers of the items with each different text, and only the different texts
+ * are split into all their substrings of up to three characters (n-grams). A search
+ * term of up to three characters is looked up directly, and a longer term is looked up
+ * with its rarest three character piece before the texts are checked. Several threads
+ * can search at once, while adding and removing items waits for the searches to finish.
+ *
+ * <p>The index holds item numbers, not items, and finds the current item in the register
+ * when it is searched. Only the texts that changed are indexed again when an item is
+ * changed.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class ItemSearchIndex {
+
+  private static final int GRAM_LENGTH = 3;
+  private static final int DESCRIPTION_SCORE = 3;
+  private static final int BRAND_NAME_SCORE = 2;
+  private static final int COLOR_SCORE = 1;
+  private static final int WORD_START_SCORE = 1;
+
+  private final TextIndex descriptions;
+  private final TextIndex brandNames;
+  private final TextIndex colors;
+  private final Function<String, Item> itemLookup;
+  private final ReentrantReadWriteLock lock;
+
+  /** Constructor for the class.
+   *
+   * @param itemLookup finds the registered item with an item number, or null
+   */
+  public ItemSearchIndex(Function<String, Item> itemLookup) {
+
+    this.itemLookup = itemLookup;
+    descriptions = new TextIndex();
+    brandNames = new TextIndex();
+    colors = new TextIndex();
+    lock = new ReentrantReadWriteLock();
+  }
+
+  /** Method to normalize a text before it is indexed or searched for.
+   *
+   * @param text text as String
+   * @return returns the text in lower case as String
+   */
+  private static String normalize(String text) {
+    return text.toLowerCase(Locale.ROOT);
+  }
+
+  /** Method to add a new item to the index.
+   *
+   * @param item the registered item as Item
+   */
+  public void addItem(Item item) {
+    lock.writeLock().lock();
+    try {
+      descriptions.add(item.getDescription(), item.getItemNumber());
+      brandNames.add(item.getBrandName(), item.getItemNumber());
+      colors.add(item.getColor(), item.getItemNumber());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Method to remove a deleted item from the index.
+   *
+   * @param item the registered item as Item
+   */
+  public void removeItem(Item item) {
+    lock.writeLock().lock();
+    try {
+      descriptions.remove(item.getDescription(), item.getItemNumber());
+      brandNames.remove(item.getBrandName(), item.getItemNumber());
+      colors.remove(item.getColor(), item.getItemNumber());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Method to update the index after an item is changed. Only the texts that changed
+   * are indexed again. The brand name and color only change when a copied item is put in
+   * place of another.
+   *
+   * @param oldItem the item before the change as Item
+   * @param newItem the item after the change as Item
+   */
+  public void replaceItem(Item oldItem, Item newItem) {
+    boolean sameItemNumber = oldItem.getItemNumber().equals(newItem.getItemNumber());
+    if (sameItemNumber && oldItem.getDescription().equals(newItem.getDescription())
+        && oldItem.getBrandName().equals(newItem.getBrandName())
+        && oldItem.getColor().equals(newItem.getColor())) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      replaceText(descriptions, oldItem.getDescription(), newItem.getDescription(),
+          oldItem, newItem);
+      replaceText(brandNames, oldItem.getBrandName(), newItem.getBrandName(), oldItem,
+          newItem);
+      replaceText(colors, oldItem.getColor(), newItem.getColor(), oldItem, newItem);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private static void replaceText(TextIndex index, String oldText, String newText,
+                                  Item oldItem, Item newItem) {
+    if (!oldText.equals(newText) || !oldItem.getItemNumber().equals(newItem.getItemNumber())) {
+      index.remove(oldText, oldItem.getItemNumber());
+      index.add(newText, newItem.getItemNumber());
+    }
+  }
+
+  /** Method to find the number of different descriptions, brand names and colors in the
+   * index.
+   *
+   * @return returns the number of different texts as int
+   */
+  public int getNumberOfTexts() {
+    lock.readLock().lock();
+    try {
+      return descriptions.itemNumbersByText.size() + brandNames.itemNumbersByText.size()
+          + colors.itemNumbersByText.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Method to find the number of different n-grams in the index.
+   *
+   * @return returns the number of n-grams as int
+   */
+  public int getNumberOfGrams() {
+    lock.readLock().lock();
+    try {
+      return descriptions.textsByGram.size() + brandNames.textsByGram.size()
+          + colors.textsByGram.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Method to find all items with the text somewhere in the description. The search is
+   * case-sensitive against the lower case description, like the register search has
+   * always been. Items with the text earlier in the description come first.
+   *
+   * @param text text to search for as String
+   * @return returns the registered items with the text in the description
+   */
+  public ArrayList<Item> findByDescription(String text) {
+    ArrayList<Item> found = new ArrayList<>();
+    HashMap<Item, Integer> positions = new HashMap<>();
+
+    lock.readLock().lock();
+    try {
+      for (String description : descriptions.textsContaining(text)) {
+        int position = description.indexOf(text);
+        for (String itemNumber : descriptions.itemNumbersWith(description)) {
+          Item item = itemLookup.apply(itemNumber);
+          if (item != null) {
+            found.add(item);
+            positions.put(item, position);
+          }
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    found.sort(Comparator.<Item>comparingInt(positions::get)
+        .thenComparing(Item::getItemNumber));
+    return found;
+  }
+
+  /** Method to search for items with one or more words. Every word must be found in the
+   * description, brand name or color of an item. The items are ranked by where the
+   * words were found, a match in the description counts the most and a match in the
+   * color counts the least, and a match at the start of a word counts extra.
+   *
+   * @param query words to search for, separated by spaces, as String
+   * @return returns the registered items matching every word, best match first
+   */
+  public ArrayList<Item> search(String query) {
+    String[] terms = normalize(query).trim().split("\\s+");
+    HashMap<String, Integer> scores = null;
+
+    lock.readLock().lock();
+    try {
+      for (String term : terms) {
+        if (term.isEmpty()) {
+          continue;
+        }
+        HashMap<String, Integer> termScores = new HashMap<>();
+        scoreField(descriptions, term, DESCRIPTION_SCORE, termScores);
+        scoreField(brandNames, term, BRAND_NAME_SCORE, termScores);
+        scoreField(colors, term, COLOR_SCORE, termScores);
+
+        if (scores == null) {
+          scores = termScores;
+        } else {
+          scores.keySet().retainAll(termScores.keySet());
+          for (Map.Entry<String, Integer> entry : scores.entrySet()) {
+            entry.setValue(entry.getValue() + termScores.get(entry.getKey()));
+          }
+        }
+        if (scores.isEmpty()) {
+          break;
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    if (scores == null) {
+      return new ArrayList<>();
+    }
+
+    ArrayList<Item> ranked = new ArrayList<>(scores.size());
+    HashMap<Item, Integer> itemScores = new HashMap<>();
+    for (Map.Entry<String, Integer> entry : scores.entrySet()) {
+      Item item = itemLookup.apply(entry.getKey());
+      if (item != null) {
+        ranked.add(item);
+        itemScores.put(item, entry.getValue());
+      }
+    }
+    ranked.sort(Comparator.<Item>comparingInt(itemScores::get).reversed()
+        .thenComparing(Item::getItemNumber));
+    return ranked;
+  }
+
+  private static void scoreField(TextIndex field, String term, int score,
+                                 HashMap<String, Integer> termScores) {
+    for (String text : field.textsContaining(term)) {
+      int position = text.indexOf(term);
+      boolean wordStart = position == 0
+          || !Character.isLetterOrDigit(text.charAt(position - 1));
+      int textScore = wordStart ? score + WORD_START_SCORE : score;
+      for (String itemNumber : field.itemNumbersWith(text)) {
+        termScores.merge(itemNumber, textScore, Integer::sum);
+      }
+    }
+  }
+
+  /** The index of one field. Holds the item numbers of the items with each different
+   * text, and the n-grams of each different text.
+   */
+  private static final class TextIndex {
+    private final HashMap<String, HashSet<String>> itemNumbersByText = new HashMap<>();
+    private final HashMap<String, HashSet<String>> textsByGram = new HashMap<>();
+
+    private void add(String text, String itemNumber) {
+      String normalized = normalize(text);
+      HashSet<String> itemNumbers = itemNumbersByText.get(normalized);
+      if (itemNumbers == null) {
+        itemNumbers = new HashSet<>();
+        itemNumbersByText.put(normalized, itemNumbers);
+        for (String gram : grams(normalized)) {
+          textsByGram.computeIfAbsent(gram, key -> new HashSet<>()).add(normalized);
+        }
+      }
+      itemNumbers.add(itemNumber);
+    }
+
+    private void remove(String text, String itemNumber) {
+      String normalized = normalize(text);
+      HashSet<String> itemNumbers = itemNumbersByText.get(normalized);
+      if (itemNumbers == null || !itemNumbers.remove(itemNumber) || !itemNumbers.isEmpty()) {
+        return;
+      }
+      itemNumbersByText.remove(normalized);
+      for (String gram : grams(normalized)) {
+        HashSet<String> texts = textsByGram.get(gram);
+        if (texts != null) {
+          texts.remove(normalized);
+          if (texts.isEmpty()) {
+            textsByGram.remove(gram);
+          }
+        }
+      }
+    }
+
+    private static HashSet<String> grams(String text) {
+      HashSet<String> grams = new HashSet<>();
+      for (int start = 0; start < text.length(); start++) {
+        int maxEnd = Math.min(start + GRAM_LENGTH, text.length());
+        for (int end = start + 1; end <= maxEnd; end++) {
+          grams.add(text.substring(start, end));
+        }
+      }
+      return grams;
+    }
+
+    private Set<String> itemNumbersWith(String text) {
+      HashSet<String> itemNumbers = itemNumbersByText.get(text);
+      return itemNumbers == null ? Collections.emptySet() : itemNumbers;
+    }
+
+    /** Method to find the different texts containing the term. A term of up to three
+     * characters is an n-gram itself, and a longer term is looked up with its rarest
+     * n-gram before the texts are checked.
+     *
+     * @param term the search term as String
+     * @return returns the texts containing the term
+     */
+    private Set<String> textsContaining(String term) {
+      if (term.length() <= GRAM_LENGTH) {
+        HashSet<String> texts = textsByGram.get(term);
+        return texts == null ? Collections.emptySet() : texts;
+      }
+      HashSet<String> rarest = null;
+      for (int start = 0; start + GRAM_LENGTH <= term.length(); start++) {
+        HashSet<String> texts = textsByGram.get(term.substring(start, start + GRAM_LENGTH));
+        if (texts == null) {
+          return Collections.emptySet();
+        }
+        if (rarest == null || texts.size() < rarest.size()) {
+          rarest = texts;
+        }
+      }
+      HashSet<String> found = new HashSet<>();
+      for (String text : rarest) {
+        if (text.contains(term)) {
+          found.add(text);
+        }
+      }
+      return found;
+    }
+  }
+}
@@ -0,0 +1,167 @@
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A class keeping the older versions of changed items for as long as a
+ * {@link RegisterSnapshot} may need them, so that a snapshot reads every item as it was
+ * when the snapshot was made, while the register keeps changing.
+ *
+ * <p>Every snapshot pins the version of the register it was made at. While a version is
+ * pinned, every change to an item gets a new version number, and the item it replaces is
+ * kept in a chain of older versions of that item number, newest first. A new item is kept
+ * as a version without an item, so a snapshot knows the item number was not in use yet.
+ * A snapshot reads an item by following the chain back to the last item from before its
+ * version. Older versions are thrown away when no pinned snapshot can read them any more,
+ * and while nothing is pinned a change keeps no older versions at all.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+class ItemVersions {
+
+  private static final long NOT_PINNED = Long.MAX_VALUE;
+
+  private final ConcurrentHashMap<String, Version> chains;
+  private final AtomicLong clock;
+  private final TreeMap<Long, Integer> pinnedVersions;
+  private volatile long oldestPinnedVersion;
+
+  ItemVersions() {
+
+    chains = new ConcurrentHashMap<>();
+    clock = new AtomicLong();
+    pinnedVersions = new TreeMap<>();
+    oldestPinnedVersion = NOT_PINNED;
+  }
+
+  /** Method to keep the item that is about to be replaced or deleted, if a snapshot may
+   * need it. Must be called while holding the lock for the item, before the change can be
+   * seen in the register.
+   *
+   * @param key the normalized item number as String
+   * @param oldItem the registered item, or null for a new item, as Item
+   */
+  void itemReplaced(String key, Item oldItem) {
+    if (oldestPinnedVersion == NOT_PINNED) {
+      return;
+    }
+    long version = clock.incrementAndGet();
+    chains.compute(key, (k, chain) -> new Version(oldItem, version, trim(chain)));
+  }
+
+  /** Method to pin the current version, so that its items are kept until it is unpinned.
+   * Must be called while no item can be changed.
+   *
+   * @return returns the pinned version as long
+   */
+  long pin() {
+    long version = clock.get();
+    synchronized (pinnedVersions) {
+      pinnedVersions.merge(version, 1, Integer::sum);
+      oldestPinnedVersion = pinnedVersions.firstKey();
+    }
+    return version;
+  }
+
+  /** Method to unpin a version, and throw away the older items no snapshot needs any
+   * more.
+   *
+   * @param version the pinned version as long
+   */
+  void unpin(long version) {
+    long oldestBefore;
+    synchronized (pinnedVersions) {
+      oldestBefore = oldestPinnedVersion;
+      if (pinnedVersions.merge(version, -1, Integer::sum) == 0) {
+        pinnedVersions.remove(version);
+      }
+      oldestPinnedVersion = pinnedVersions.isEmpty() ? NOT_PINNED : pinnedVersions.firstKey();
+    }
+    if (oldestPinnedVersion != oldestBefore) {
+      for (String key : chains.keySet()) {
+        chains.computeIfPresent(key, (k, chain) -> trim(chain));
+      }
+    }
+  }
+
+  /** Method to find the item an item number had at a pinned version.
+   *
+   * @param key the normalized item number as String
+   * @param current the item registered now, read before calling this, or null
+   * @param version the pinned version as long
+   * @return returns the item at the version, or null if it didn't exist
+   */
+  Item itemAt(String key, Item current, long version) {
+    Item item = current;
+    for (Version older = chains.get(key); older != null && older.replacedAt > version;
+         older = older.older) {
+      item = older.item;
+    }
+    return item;
+  }
+
+  /** Method to cut the versions off a chain that no pinned snapshot can read. A snapshot
+   * only reads the versions replaced after the version it pinned.
+   *
+   * @param chain the newest older version of an item as Version, or null
+   * @return returns the versions still needed, or null if none are
+   */
+  private Version trim(Version chain) {
+    long oldest = oldestPinnedVersion;
+    if (chain == null || chain.replacedAt <= oldest) {
+      return null;
+    }
+    for (Version version = chain; version.older != null; version = version.older) {
+      if (version.older.replacedAt <= oldest) {
+        version.older = null;
+        break;
+      }
+    }
+    return chain;
+  }
+
+  /** Method to find the item numbers with older versions kept. The set is read while
+   * items are changed, so item numbers changed meanwhile may or may not be in it.
+   *
+   * @return returns the normalized item numbers as Set
+   */
+  Set<String> getChangedKeys() {
+    return chains.keySet();
+  }
+
+  /** Method to find the number of item numbers with older versions kept.
+   *
+   * @return returns the number of item numbers as int
+   */
+  int getNumberOfChangedItems() {
+    return chains.size();
+  }
+
+  /** Method to find the number of snapshots that are open.
+   *
+   * @return returns the number of pinned snapshots as int
+   */
+  int getNumberOfPins() {
+    synchronized (pinnedVersions) {
+      int pins = 0;
+      for (int count : pinnedVersions.values()) {
+        pins += count;
+      }
+      return pins;
+    }
+  }
+
+  /** An item as it was until it was replaced or deleted at a version. */
+  private static final class Version {
+    private final Item item;
+    private final long replacedAt;
+    private volatile Version older;
+
+    private Version(Item item, long replacedAt, Version older) {
+      this.item = item;
+      this.replacedAt = replacedAt;
+      this.older = older;
+    }
+  }
+}
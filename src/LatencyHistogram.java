@@ -0,0 +1,141 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** A class counting how long an operation takes, in nanoseconds, so that the average and
+ * the percentiles can be found later.
+ *
+ * <p>The times are counted in buckets. Times under 32 ns have a bucket each, and every
+ * doubling of the time above that is split into 16 buckets, so a percentile is never off
+ * by more than about 6 percent, for any time from nanoseconds to hours, in under a
+ * thousand buckets. Recording a time is a few atomic additions and never waits for a
+ * lock, so several threads can record at once.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+  private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS;
+
+  private final AtomicLongArray counts;
+  private final AtomicLong count;
+  private final AtomicLong totalNanos;
+  private final AtomicLong maxNanos;
+
+  LatencyHistogram() {
+
+    counts = new AtomicLongArray(BUCKETS);
+    count = new AtomicLong();
+    totalNanos = new AtomicLong();
+    maxNanos = new AtomicLong();
+  }
+
+  /** Method to find the bucket of a time.
+   *
+   * @param nanos the time in nanoseconds as long
+   * @return returns the number of the bucket as int
+   */
+  static int bucketOf(long nanos) {
+    if (nanos < SUB_BUCKETS) {
+      return (int) Math.max(0, nanos);
+    }
+    int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos)) - (SUB_BUCKET_BITS - 1);
+    return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS
+        + (int) (nanos >>> shift) - HALF_SUB_BUCKETS;
+  }
+
+  /** Method to find the highest time counted in a bucket.
+   *
+   * @param bucket the number of the bucket as int
+   * @return returns the highest time in nanoseconds as long
+   */
+  static long highestIn(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = (bucket - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+    long subBucket = (bucket - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+  /** Method to count one time.
+   *
+   * @param nanos the time in nanoseconds as long
+   */
+  void record(long nanos) {
+    counts.incrementAndGet(bucketOf(nanos));
+    count.incrementAndGet();
+    totalNanos.addAndGet(nanos);
+    long max = maxNanos.get();
+    while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+      max = maxNanos.get();
+    }
+  }
+
+  long getCount() {
+
+    return count.get();
+  }
+
+  long getTotalNanos() {
+
+    return totalNanos.get();
+  }
+
+  long getMaxNanos() {
+
+    return maxNanos.get();
+  }
+
+  /** Method to copy the counts of every bucket, so several percentiles can be found from
+   * the same counts.
+   *
+   * @return returns the count of every bucket as an array of long
+   */
+  long[] copyCounts() {
+    long[] copy = new long[BUCKETS];
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      copy[bucket] = counts.get(bucket);
+    }
+    return copy;
+  }
+
+  /** Method to find the time that a share of the counted times are at or below.
+   *
+   * @param bucketCounts the counts of every bucket as an array of long
+   * @param percentile the share in percent as double
+   * @return returns the highest time in the bucket of the percentile, in nanoseconds
+   */
+  static long percentile(long[] bucketCounts, double percentile) {
+    long total = 0;
+    for (long bucketCount : bucketCounts) {
+      total += bucketCount;
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long wanted = Math.max(1, (long) Math.ceil(total * percentile / 100));
+    long counted = 0;
+    for (int bucket = 0; bucket < bucketCounts.length; bucket++) {
+      counted += bucketCounts[bucket];
+      if (counted >= wanted) {
+        return highestIn(bucket);
+      }
+    }
+    return highestIn(bucketCounts.length - 1);
+  }
+
+  /** Method to set every count to 0.
+   */
+  void reset() {
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      counts.set(bucket, 0);
+    }
+    count.set(0);
+    totalNanos.set(0);
+    maxNanos.set(0);
+  }
+}
@@ -0,0 +1,92 @@
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/** A class using a register in the same program as a shard of a
+ * {@link ShardedItemRegister}, for example to test a sharded register without starting
+ * servers.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class LocalRegisterShard implements RegisterShard {
+
+  private final ItemRegister register;
+
+  /** Constructor for the class.
+   *
+   * @param register the register holding the items of the shard as ItemRegister
+   */
+  public LocalRegisterShard(ItemRegister register) {
+
+    this.register = register;
+  }
+
+  public ItemRegister getRegister() {
+
+    return register;
+  }
+
+  @Override
+  public void addItem(Item item) {
+    register.addItem(item);
+  }
+
+  @Override
+  public Item getItem(String itemNumber) {
+    return register.itemWithKey(itemNumber.toLowerCase(Locale.ROOT));
+  }
+
+  @Override
+  public void moveStock(Collection<StockMovement> movements) {
+    register.moveStock(movements);
+  }
+
+  @Override
+  public void changePrice(String itemNumber, double newPrice) {
+    register.getItemWithItemNumber(itemNumber);
+    register.changePriceItem(itemNumber, newPrice);
+  }
+
+  @Override
+  public void giveDiscount(String itemNumber, double discountPercent) {
+    register.getItemWithItemNumber(itemNumber);
+    register.giveDiscountItem(itemNumber, discountPercent);
+  }
+
+  @Override
+  public void changeDescription(String itemNumber, String newDescription) {
+    register.getItemWithItemNumber(itemNumber);
+    register.changeDescriptionItem(itemNumber, newDescription);
+  }
+
+  @Override
+  public void deleteItem(String itemNumber) {
+    register.deleteItem(itemNumber);
+  }
+
+  @Override
+  public List<Item> getAllItems() {
+    return register.getAllItems();
+  }
+
+  @Override
+  public List<Item> getItemsByCategory(int categoryNumber) {
+    return register.getItemsByCategory(categoryNumber);
+  }
+
+  @Override
+  public List<Item> getItemsBetweenPrice(double minPrice, double maxPrice, int limit) {
+    return register.getAllItemsBetweenPrice(minPrice, maxPrice, 0, limit);
+  }
+
+  @Override
+  public List<Item> getItemsWithDescription(String description) {
+    return register.getItemWithDescription(description);
+  }
+
+  @Override
+  public InventoryTotals getInventoryTotals() {
+    return register.getInventoryTotals();
+  }
+}
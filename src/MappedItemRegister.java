@@ -0,0 +1,690 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+
+/** A class administrating the Warehouse storage like {@link ItemRegister}, but keeping
+ * the items in memory-mapped files instead of as objects on the heap, so that the
+ * register can hold more items than fit in the heap and is kept on disk between runs.
+ *
+ * <p>Every value of the items is stored in its own file (a column), with the value of
+ * item number n at place n. Numbers are stored as plain doubles, ints and bytes, so that
+ * sums and searches over one value read one block of memory. Texts are stored once each
+ * in a string pool, and the columns hold where the text starts in the pool. Brand names
+ * and colors are used by many items, so each brand name and color is only stored once.
+ * A file is mapped in parts of at most 1 GB, so a column can grow past the 2 GB one
+ * mapping can hold.
+ *
+ * <p>A changed description and the texts of a deleted item are left unused in the pool.
+ * When more than half of the pool is unused, the texts still used are copied to a new
+ * pool, and the columns of texts are written again to new files pointing into it. The new
+ * files are saved and the change is marked in the meta file before they replace the old
+ * ones, so a register that stops while the files are replaced finishes replacing them
+ * when it is opened again, and one that stops before keeps the old files.
+ *
+ * <p>Only the item numbers, to find the place of an item, and the brand names and colors
+ * are kept on the heap. A deleted item is replaced by the last item, so the columns never
+ * have holes. The methods are synchronized, so one thread at a time uses the register.
+ *
+ * <p>This register is a store of its own next to {@link ItemRegister}, not a storage
+ * ItemRegister can use: it has no search, price or sorted indexes, no log, no snapshots
+ * and no change feed, and it answers only the questions it has methods for.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class MappedItemRegister implements Closeable {
+
+  private static final int DOUBLE = Double.BYTES;
+  private static final int INT = Integer.BYTES;
+  private static final int LONG = Long.BYTES;
+  private static final int META_ROWS = 0;
+  private static final int META_POOL_END = LONG;
+  private static final int META_POOL_UNUSED = 2 * LONG;
+  private static final int META_COMPACTING = 3 * LONG;
+  private static final int META_COMPACTED_POOL_END = 4 * LONG;
+  private static final String NEW_SUFFIX = ".new";
+  private static final String[] POOLED_FILES = {"item-number.col", "description.col",
+      "brand-name.col", "color.col", "strings.pool"};
+  private static final long MIN_UNUSED_TO_COMPACT = 1 << 20;
+
+  private final MappedColumn meta;
+  private final MappedColumn prices;
+  private final MappedColumn weights;
+  private final MappedColumn lengths;
+  private final MappedColumn heights;
+  private final MappedColumn numbersOfItems;
+  private final MappedColumn categories;
+  private MappedColumn itemNumbers;
+  private MappedColumn descriptions;
+  private MappedColumn brandNames;
+  private MappedColumn colors;
+  private final Path directory;
+  private MappedColumn stringPool;
+  private final HashMap<String, Integer> rowsByItemNumber;
+  private final HashMap<String, Long> pooledNames;
+  private int rows;
+  private long poolEnd;
+  private long poolUnused;
+
+  private MappedItemRegister(Path directory) throws IOException {
+    this.directory = directory;
+    meta = new MappedColumn(directory.resolve("meta.col"));
+    meta.ensureCapacity(5L * LONG);
+    finishCompaction();
+    prices = new MappedColumn(directory.resolve("price.col"));
+    weights = new MappedColumn(directory.resolve("weight.col"));
+    lengths = new MappedColumn(directory.resolve("length.col"));
+    heights = new MappedColumn(directory.resolve("height.col"));
+    numbersOfItems = new MappedColumn(directory.resolve("number-of-items.col"));
+    categories = new MappedColumn(directory.resolve("category.col"));
+    itemNumbers = new MappedColumn(directory.resolve("item-number.col"));
+    descriptions = new MappedColumn(directory.resolve("description.col"));
+    brandNames = new MappedColumn(directory.resolve("brand-name.col"));
+    colors = new MappedColumn(directory.resolve("color.col"));
+    stringPool = new MappedColumn(directory.resolve("strings.pool"));
+    rowsByItemNumber = new HashMap<>();
+    pooledNames = new HashMap<>();
+
+    rows = (int) meta.getLong(META_ROWS);
+    poolEnd = meta.getLong(META_POOL_END);
+    poolUnused = meta.getLong(META_POOL_UNUSED);
+    for (int row = 0; row < rows; row++) {
+      rowsByItemNumber.put(itemKey(readString(itemNumbers.getLong((long) row * LONG))), row);
+      pooledNames.putIfAbsent(readString(brandNames.getLong((long) row * LONG)),
+          brandNames.getLong((long) row * LONG));
+      pooledNames.putIfAbsent(readString(colors.getLong((long) row * LONG)),
+          colors.getLong((long) row * LONG));
+    }
+  }
+
+  /** Method to open a register kept in a directory, or make a new one if the directory
+   * is empty.
+   *
+   * @param directory the directory of the register as Path
+   * @return returns the opened register as MappedItemRegister
+   * @throws IOException if the files can't be opened
+   */
+  public static MappedItemRegister open(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    return new MappedItemRegister(directory);
+  }
+
+  private static String itemKey(String itemNumber) {
+    return itemNumber.toLowerCase(Locale.ROOT);
+  }
+
+  /** Method to test if the item number already exists.
+   *
+   * @param itemNumber item number as String
+   * @return returns if the item number is duplicate as boolean
+   */
+  public synchronized boolean testForDuplicateItemNumber(String itemNumber) {
+    return rowsByItemNumber.containsKey(itemKey(itemNumber));
+  }
+
+  /** Method to register a new item. The values are checked like in {@link Item}.
+   *
+   * @param itemNumber     item number as String
+   * @param description    description of item as String
+   * @param price          price of item as double
+   * @param brandName      brand name of item as String
+   * @param weight         weight of item as double
+   * @param length         length of item as double
+   * @param height         height of item as double
+   * @param color          color of item as String
+   * @param numberOfItems  number of items as int
+   * @param categoryNumber categoryNumber of item as int
+   */
+  public synchronized void newItem(String itemNumber, String description, double price,
+                                   String brandName, double weight, double length,
+                                   double height, String color, int numberOfItems,
+                                   int categoryNumber) {
+    Item newItem = new Item(itemNumber, description, price, brandName, weight, length, height,
+        color, numberOfItems, categoryNumber);
+    if (testForDuplicateItemNumber(itemNumber)) {
+      throw new IllegalArgumentException("This item number is already in use.");
+    }
+
+    if (rows == Integer.MAX_VALUE) {
+      throw new IllegalStateException("The register is full.");
+    }
+    long row = rows;
+    prices.ensureCapacity((row + 1) * DOUBLE);
+    weights.ensureCapacity((row + 1) * DOUBLE);
+    lengths.ensureCapacity((row + 1) * DOUBLE);
+    heights.ensureCapacity((row + 1) * DOUBLE);
+    numbersOfItems.ensureCapacity((row + 1) * INT);
+    categories.ensureCapacity(row + 1);
+    itemNumbers.ensureCapacity((row + 1) * LONG);
+    descriptions.ensureCapacity((row + 1) * LONG);
+    brandNames.ensureCapacity((row + 1) * LONG);
+    colors.ensureCapacity((row + 1) * LONG);
+
+    prices.putDouble(row * DOUBLE, newItem.getPrice());
+    weights.putDouble(row * DOUBLE, newItem.getWeight());
+    lengths.putDouble(row * DOUBLE, newItem.getLength());
+    heights.putDouble(row * DOUBLE, newItem.getHeight());
+    numbersOfItems.putInt(row * INT, newItem.getNumberOfItems());
+    categories.put(row, (byte) newItem.getItemCategoryNumber());
+    itemNumbers.putLong(row * LONG, writeString(newItem.getItemNumber()));
+    descriptions.putLong(row * LONG, writeString(newItem.getDescription()));
+    brandNames.putLong(row * LONG, pooledName(newItem.getBrandName()));
+    colors.putLong(row * LONG, pooledName(newItem.getColor()));
+
+    rowsByItemNumber.put(itemKey(itemNumber), rows);
+    setRows(rows + 1);
+  }
+
+  private void setRows(int rows) {
+    this.rows = rows;
+    meta.putLong(META_ROWS, rows);
+  }
+
+  private long pooledName(String name) {
+    Long offset = pooledNames.get(name);
+    if (offset == null) {
+      offset = writeString(name);
+      pooledNames.put(name, offset);
+    }
+    return offset;
+  }
+
+  /** Method to add a text to the end of the string pool, as its length followed by the
+   * text in UTF-8.
+   *
+   * @param text the text as String
+   * @return returns where the text starts in the pool as long
+   */
+  private long writeString(String text) {
+    long[] end = {poolEnd};
+    long offset = appendString(stringPool, end, text.getBytes(StandardCharsets.UTF_8));
+    poolUnused += end[0] - poolEnd - (INT + stringLength(offset));
+    poolEnd = end[0];
+    meta.putLong(META_POOL_END, poolEnd);
+    meta.putLong(META_POOL_UNUSED, poolUnused);
+    return offset;
+  }
+
+  /** Method to add a text to the end of a pool. A text is never split between two
+   * mapped parts of the pool, so it starts in the next part if it doesn't fit in the
+   * rest of the current part.
+   *
+   * @param pool the pool as MappedColumn
+   * @param end the end of the pool, moved past the text, as an array of one long
+   * @param bytes the text in UTF-8 as an array of byte
+   * @return returns where the text starts in the pool as long
+   */
+  private static long appendString(MappedColumn pool, long[] end, byte[] bytes) {
+    if (INT + bytes.length > MappedColumn.PART_SIZE) {
+      throw new IllegalArgumentException("The text is too long.");
+    }
+    long offset = end[0];
+    long rest = MappedColumn.PART_SIZE - offset % MappedColumn.PART_SIZE;
+    if (rest < INT + bytes.length) {
+      offset += rest;
+    }
+    pool.ensureCapacity(offset + INT + bytes.length);
+    pool.putInt(offset, bytes.length);
+    pool.putBytes(offset + INT, bytes);
+    end[0] = offset + INT + bytes.length;
+    return offset;
+  }
+
+  private int stringLength(long offset) {
+    return stringPool.getInt(offset);
+  }
+
+  private String readString(long offset) {
+    return new String(readBytes(stringPool, offset), StandardCharsets.UTF_8);
+  }
+
+  private static byte[] readBytes(MappedColumn pool, long offset) {
+    byte[] bytes = new byte[pool.getInt(offset)];
+    pool.getBytes(offset + INT, bytes);
+    return bytes;
+  }
+
+  /** Method to mark a text in the pool as no longer used, and make a new pool when more
+   * than half of the pool is unused.
+   *
+   * @param offset where the text starts in the pool as long
+   */
+  private void releaseString(long offset) {
+    poolUnused += INT + stringLength(offset);
+    meta.putLong(META_POOL_UNUSED, poolUnused);
+    if (poolUnused >= MIN_UNUSED_TO_COMPACT && poolUnused > poolEnd / 2) {
+      compactStringPool();
+    }
+  }
+
+  /** Method to copy the texts still used to a new pool, which replaces the old pool. The
+   * columns of texts are written to new files pointing to the new places of the texts,
+   * and saved with the new pool. Marking the compaction in the meta file is what makes
+   * the new files the register's files, and only then are the old files replaced.
+   */
+  private void compactStringPool() {
+    if (meta.getLong(META_COMPACTING) != 0) {
+      return;
+    }
+    try {
+      MappedColumn newPool = newColumn("strings.pool");
+      MappedColumn newItemNumbers = newColumn("item-number.col");
+      MappedColumn newDescriptions = newColumn("description.col");
+      MappedColumn newBrandNames = newColumn("brand-name.col");
+      MappedColumn newColors = newColumn("color.col");
+      for (MappedColumn column : new MappedColumn[] {newItemNumbers, newDescriptions,
+          newBrandNames, newColors}) {
+        column.ensureCapacity((long) rows * LONG);
+      }
+      long[] end = {0};
+      HashMap<Long, Long> movedNames = new HashMap<>();
+      for (long row = 0; row < rows; row++) {
+        newItemNumbers.putLong(row * LONG, appendString(newPool, end,
+            readBytes(stringPool, itemNumbers.getLong(row * LONG))));
+        newDescriptions.putLong(row * LONG, appendString(newPool, end,
+            readBytes(stringPool, descriptions.getLong(row * LONG))));
+        for (int name = 0; name < 2; name++) {
+          long offset = (name == 0 ? brandNames : colors).getLong(row * LONG);
+          Long moved = movedNames.get(offset);
+          if (moved == null) {
+            moved = appendString(newPool, end, readBytes(stringPool, offset));
+            movedNames.put(offset, moved);
+          }
+          (name == 0 ? newBrandNames : newColors).putLong(row * LONG, moved);
+        }
+      }
+      MappedColumn[] oldColumns = {itemNumbers, descriptions, brandNames, colors, stringPool};
+      MappedColumn[] newColumns = {newItemNumbers, newDescriptions, newBrandNames, newColors,
+          newPool};
+      for (MappedColumn column : newColumns) {
+        column.force();
+      }
+      meta.putLong(META_COMPACTED_POOL_END, end[0]);
+      meta.putLong(META_COMPACTING, 1);
+      meta.force();
+
+      itemNumbers = newItemNumbers;
+      descriptions = newDescriptions;
+      brandNames = newBrandNames;
+      colors = newColors;
+      stringPool = newPool;
+      poolEnd = end[0];
+      poolUnused = 0;
+      pooledNames.clear();
+      for (long offset : movedNames.values()) {
+        pooledNames.put(readString(offset), offset);
+      }
+      for (MappedColumn column : oldColumns) {
+        column.channel.close();
+      }
+      finishCompaction();
+    } catch (IOException e) {
+      throw new IllegalStateException("The string pool couldn't be made smaller.", e);
+    }
+  }
+
+  /** Method to make an empty column in a new file, next to the file it will replace.
+   *
+   * @param name the name of the file it will replace as String
+   * @return returns the new column as MappedColumn
+   * @throws IOException if the file can't be made
+   */
+  private MappedColumn newColumn(String name) throws IOException {
+    Path file = directory.resolve(name + NEW_SUFFIX);
+    Files.deleteIfExists(file);
+    return new MappedColumn(file);
+  }
+
+  /** Method to finish a compaction of the string pool marked in the meta file, by
+   * replacing the files not replaced yet, or else to delete the new files of a
+   * compaction that wasn't marked, which the old files are still used instead of.
+   *
+   * @throws IOException if the files can't be replaced or deleted
+   */
+  private void finishCompaction() throws IOException {
+    boolean marked = meta.getLong(META_COMPACTING) != 0;
+    for (String name : POOLED_FILES) {
+      Path newFile = directory.resolve(name + NEW_SUFFIX);
+      if (!marked) {
+        Files.deleteIfExists(newFile);
+      } else if (Files.exists(newFile)) {
+        Files.move(newFile, directory.resolve(name), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      }
+    }
+    if (marked) {
+      meta.putLong(META_POOL_END, meta.getLong(META_COMPACTED_POOL_END));
+      meta.putLong(META_POOL_UNUSED, 0);
+      meta.putLong(META_COMPACTING, 0);
+      meta.force();
+    }
+  }
+
+  private int findRow(String itemNumber) {
+    Integer row = rowsByItemNumber.get(itemKey(itemNumber));
+    return row == null ? -1 : row;
+  }
+
+  private Item itemAt(long row) {
+    return new Item(readString(itemNumbers.getLong(row * LONG)),
+        readString(descriptions.getLong(row * LONG)),
+        prices.getDouble(row * DOUBLE),
+        readString(brandNames.getLong(row * LONG)),
+        weights.getDouble(row * DOUBLE),
+        lengths.getDouble(row * DOUBLE),
+        heights.getDouble(row * DOUBLE),
+        readString(colors.getLong(row * LONG)),
+        numbersOfItems.getInt(row * INT),
+        categories.get(row));
+  }
+
+  /** Method to find an item with a specific itemNumber.
+   *
+   * @param itemNumber item number as String
+   * @return returns the item as Item
+   */
+  public synchronized Item getItemWithItemNumber(String itemNumber) {
+    int row = findRow(itemNumber);
+    if (row >= 0) {
+      return itemAt(row);
+    }
+    throw new IllegalArgumentException("This item doesn't exist.");
+  }
+
+  /** Method to find an item by category. Only the category column is read to find the
+   * items.
+   *
+   * @param categoryInt category number as int
+   * @return returns a list of the items in the category
+   */
+  public synchronized ArrayList<Item> getItemsByCategory(int categoryInt) {
+    ArrayList<Item> itemsWithCategory = new ArrayList<>();
+    for (long row = 0; row < rows; row++) {
+      if (categories.get(row) == categoryInt) {
+        itemsWithCategory.add(itemAt(row));
+      }
+    }
+    return itemsWithCategory;
+  }
+
+  /** Method to find all items within a price-range. Only the price column is read to
+   * find the items.
+   *
+   * @param startPrice the lowest price as double
+   * @param endPrice the highest price as double
+   * @return returns list of all items between the two chosen prices
+   */
+  public synchronized ArrayList<Item> getAllItemsBetweenPrice(double startPrice,
+                                                              double endPrice) {
+    ArrayList<Item> itemsBetweenPrices = new ArrayList<>();
+    for (long row = 0; row < rows; row++) {
+      double price = prices.getDouble(row * DOUBLE);
+      if (price >= startPrice && price <= endPrice) {
+        itemsBetweenPrices.add(itemAt(row));
+      }
+    }
+    if (itemsBetweenPrices.isEmpty()) {
+      throw new IllegalArgumentException("Couldn't find any items.");
+    }
+    return itemsBetweenPrices;
+  }
+
+  /** Method to increase the amounts of one item.
+   *
+   * @param itemNumber item number as String
+   * @param addNumberOfItems the new number of items to add to the original number as int
+   */
+  public synchronized void increaseAmountOfOneItem(String itemNumber, int addNumberOfItems) {
+    long row = findRow(itemNumber);
+    if (row >= 0) {
+      int newNumberOfItems = numbersOfItems.getInt(row * INT) + addNumberOfItems;
+      numbersOfItems.putInt(row * INT, newNumberOfItems);
+    }
+  }
+
+  /** Method to decrease the amount of one item.
+   *
+   * @param itemNumber item number as String
+   * @param subtractNumberOfItems the number of items to subtract from the original number as int
+   */
+  public synchronized void decreaseAmountOfOneItem(String itemNumber,
+                                                   int subtractNumberOfItems) {
+    long row = findRow(itemNumber);
+    if (row >= 0) {
+      int newNumberOfItems = numbersOfItems.getInt(row * INT) - subtractNumberOfItems;
+      if (newNumberOfItems < 0) {
+        throw new IllegalArgumentException("The number of items can't be negative.");
+      } else {
+        numbersOfItems.putInt(row * INT, newNumberOfItems);
+      }
+    }
+  }
+
+  /** Method to change the price on an item.
+   *
+   * @param itemNumber item number as String
+   * @param newPrice the new price of item as double
+   */
+  public synchronized void changePriceItem(String itemNumber, double newPrice) {
+    long row = findRow(itemNumber);
+    if (row >= 0) {
+      prices.putDouble(row * DOUBLE, newPrice);
+    }
+  }
+
+  /** Method to create a discount on an item.
+   *
+   * @param itemNumber item number as String
+   * @param discountPercent the discount in percent as double
+   */
+  public synchronized void giveDiscountItem(String itemNumber, double discountPercent) {
+    long row = findRow(itemNumber);
+    if (row >= 0) {
+      double price = prices.getDouble(row * DOUBLE);
+      prices.putDouble(row * DOUBLE, price - ((price * discountPercent) / 100));
+    }
+  }
+
+  /** Method to change the description on an item. The new description is added to the
+   * string pool, and the old one is left unused.
+   *
+   * @param itemNumber item number as String
+   * @param newDescription description of item as String
+   */
+  public synchronized void changeDescriptionItem(String itemNumber, String newDescription) {
+    long row = findRow(itemNumber);
+    if (row >= 0) {
+      long oldDescription = descriptions.getLong(row * LONG);
+      descriptions.putLong(row * LONG, writeString(newDescription));
+      releaseString(oldDescription);
+    }
+  }
+
+  /** Method to delete an item from the register. The last item is moved into its place.
+   *
+   * @param itemNumber item number as String
+   */
+  public synchronized void deleteItem(String itemNumber) {
+    Integer deleted = rowsByItemNumber.remove(itemKey(itemNumber));
+    if (deleted == null) {
+      return;
+    }
+    long row = deleted;
+    long oldItemNumber = itemNumbers.getLong(row * LONG);
+    long oldDescription = descriptions.getLong(row * LONG);
+    long last = rows - 1;
+    if (row != last) {
+      prices.putDouble(row * DOUBLE, prices.getDouble(last * DOUBLE));
+      weights.putDouble(row * DOUBLE, weights.getDouble(last * DOUBLE));
+      lengths.putDouble(row * DOUBLE, lengths.getDouble(last * DOUBLE));
+      heights.putDouble(row * DOUBLE, heights.getDouble(last * DOUBLE));
+      numbersOfItems.putInt(row * INT, numbersOfItems.getInt(last * INT));
+      categories.put(row, categories.get(last));
+      itemNumbers.putLong(row * LONG, itemNumbers.getLong(last * LONG));
+      descriptions.putLong(row * LONG, descriptions.getLong(last * LONG));
+      brandNames.putLong(row * LONG, brandNames.getLong(last * LONG));
+      colors.putLong(row * LONG, colors.getLong(last * LONG));
+      rowsByItemNumber.put(itemKey(readString(itemNumbers.getLong(row * LONG))), deleted);
+    }
+    setRows(rows - 1);
+    releaseString(oldItemNumber);
+    releaseString(oldDescription);
+  }
+
+  /** Method to find number of items in storage.
+   *
+   * @return returns number of items in storage as int
+   */
+  public synchronized int getNumberOfItems() {
+    return rows;
+  }
+
+  /** Method to find number of individual items in storage, by reading the number of
+   * items column from start to end.
+   *
+   * @return returns number of individual items in storage as int
+   */
+  public synchronized int getNumberOfIndividualItems() {
+    int sum = 0;
+    for (long row = 0; row < rows; row++) {
+      sum += numbersOfItems.getInt(row * INT);
+    }
+    return sum;
+  }
+
+  /** Method to write every change to the disk.
+   */
+  public synchronized void force() {
+    for (MappedColumn column : new MappedColumn[] {meta, prices, weights, lengths, heights,
+        numbersOfItems, categories, itemNumbers, descriptions, brandNames, colors,
+        stringPool}) {
+      column.force();
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    force();
+    for (MappedColumn column : new MappedColumn[] {meta, prices, weights, lengths, heights,
+        numbersOfItems, categories, itemNumbers, descriptions, brandNames, colors,
+        stringPool}) {
+      column.channel.close();
+    }
+  }
+
+  /** A file mapped into memory in parts of at most 1 GB, which is made bigger when more
+   * space is needed. Every part starts at a multiple of the part size, so a number
+   * written at a multiple of its size is never split between two parts.
+   */
+  private static final class MappedColumn {
+    private static final long PART_SIZE = 1L << 30;
+    private static final long INITIAL_SIZE = 4096;
+
+    private final FileChannel channel;
+    private final ArrayList<MappedByteBuffer> parts;
+    private long capacity;
+
+    private MappedColumn(Path file) throws IOException {
+      channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+      parts = new ArrayList<>();
+      map(Math.max(channel.size(), INITIAL_SIZE));
+    }
+
+    /** Method to map the file up to a size. The parts already full are kept, and the
+     * last part is mapped again with its new size.
+     *
+     * @param size the new size of the file as long
+     * @throws IOException if the file can't be mapped
+     */
+    private void map(long size) throws IOException {
+      int fullParts = (int) (capacity / PART_SIZE);
+      while (parts.size() > fullParts) {
+        parts.remove(parts.size() - 1).force();
+      }
+      for (long start = fullParts * PART_SIZE; start < size; start += PART_SIZE) {
+        parts.add(channel.map(FileChannel.MapMode.READ_WRITE, start,
+            Math.min(PART_SIZE, size - start)));
+      }
+      capacity = size;
+    }
+
+    private void ensureCapacity(long bytes) {
+      if (bytes <= capacity) {
+        return;
+      }
+      long size = Math.max(bytes, 2 * capacity);
+      if (size > PART_SIZE) {
+        size = (size + PART_SIZE - 1) / PART_SIZE * PART_SIZE;
+      }
+      try {
+        map(size);
+      } catch (IOException e) {
+        throw new IllegalStateException("The register couldn't grow.", e);
+      }
+    }
+
+    private MappedByteBuffer part(long position) {
+      return parts.get((int) (position / PART_SIZE));
+    }
+
+    private static int offset(long position) {
+      return (int) (position % PART_SIZE);
+    }
+
+    private byte get(long position) {
+      return part(position).get(offset(position));
+    }
+
+    private void put(long position, byte value) {
+      part(position).put(offset(position), value);
+    }
+
+    private int getInt(long position) {
+      return part(position).getInt(offset(position));
+    }
+
+    private void putInt(long position, int value) {
+      part(position).putInt(offset(position), value);
+    }
+
+    private long getLong(long position) {
+      return part(position).getLong(offset(position));
+    }
+
+    private void putLong(long position, long value) {
+      part(position).putLong(offset(position), value);
+    }
+
+    private double getDouble(long position) {
+      return part(position).getDouble(offset(position));
+    }
+
+    private void putDouble(long position, double value) {
+      part(position).putDouble(offset(position), value);
+    }
+
+    private void getBytes(long position, byte[] bytes) {
+      part(position).get(offset(position), bytes);
+    }
+
+    private void putBytes(long position, byte[] bytes) {
+      part(position).put(offset(position), bytes);
+    }
+
+    private void force() {
+      for (MappedByteBuffer part : parts) {
+        part.force();
+      }
+    }
+  }
+}
@@ -0,0 +1,81 @@
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/** A class representing every metric of a register at one moment: how often each kind of
+ * operation ran and how long it took, how much memory the operations used, and the sizes
+ * of the register and its indexes.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class MetricsSnapshot {
+  private final long timeMillis;
+  private final long measuredNanos;
+  private final long allocatedBytesPerSecond;
+  private final Map<String, Long> sizes;
+  private final List<OperationMetrics> operations;
+
+  /** Constructor for the class.
+   *
+   * @param timeMillis              the time of the snapshot, in milliseconds since 1970,
+   *                                as long
+   * @param measuredNanos           how long the metrics were counted, since the start or
+   *                                the last reset, as long
+   * @param allocatedBytesPerSecond memory used by the operations per second, or -1 if
+   *                                unknown, as long
+   * @param sizes                   number of entries in the register and every index
+   * @param operations              the metrics of every kind of operation
+   */
+  public MetricsSnapshot(long timeMillis, long measuredNanos, long allocatedBytesPerSecond,
+                         Map<String, Long> sizes, List<OperationMetrics> operations) {
+
+    this.timeMillis = timeMillis;
+    this.measuredNanos = measuredNanos;
+    this.allocatedBytesPerSecond = allocatedBytesPerSecond;
+    this.sizes = Collections.unmodifiableMap(sizes);
+    this.operations = Collections.unmodifiableList(operations);
+  }
+
+  public long getTimeMillis() {
+
+    return timeMillis;
+  }
+
+  public long getMeasuredNanos() {
+
+    return measuredNanos;
+  }
+
+  public long getAllocatedBytesPerSecond() {
+
+    return allocatedBytesPerSecond;
+  }
+
+  public Map<String, Long> getSizes() {
+
+    return sizes;
+  }
+
+  public List<OperationMetrics> getOperations() {
+
+    return operations;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder("Metrics for the last "
+        + (measuredNanos / 1_000_000_000) + " seconds\n");
+    for (Map.Entry<String, Long> size : sizes.entrySet()) {
+      text.append(size.getKey()).append(": ").append(size.getValue()).append('\n');
+    }
+    if (allocatedBytesPerSecond >= 0) {
+      text.append("Allocated by operations: ").append(allocatedBytesPerSecond)
+          .append(" bytes per second\n");
+    }
+    for (OperationMetrics operation : operations) {
+      text.append(operation).append('\n');
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,91 @@
+/** A class representing how often one kind of register operation has run and how long it
+ * took, at one moment. Times are in nanoseconds.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class OperationMetrics {
+  private final String operation;
+  private final long count;
+  private final long meanNanos;
+  private final long medianNanos;
+  private final long p99Nanos;
+  private final long p999Nanos;
+  private final long maxNanos;
+  private final long allocatedBytesPerOperation;
+
+  /** Constructor for the class.
+   *
+   * @param operation                  name of the operation as String
+   * @param count                      number of times the operation ran as long
+   * @param meanNanos                  average time as long
+   * @param medianNanos                time half of the operations took at most as long
+   * @param p99Nanos                   time 99 percent of the operations took at most as long
+   * @param p999Nanos                  time 99.9 percent of the operations took at most as
+   *                                   long
+   * @param maxNanos                   longest time as long
+   * @param allocatedBytesPerOperation average memory used by one operation, from a sample
+   *                                   of the operations, or -1 if unknown, as long
+   */
+  public OperationMetrics(String operation, long count, long meanNanos, long medianNanos,
+                          long p99Nanos, long p999Nanos, long maxNanos,
+                          long allocatedBytesPerOperation) {
+
+    this.operation = operation;
+    this.count = count;
+    this.meanNanos = meanNanos;
+    this.medianNanos = medianNanos;
+    this.p99Nanos = p99Nanos;
+    this.p999Nanos = p999Nanos;
+    this.maxNanos = maxNanos;
+    this.allocatedBytesPerOperation = allocatedBytesPerOperation;
+  }
+
+  public String getOperation() {
+
+    return operation;
+  }
+
+  public long getCount() {
+
+    return count;
+  }
+
+  public long getMeanNanos() {
+
+    return meanNanos;
+  }
+
+  public long getMedianNanos() {
+
+    return medianNanos;
+  }
+
+  public long getP99Nanos() {
+
+    return p99Nanos;
+  }
+
+  public long getP999Nanos() {
+
+    return p999Nanos;
+  }
+
+  public long getMaxNanos() {
+
+    return maxNanos;
+  }
+
+  public long getAllocatedBytesPerOperation() {
+
+    return allocatedBytesPerOperation;
+  }
+
+  @Override
+  public String toString() {
+    return operation + ": " + count + " calls, mean " + meanNanos + " ns, median "
+        + medianNanos + " ns, 99% " + p99Nanos + " ns, 99.9% " + p999Nanos + " ns, max "
+        + maxNanos + " ns" + (allocatedBytesPerOperation < 0 ? ""
+        : ", " + allocatedBytesPerOperation + " bytes allocated per call");
+  }
+}
@@ -0,0 +1,209 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/** A class measuring the operations of a register: how often each kind of operation
+ * runs, how long it takes and how much memory it uses, together with the sizes of the
+ * register and its indexes. The metrics can be read as a {@link MetricsSnapshot}, or with
+ * JMX tools once {@link #registerMBean(String)} is called.
+ *
+ * <p>The metrics are meant to stay on while the register is in use. A measured operation
+ * reads the clock twice and adds to a few counters without waiting for a lock. The memory
+ * used is only measured for about one operation in 64, since it is slower to find, and
+ * only on Java versions that can measure it for a thread.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class RegisterMetrics implements RegisterMetricsMXBean {
+
+  /** The kinds of register operations that are measured. */
+  public enum Operation {
+    NEW_ITEM,
+    LOOKUP,
+    SEARCH,
+    QUERY,
+    STOCK_CHANGE,
+    PRICE_CHANGE,
+    DESCRIPTION_CHANGE,
+    DELETE_ITEM
+  }
+
+  /** The start time given when nothing is measured. */
+  static final long NOT_MEASURED = Long.MIN_VALUE;
+
+  private static final int ALLOCATION_SAMPLE_RATE = 64;
+
+  private final Supplier<Map<String, Long>> sizes;
+  private final EnumMap<Operation, Recorder> recorders;
+  private final com.sun.management.ThreadMXBean allocationBean;
+  private final ThreadLocal<long[]> allocatedAtStart;
+  private volatile boolean enabled;
+  private volatile long startNanos;
+
+  /** Constructor for the class.
+   *
+   * @param sizes finds the number of entries in the register and every index
+   */
+  RegisterMetrics(Supplier<Map<String, Long>> sizes) {
+
+    this.sizes = sizes;
+    this.recorders = new EnumMap<>(Operation.class);
+    for (Operation operation : Operation.values()) {
+      recorders.put(operation, new Recorder());
+    }
+    this.allocationBean = findAllocationBean();
+    this.allocatedAtStart = ThreadLocal.withInitial(() -> new long[1]);
+    this.enabled = true;
+    this.startNanos = System.nanoTime();
+  }
+
+  private static com.sun.management.ThreadMXBean findAllocationBean() {
+    if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+        && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+      return bean;
+    }
+    return null;
+  }
+
+  /** Method to start measuring an operation.
+   *
+   * @return returns the start to give to {@link #stop}, as long
+   */
+  long start() {
+    if (!enabled) {
+      return NOT_MEASURED;
+    }
+    long now = System.nanoTime();
+    if (allocationBean != null
+        && ThreadLocalRandom.current().nextInt(ALLOCATION_SAMPLE_RATE) == 0) {
+      allocatedAtStart.get()[0] = allocationBean.getCurrentThreadAllocatedBytes();
+      return now | 1;
+    }
+    return now & ~1L;
+  }
+
+  /** Method to stop measuring an operation, and count its time. The lowest bit of the
+   * start tells if the memory used is measured too.
+   *
+   * @param operation the kind of operation as Operation
+   * @param start the start given by {@link #start} as long
+   */
+  void stop(Operation operation, long start) {
+    if (start == NOT_MEASURED) {
+      return;
+    }
+    long nanos = System.nanoTime() - (start & ~1L);
+    Recorder recorder = recorders.get(operation);
+    recorder.histogram.record(nanos);
+    if ((start & 1) != 0) {
+      recorder.sampledBytes.add(allocationBean.getCurrentThreadAllocatedBytes()
+          - allocatedAtStart.get()[0]);
+      recorder.samples.increment();
+    }
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  @Override
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /** Method to get the metrics of one kind of operation.
+   *
+   * @param operation the kind of operation as Operation
+   * @return returns the metrics as OperationMetrics
+   */
+  public OperationMetrics getOperationMetrics(Operation operation) {
+    return recorders.get(operation).snapshot(operation);
+  }
+
+  @Override
+  public Map<String, Long> getSizes() {
+    return sizes.get();
+  }
+
+  @Override
+  public MetricsSnapshot getSnapshot() {
+    long measuredNanos = System.nanoTime() - startNanos;
+    ArrayList<OperationMetrics> operations = new ArrayList<>();
+    long allocatedBytes = 0;
+    boolean allocationKnown = false;
+    for (Operation operation : Operation.values()) {
+      OperationMetrics metrics = getOperationMetrics(operation);
+      operations.add(metrics);
+      if (metrics.getAllocatedBytesPerOperation() >= 0) {
+        allocatedBytes += metrics.getAllocatedBytesPerOperation() * metrics.getCount();
+        allocationKnown = true;
+      }
+    }
+    long allocatedBytesPerSecond = !allocationKnown || measuredNanos <= 0 ? -1
+        : (long) (allocatedBytes / (measuredNanos / 1e9));
+    return new MetricsSnapshot(System.currentTimeMillis(), measuredNanos,
+        allocatedBytesPerSecond, getSizes(), operations);
+  }
+
+  @Override
+  public void reset() {
+    for (Recorder recorder : recorders.values()) {
+      recorder.reset();
+    }
+    startNanos = System.nanoTime();
+  }
+
+  /** Method to make the metrics readable with JMX tools, under the name
+   * ItemRegister:type=RegisterMetrics,name=name.
+   *
+   * @param name the name of the register as String
+   * @return returns the name the metrics were registered with as ObjectName
+   * @throws JMException if the name is invalid or already in use
+   */
+  public ObjectName registerMBean(String name) throws JMException {
+    ObjectName objectName = new ObjectName("ItemRegister:type=RegisterMetrics,name="
+        + ObjectName.quote(name));
+    ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+    return objectName;
+  }
+
+  @Override
+  public String toString() {
+    return getSnapshot().toString();
+  }
+
+  /** The counters of one kind of operation. */
+  private static final class Recorder {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder sampledBytes = new LongAdder();
+    private final LongAdder samples = new LongAdder();
+
+    private OperationMetrics snapshot(Operation operation) {
+      long[] counts = histogram.copyCounts();
+      long count = histogram.getCount();
+      long max = histogram.getMaxNanos();
+      long sampleCount = samples.sum();
+      return new OperationMetrics(operation.name().toLowerCase(Locale.ROOT), count,
+          count == 0 ? 0 : histogram.getTotalNanos() / count,
+          Math.min(max, LatencyHistogram.percentile(counts, 50)),
+          Math.min(max, LatencyHistogram.percentile(counts, 99)),
+          Math.min(max, LatencyHistogram.percentile(counts, 99.9)),
+          max, sampleCount == 0 ? -1 : sampledBytes.sum() / sampleCount);
+    }
+
+    private void reset() {
+      histogram.reset();
+      sampledBytes.reset();
+      samples.reset();
+    }
+  }
+}
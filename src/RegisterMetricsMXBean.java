@@ -0,0 +1,30 @@
+import java.util.Map;
+
+/** The management interface of {@link RegisterMetrics}, so the metrics of a register can
+ * be read with JMX tools like JConsole while the program runs.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public interface RegisterMetricsMXBean {
+
+  boolean isEnabled();
+
+  void setEnabled(boolean enabled);
+
+  /** Method to get every metric at one moment.
+   *
+   * @return returns the metrics as MetricsSnapshot
+   */
+  MetricsSnapshot getSnapshot();
+
+  /** Method to get the number of entries in the register and every index.
+   *
+   * @return returns the sizes by name
+   */
+  Map<String, Long> getSizes();
+
+  /** Method to set every counter and time to 0.
+   */
+  void reset();
+}
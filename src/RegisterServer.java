@@ -0,0 +1,477 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** A class serving a register over HTTP, so that many terminals, like hand scanners,
+ * can use the same register at once. The server can run next to the {@link Client}
+ * menu, on the same register.
+ *
+ * <p>Items are sent as JSON, in the same format as {@link ItemExporter} writes JSON
+ * lines: one item is one JSON object, and a list of items is one JSON object on each
+ * line. Every item and items in a price-range are written while they are read from the
+ * price index, so a long list is never built in memory; the items in a category or with
+ * a text in the description are found as a list first. Requests with a body take JSON
+ * objects in the same way. The server answers:
+ *
+ * <pre>
+ * GET  /items                                   every item, sorted by price
+ * GET  /items/{itemNumber}                      the item
+ * GET  /items?description=text                  items with the text in the description
+ * GET  /items?category=n                        items in a category
+ * GET  /items?minPrice=a&amp;maxPrice=b[&amp;offset=o&amp;limit=l]  items in a price-range
+ * GET  /items?minPrice=a&amp;maxPrice=b&amp;afterPrice=p&amp;afterItemNumber=n[&amp;limit=l]
+ *                                               the next page, after the last item sent
+ * GET  /search?q=words                          items with every word, best match first
+ * POST /items                                   registers new items, one object on each
+ *                                               line, leaving out item numbers in use
+ * DELETE /items/{itemNumber}                    deletes the item, and answers with it
+ * POST /stock                                   moves stock, one object on each line:
+ *                                               {"itemNumber": "A1", "change": -2}
+ * POST /items/{itemNumber}/price                {"price": 199.5}
+ * POST /items/{itemNumber}/discount             {"percent": 10}
+ * POST /items/{itemNumber}/description          {"description": "Big and tall"}
+ * GET  /totals                                  the number of items and the stock value
+ * GET  /metrics                                 the metrics of the register as text
+ * </pre>
+ *
+ * <p>Connections are kept open between requests, and requests sent one after the other
+ * without waiting for the answers are answered in order. A terminal waiting between
+ * requests doesn't use a thread, only the request being handled does. The built-in server
+ * keeps at most 200 waiting connections open, unless Java is started with a higher
+ * {@code sun.net.httpserver.maxIdleConnections}. Every request is handled on a virtual
+ * thread of its own on Java versions that have them, and by a pool of threads otherwise.
+ * A request that fails for any other reason than a wrong request is answered with 500.
+ *
+ * <p>A server for the register of a {@link ReplicationFollower} only answers GET: every
+ * other request is answered with 405, as the items can only be changed on the leader. A
+ * request made while the follower is further behind the leader than the staleness the
+ * server was made with is answered with 503.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class RegisterServer implements Closeable {
+
+  private static final int CONNECTION_BACKLOG = 1024;
+  private static final int THREADS_PER_PROCESSOR = 16;
+  private static final String ITEMS_PATH = "/items";
+
+  private final ItemRegister register;
+  private final ReplicationFollower follower;
+  private final Duration maxStaleness;
+  private final HttpServer server;
+  private final ExecutorService executor;
+
+  /** Constructor for the class, starting the server.
+   *
+   * @param register the register to serve as ItemRegister
+   * @param address the address and port to listen on, port 0 for any free port, as
+   *                InetSocketAddress
+   * @throws IOException if the server can't listen on the address
+   */
+  public RegisterServer(ItemRegister register, InetSocketAddress address) throws IOException {
+    this(register, null, null, address);
+  }
+
+  /** Constructor for the class, starting a server that only reads the register of a
+   * follower.
+   *
+   * @param follower the follower to serve the register of as ReplicationFollower
+   * @param maxStaleness how far behind the leader the follower may be when a request is
+   *                     answered as Duration
+   * @param address the address and port to listen on, port 0 for any free port, as
+   *                InetSocketAddress
+   * @throws IOException if the server can't listen on the address
+   */
+  public RegisterServer(ReplicationFollower follower, Duration maxStaleness,
+                        InetSocketAddress address) throws IOException {
+    this(follower.getRegister(), follower, maxStaleness, address);
+  }
+
+  private RegisterServer(ItemRegister register, ReplicationFollower follower,
+                         Duration maxStaleness, InetSocketAddress address) throws IOException {
+
+    this.register = register;
+    this.follower = follower;
+    this.maxStaleness = maxStaleness;
+    this.server = HttpServer.create(address, CONNECTION_BACKLOG);
+    this.executor = newRequestExecutor();
+    server.setExecutor(executor);
+    server.createContext("/", this::handle);
+    server.start();
+  }
+
+  /** Method to make the threads requests are handled on: a new virtual thread for every
+   * request if this Java version has them, or else a pool of platform threads large enough
+   * for requests waiting on the register's log.
+   *
+   * @return returns the executor for the requests as ExecutorService
+   */
+  private static ExecutorService newRequestExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      AtomicInteger threadNumber = new AtomicInteger();
+      ThreadFactory threads = task -> {
+        Thread thread = new Thread(task, "register-server-" + threadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      };
+      return Executors.newFixedThreadPool(
+          THREADS_PER_PROCESSOR * Runtime.getRuntime().availableProcessors(), threads);
+    }
+  }
+
+  public int getPort() {
+
+    return server.getAddress().getPort();
+  }
+
+  /** Method to stop the server. Requests being handled get up to a second to finish.
+   */
+  @Override
+  public void close() {
+    server.stop(1);
+    executor.shutdown();
+    try {
+      executor.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      byte[] body = exchange.getRequestBody().readAllBytes();
+      try {
+        route(exchange, new String(body, StandardCharsets.UTF_8));
+      } catch (StatusException e) {
+        sendError(exchange, e.status, e.getMessage());
+      } catch (IllegalArgumentException e) {
+        sendError(exchange, 400, e.getMessage());
+      } catch (RuntimeException e) {
+        sendError(exchange, 500, e.getMessage() == null ? e.toString() : e.getMessage());
+      }
+    }
+  }
+
+  private void route(HttpExchange exchange, String body) throws IOException {
+    String method = exchange.getRequestMethod();
+    String path = exchange.getRequestURI().getRawPath();
+    Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+    if (follower != null) {
+      readFollower(exchange, method);
+    }
+
+    if (path.equals(ITEMS_PATH) && method.equals("GET")) {
+      findItems(exchange, query);
+    } else if (path.startsWith(ITEMS_PATH + "/") && method.equals("GET")) {
+      sendItem(exchange, findItem(itemNumberBefore(path, "")));
+    } else if (path.startsWith(ITEMS_PATH + "/") && path.endsWith("/price")
+        && method.equals("POST")) {
+      String itemNumber = itemNumberBefore(path, "/price");
+      findItem(itemNumber);
+      register.changePriceItem(itemNumber, number(onlyObject(body), "price"));
+      sendItem(exchange, findItem(itemNumber));
+    } else if (path.startsWith(ITEMS_PATH + "/") && path.endsWith("/discount")
+        && method.equals("POST")) {
+      String itemNumber = itemNumberBefore(path, "/discount");
+      findItem(itemNumber);
+      register.giveDiscountItem(itemNumber, number(onlyObject(body), "percent"));
+      sendItem(exchange, findItem(itemNumber));
+    } else if (path.startsWith(ITEMS_PATH + "/") && path.endsWith("/description")
+        && method.equals("POST")) {
+      String itemNumber = itemNumberBefore(path, "/description");
+      findItem(itemNumber);
+      register.changeDescriptionItem(itemNumber,
+          required(onlyObject(body), "description"));
+      sendItem(exchange, findItem(itemNumber));
+    } else if (path.startsWith(ITEMS_PATH + "/") && method.equals("DELETE")) {
+      Item item = findItem(itemNumberBefore(path, ""));
+      register.deleteItem(item.getItemNumber());
+      sendItem(exchange, item);
+    } else if (path.equals(ITEMS_PATH) && method.equals("POST")) {
+      addItems(exchange, body);
+    } else if (path.equals("/totals") && method.equals("GET")) {
+      InventoryTotals totals = register.getInventoryTotals();
+      send(exchange, 200, "application/json", "{\"numberOfItems\": "
+          + totals.getNumberOfItems() + ", \"numberOfIndividualItems\": "
+          + totals.getNumberOfIndividualItems() + ", \"stockValueInOre\": "
+          + totals.getStockValueInOre() + "}\n");
+    } else if (path.equals("/search") && method.equals("GET")) {
+      sendItems(exchange, register.searchItems(required(query, "q")), 0, Integer.MAX_VALUE);
+    } else if (path.equals("/stock") && method.equals("POST")) {
+      moveStock(exchange, body);
+    } else if (path.equals("/metrics") && method.equals("GET")) {
+      send(exchange, 200, "text/plain; charset=utf-8", register.getMetrics().toString());
+    } else {
+      throw new StatusException(404, "There is no " + method + " " + path + ".");
+    }
+  }
+
+  private void findItems(HttpExchange exchange, Map<String, String> query)
+      throws IOException {
+    if (query.containsKey("description")) {
+      sendItems(exchange, register.getItemWithDescription(query.get("description")), 0,
+          Integer.MAX_VALUE);
+    } else if (query.containsKey("category")) {
+      sendItems(exchange, register.getItemsByCategory(whole(query, "category")), 0,
+          Integer.MAX_VALUE);
+    } else {
+      double minPrice = query.containsKey("minPrice") ? number(query, "minPrice")
+          : Double.NEGATIVE_INFINITY;
+      double maxPrice = query.containsKey("maxPrice") ? number(query, "maxPrice")
+          : Double.POSITIVE_INFINITY;
+      int offset = query.containsKey("offset") ? whole(query, "offset") : 0;
+      int limit = query.containsKey("limit") ? whole(query, "limit") : Integer.MAX_VALUE;
+      if (Double.isNaN(minPrice) || Double.isNaN(maxPrice)) {
+        throw new IllegalArgumentException("The prices must be numbers.");
+      }
+      if (offset < 0 || limit < 0) {
+        throw new IllegalArgumentException("The offset and limit can't be negative numbers.");
+      }
+      Iterable<Item> items;
+      if (query.containsKey("afterItemNumber")) {
+        double afterPrice = number(query, "afterPrice");
+        if (Double.isNaN(afterPrice)) {
+          throw new IllegalArgumentException("The prices must be numbers.");
+        }
+        items = register.itemsBetweenPrice(minPrice, maxPrice, afterPrice,
+            query.get("afterItemNumber"));
+      } else {
+        items = register.itemsBetweenPrice(minPrice, maxPrice);
+      }
+      sendItems(exchange, items, offset, limit);
+    }
+  }
+
+  private Item findItem(String itemNumber) {
+    try {
+      return register.getItemWithItemNumber(itemNumber);
+    } catch (IllegalArgumentException e) {
+      throw new StatusException(404, e.getMessage());
+    }
+  }
+
+  /** Method to check that a request to the register of a follower only reads it, and
+   * that the follower is up to date enough to answer it.
+   *
+   * @param exchange the request as HttpExchange
+   * @param method the method of the request as String
+   */
+  private void readFollower(HttpExchange exchange, String method) {
+    if (!method.equals("GET")) {
+      exchange.getResponseHeaders().set("Allow", "GET");
+      throw new StatusException(405,
+          "The register follows a leader, so items can only be changed there.");
+    }
+    try {
+      follower.getRegister(maxStaleness);
+    } catch (IllegalStateException e) {
+      throw new StatusException(503, e.getMessage());
+    }
+  }
+
+  private void moveStock(HttpExchange exchange, String body) throws IOException {
+    ArrayList<StockMovement> movements = new ArrayList<>();
+    for (Map<String, String> fields : objects(body)) {
+      movements.add(new StockMovement(required(fields, "itemNumber"),
+          whole(fields, "change")));
+    }
+    register.moveStock(movements);
+    send(exchange, 200, "application/json", "{\"moved\": " + movements.size() + "}\n");
+  }
+
+  /** Method to register the items in a request body. Every item is read before any is
+   * registered, so a wrong item registers none of them. Items with an item number that is
+   * already in use are left out and answered with 409, which tells how many of the other
+   * items were registered.
+   *
+   * @param exchange the request as HttpExchange
+   * @param body the request body as String
+   * @throws IOException if the answer can't be sent
+   */
+  private void addItems(HttpExchange exchange, String body) throws IOException {
+    ArrayList<Item> items = new ArrayList<>();
+    for (Map<String, String> fields : objects(body)) {
+      items.add(ItemImporter.toItem(fields));
+    }
+    ArrayList<Item> rejected = register.addItems(items);
+    int added = items.size() - rejected.size();
+    if (rejected.isEmpty()) {
+      send(exchange, 200, "application/json", "{\"added\": " + added + "}\n");
+    } else {
+      StringJoiner itemNumbers = new StringJoiner(", ");
+      for (Item item : rejected) {
+        itemNumbers.add(item.getItemNumber());
+      }
+      send(exchange, 409, "application/json", "{\"error\": " + jsonText(
+          "The item number is already in use for: " + itemNumbers + ". " + added + " of "
+          + items.size() + " items were registered.") + ", \"added\": " + added + "}\n");
+    }
+  }
+
+  /** Method to read the item number in a path like /items/{itemNumber}/price. The path
+   * is routed before it is decoded, so an item number with a slash or an ending like
+   * /price in it, written as %2F, can't be taken for another path.
+   *
+   * @param path the path as sent, not decoded, as String
+   * @param ending the part of the path after the item number as String
+   * @return returns the decoded item number as String
+   */
+  private static String itemNumberBefore(String path, String ending) {
+    String itemNumber = path.substring(ITEMS_PATH.length() + 1, path.length() - ending.length());
+    if (itemNumber.contains("/")) {
+      throw new StatusException(404, "There is no item path " + path + ".");
+    }
+    return URLDecoder.decode(itemNumber.replace("+", "%2B"), StandardCharsets.UTF_8);
+  }
+
+  /** Method to read the JSON objects in a request body, one object on each line.
+   *
+   * @param body the request body as String
+   * @return returns the fields of every object by name
+   */
+  private static List<Map<String, String>> objects(String body) {
+    ArrayList<Map<String, String>> objects = new ArrayList<>();
+    for (String line : body.split("\r?\n")) {
+      if (!line.isBlank()) {
+        objects.add(ItemImporter.parseJson(line.strip()));
+      }
+    }
+    return objects;
+  }
+
+  private static Map<String, String> onlyObject(String body) {
+    List<Map<String, String>> objects = objects(body);
+    if (objects.size() != 1) {
+      throw new IllegalArgumentException("The request must have one JSON object.");
+    }
+    return objects.get(0);
+  }
+
+  private static Map<String, String> parseQuery(String rawQuery) {
+    HashMap<String, String> parameters = new HashMap<>();
+    if (rawQuery == null || rawQuery.isEmpty()) {
+      return parameters;
+    }
+    for (String parameter : rawQuery.split("&")) {
+      int equals = parameter.indexOf('=');
+      String name = equals < 0 ? parameter : parameter.substring(0, equals);
+      String value = equals < 0 ? "" : parameter.substring(equals + 1);
+      parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+          URLDecoder.decode(value, StandardCharsets.UTF_8));
+    }
+    return parameters;
+  }
+
+  private static String required(Map<String, String> fields, String name) {
+    String value = fields.get(name);
+    if (value == null) {
+      throw new IllegalArgumentException("The " + name + " is missing.");
+    }
+    return value;
+  }
+
+  private static double number(Map<String, String> fields, String name) {
+    try {
+      return Double.parseDouble(required(fields, name));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("The " + name + " must be a number.");
+    }
+  }
+
+  private static int whole(Map<String, String> fields, String name) {
+    try {
+      return Integer.parseInt(required(fields, name));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("The " + name + " must be a whole number.");
+    }
+  }
+
+  private static void sendItem(HttpExchange exchange, Item item) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, 0);
+    try (ItemExporter exporter = new ItemExporter(exchange.getResponseBody(),
+        ItemExporter.Format.JSON_LINES)) {
+      exporter.writeItem(item);
+    }
+  }
+
+  /** Method to send one page of items, one JSON object on each line. The items are
+   * written as they are read, so items read from an index are not collected first.
+   *
+   * @param exchange the request as HttpExchange
+   * @param items the items to send as Iterable
+   * @param offset number of items to skip as long
+   * @param limit largest number of items to send as int
+   * @throws IOException if the answer can't be sent
+   */
+  private static void sendItems(HttpExchange exchange, Iterable<Item> items, long offset,
+                                int limit) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+    exchange.sendResponseHeaders(200, 0);
+    try (ItemExporter exporter = new ItemExporter(exchange.getResponseBody(),
+        ItemExporter.Format.JSON_LINES)) {
+      exporter.writeItems(items, offset, limit);
+    }
+  }
+
+  private static void sendError(HttpExchange exchange, int status, String message)
+      throws IOException {
+    send(exchange, status, "application/json", "{\"error\": " + jsonText(message) + "}\n");
+  }
+
+  private static void send(HttpExchange exchange, int status, String contentType,
+                           String text) throws IOException {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", contentType);
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  static String jsonText(String text) {
+    StringBuilder json = new StringBuilder("\"");
+    for (char c : String.valueOf(text).toCharArray()) {
+      if (c == '"' || c == '\\') {
+        json.append('\\').append(c);
+      } else if (c < ' ') {
+        json.append(String.format("\\u%04x", (int) c));
+      } else {
+        json.append(c);
+      }
+    }
+    return json.append('"').toString();
+  }
+
+  /** A request that is answered with another status than 200, like 404 for an item that
+   * doesn't exist. */
+  private static final class StatusException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    private final int status;
+
+    private StatusException(int status, String message) {
+      super(message);
+      this.status = status;
+    }
+  }
+}
@@ -0,0 +1,99 @@
+import java.util.Collection;
+import java.util.List;
+
+/** An interface for one part of a {@link ShardedItemRegister}, holding the items whose
+ * item numbers are placed on it. A shard can be a register in the same program, see
+ * {@link LocalRegisterShard}, or a register served by a {@link RegisterServer} in
+ * another program, see {@link RemoteRegisterShard}.
+ *
+ * <p>Item numbers are compared without regard to case. Changing an item that doesn't
+ * exist, or a change the register doesn't allow, throws an IllegalArgumentException.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public interface RegisterShard {
+
+  /** Method to register a new item.
+   *
+   * @param item the new item as Item
+   */
+  void addItem(Item item);
+
+  /** Method to find an item by item number.
+   *
+   * @param itemNumber item number as String
+   * @return returns the item, or null if it doesn't exist
+   */
+  Item getItem(String itemNumber);
+
+  /** Method to change the number of items of one or more items at once, see
+   * {@link ItemRegister#moveStock}.
+   *
+   * @param movements the changes to make as a Collection of StockMovement
+   */
+  void moveStock(Collection<StockMovement> movements);
+
+  /** Method to change the price on an item.
+   *
+   * @param itemNumber item number as String
+   * @param newPrice the new price of item as double
+   */
+  void changePrice(String itemNumber, double newPrice);
+
+  /** Method to create a discount on an item.
+   *
+   * @param itemNumber item number as String
+   * @param discountPercent the discount in percent as double
+   */
+  void giveDiscount(String itemNumber, double discountPercent);
+
+  /** Method to change the description on an item.
+   *
+   * @param itemNumber item number as String
+   * @param newDescription description of item as String
+   */
+  void changeDescription(String itemNumber, String newDescription);
+
+  /** Method to delete an item. Nothing happens if the item doesn't exist.
+   *
+   * @param itemNumber item number as String
+   */
+  void deleteItem(String itemNumber);
+
+  /** Method to get every item of the shard.
+   *
+   * @return returns the items as a List
+   */
+  List<Item> getAllItems();
+
+  /** Method to find the items in a category.
+   *
+   * @param categoryNumber category number as int
+   * @return returns the items as a List
+   */
+  List<Item> getItemsByCategory(int categoryNumber);
+
+  /** Method to find the cheapest items within a price-range, sorted by price.
+   *
+   * @param minPrice the lowest price as double
+   * @param maxPrice the highest price as double
+   * @param limit the highest number of items to find as int
+   * @return returns the items as a List
+   */
+  List<Item> getItemsBetweenPrice(double minPrice, double maxPrice, int limit);
+
+  /** Method to find the items with a text in the description.
+   *
+   * @param description the text as String
+   * @return returns the items as a List
+   */
+  List<Item> getItemsWithDescription(String description);
+
+  /** Method to find the number of items, individual items and the stock value of the
+   * shard.
+   *
+   * @return returns the totals as InventoryTotals
+   */
+  InventoryTotals getInventoryTotals();
+}
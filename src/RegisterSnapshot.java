@@ -0,0 +1,180 @@
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/** A class reading the items of a register as they were at one moment, for reports that
+ * take a while, like printing every item or the items in sorted order. Changes made to the
+ * register after the snapshot was opened are not seen, and a change to several items at
+ * once, like {@link ItemRegister#moveStock}, is seen either in full or not at all. The
+ * register can be changed as usual while a snapshot is read.
+ *
+ * <p>The register keeps the items a snapshot may need until it is closed, so a snapshot
+ * should be closed when the report is done, best with try-with-resources. The items
+ * read are kept after closing. A snapshot can only be read by one thread at a time.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class RegisterSnapshot implements Iterable<Item>, AutoCloseable {
+
+  private final ItemRegister register;
+  private final ItemVersions versions;
+  private final long version;
+  private final ArrayList<String> keys;
+  private List<Item> items;
+  private boolean closed;
+
+  /** Constructor for the class.
+   *
+   * @param register the register read as ItemRegister
+   * @param versions the older items of the register as ItemVersions
+   * @param version the version pinned for the snapshot as long
+   * @param keys the normalized item numbers at the version, in the order they were
+   *             registered
+   */
+  RegisterSnapshot(ItemRegister register, ItemVersions versions, long version,
+                   ArrayList<String> keys) {
+
+    this.register = register;
+    this.versions = versions;
+    this.version = version;
+    this.keys = keys;
+  }
+
+  public long getVersion() {
+
+    return version;
+  }
+
+  /** Method to find the number of items in the snapshot.
+   *
+   * @return returns number of items as int
+   */
+  public int getNumberOfItems() {
+    return keys.size();
+  }
+
+  /** Method to read the items one at a time, in the order they were registered, without
+   * making a list of all of them first.
+   *
+   * @return returns the items as Iterator
+   */
+  @Override
+  public Iterator<Item> iterator() {
+    if (items != null) {
+      return items.iterator();
+    }
+    return new Iterator<>() {
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        return index < keys.size();
+      }
+
+      @Override
+      public Item next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return itemAt(index++);
+      }
+    };
+  }
+
+  private Item itemAt(int index) {
+    if (closed) {
+      throw new IllegalStateException("The snapshot is closed.");
+    }
+    String key = keys.get(index);
+    return versions.itemAt(key, register.itemWithKey(key), version);
+  }
+
+  /** Method to get all the items, in the order they were registered.
+   *
+   * @return returns the items as a List that can't be changed
+   */
+  public List<Item> getAllItems() {
+    if (items == null) {
+      ArrayList<Item> allItems = new ArrayList<>(keys.size());
+      for (int i = 0; i < keys.size(); i++) {
+        allItems.add(itemAt(i));
+      }
+      items = Collections.unmodifiableList(allItems);
+    }
+    return items;
+  }
+
+  /** Method to find the items in a category, in the order they were registered.
+   *
+   * @param categoryInt category number as int
+   * @return returns the items in the category
+   */
+  public ArrayList<Item> getItemsByCategory(int categoryInt) {
+    ArrayList<Item> itemsInCategory = new ArrayList<>();
+    for (Item item : getAllItems()) {
+      if (item.getItemCategory().getCategoryNumber() == categoryInt) {
+        itemsInCategory.add(item);
+      }
+    }
+    return itemsInCategory;
+  }
+
+  /** Method to sort the items in any order. Items that are equal by the comparator are
+   * sorted by item number, like in a {@link SortedItemView}. Every item is copied and
+   * sorted, so the orders the register keeps sorted, like
+   * {@link ItemRegister#sortItemsByPrice}, are faster read from the register.
+   *
+   * @param comparator the order of the items as Comparator
+   * @return returns a new list of the items in the chosen order
+   */
+  public ArrayList<Item> sortItems(Comparator<Item> comparator) {
+    ArrayList<Item> sortedItems = new ArrayList<>(getAllItems());
+    sortedItems.sort(comparator.thenComparing(Item::getItemNumber));
+    return sortedItems;
+  }
+
+  /** Method to print info about all the items in the snapshot.
+   *
+   * @return returns info about all the items
+   */
+  public String printAllItems() {
+    StringWriter allItemsList = new StringWriter();
+    printAllItems(allItemsList);
+    return allItemsList.toString();
+  }
+
+  /** Method to write info about all the items in the snapshot, one item at a time.
+   *
+   * @param out where the info is written as Writer
+   */
+  public void printAllItems(Writer out) {
+    if (keys.isEmpty()) {
+      throw new IllegalArgumentException("Couldn't find any items.");
+    }
+    try {
+      ItemExporter exporter = new ItemExporter(out, ItemExporter.Format.TEXT);
+      exporter.writeItems(this);
+      exporter.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Method to close the snapshot, so the register no longer keeps the items it needs.
+   */
+  @Override
+  public void close() {
+    if (!closed) {
+      closed = true;
+      versions.unpin(version);
+    }
+  }
+}
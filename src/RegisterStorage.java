@@ -0,0 +1,259 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.CRC32;
+
+/** A class keeping an item register on disk. Every change to the register is written to
+ * an {@link ItemLog}, and a snapshot of every item is saved now and then, so that a
+ * restart only has to load the newest snapshot and the changes logged after it.
+ *
+ * <p>A snapshot is saved by itself when the log has grown large. A snapshot that couldn't
+ * be saved then is reported to the error listeners, and tried again later.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class RegisterStorage implements Closeable {
+
+  private static final String SNAPSHOT_FILE = "items.snapshot";
+  private static final String SNAPSHOT_TEMP_FILE = "items.snapshot.tmp";
+  private static final int SNAPSHOT_MAGIC = 0x49544D53;
+  private static final int SNAPSHOT_VERSION = 2;
+  private static final int SNAPSHOT_BLOCK_BYTES = 64 * 1024;
+  private static final long SNAPSHOT_AFTER_BYTES = 64L * 1024 * 1024;
+  private static final long SNAPSHOT_CHECK_SECONDS = 30;
+
+  private final Path directory;
+  private final ItemRegister itemRegister;
+  private final ItemLog log;
+  private final ScheduledExecutorService snapshotTimer;
+  private final ErrorListeners errors;
+
+  private RegisterStorage(Path directory, ItemRegister itemRegister, ItemLog log) {
+    this.directory = directory;
+    this.itemRegister = itemRegister;
+    this.log = log;
+    this.snapshotTimer = Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "register-snapshot");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.errors = new ErrorListeners();
+  }
+
+  /** Method to open a register stored in a directory. The newest snapshot is loaded and
+   * the changes logged after it are made again. A new, empty register is made if the
+   * directory is empty.
+   *
+   * @param directory the directory of the register as Path
+   * @return returns the opened storage as RegisterStorage
+   * @throws IOException if the directory can't be read or written
+   */
+  public static RegisterStorage open(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    ItemRegister itemRegister = new ItemRegister();
+
+    long lastSequence = loadSnapshot(directory.resolve(SNAPSHOT_FILE), itemRegister);
+    for (Path segment : ItemLog.segments(directory)) {
+      lastSequence = ItemLog.replay(segment, lastSequence, itemRegister);
+    }
+
+    ItemLog log = new ItemLog(directory, lastSequence);
+    itemRegister.setLog(log);
+    RegisterStorage storage = new RegisterStorage(directory, itemRegister, log);
+    storage.snapshotTimer.scheduleWithFixedDelay(storage::snapshotIfLogIsLarge,
+        SNAPSHOT_CHECK_SECONDS, SNAPSHOT_CHECK_SECONDS, TimeUnit.SECONDS);
+    return storage;
+  }
+
+  public ItemRegister getItemRegister() {
+
+    return itemRegister;
+  }
+
+  /** Method to get told about every snapshot that couldn't be saved by itself. The
+   * listener is called on the thread saving the snapshots.
+   *
+   * @param listener the listener as Consumer
+   */
+  public void addErrorListener(Consumer<Exception> listener) {
+    errors.add(listener);
+  }
+
+  public void removeErrorListener(Consumer<Exception> listener) {
+
+    errors.remove(listener);
+  }
+
+  /** Method to get the last error saving a snapshot by itself.
+   *
+   * @return returns the last error, or null if there was none, as Exception
+   */
+  public Exception getLastError() {
+    return errors.getLastError();
+  }
+
+  private static long loadSnapshot(Path snapshot, ItemRegister itemRegister)
+      throws IOException {
+    if (!Files.exists(snapshot)) {
+      return 0;
+    }
+    CRC32 checksum = new CRC32();
+    try (CheckedInputStream checked = new CheckedInputStream(
+        new BufferedInputStream(Files.newInputStream(snapshot)), checksum);
+         DataInputStream in = new DataInputStream(checked)) {
+      int version = in.readInt() == SNAPSHOT_MAGIC ? in.readInt() : -1;
+      if (version != 1 && version != SNAPSHOT_VERSION) {
+        throw new IOException("The file " + snapshot + " is not a register snapshot.");
+      }
+      long sequence = in.readLong();
+      int numberOfItems = in.readInt();
+      if (version == 1) {
+        for (int i = 0; i < numberOfItems; i++) {
+          itemRegister.addItem(ItemLog.readItem(in));
+        }
+      } else {
+        readItemBlocks(in, numberOfItems, itemRegister);
+      }
+      long expected = checksum.getValue();
+      if (in.readLong() != expected) {
+        throw new IOException("The snapshot " + snapshot + " is damaged.");
+      }
+      return sequence;
+    }
+  }
+
+  /** Method to read the items of a snapshot, written by {@link ItemCodec} in blocks that
+   * start with their number of bytes.
+   *
+   * @param in the snapshot as DataInputStream
+   * @param numberOfItems number of items in the snapshot as int
+   * @param itemRegister the register to add the items to as ItemRegister
+   * @throws IOException if the snapshot can't be read or is damaged
+   */
+  private static void readItemBlocks(DataInputStream in, int numberOfItems,
+                                     ItemRegister itemRegister) throws IOException {
+    ItemCodec codec = new ItemCodec(true);
+    byte[] block = new byte[SNAPSHOT_BLOCK_BYTES];
+    int read = 0;
+    while (read < numberOfItems) {
+      int blockBytes = in.readInt();
+      if (blockBytes <= 0) {
+        throw new IOException("The snapshot has a damaged block.");
+      }
+      if (block.length < blockBytes) {
+        block = new byte[blockBytes];
+      }
+      in.readFully(block, 0, blockBytes);
+      ByteBuffer buffer = ByteBuffer.wrap(block, 0, blockBytes);
+      try {
+        while (buffer.hasRemaining() && read < numberOfItems) {
+          itemRegister.addItem(codec.decode(buffer));
+          read++;
+        }
+      } catch (RuntimeException e) {
+        throw new IOException("The snapshot has a damaged block.", e);
+      }
+    }
+  }
+
+  /** Method to save a snapshot of every item in the register, and delete the log
+   * segments that are no longer needed. The register can be changed while the snapshot
+   * is written: the snapshot is a {@link RegisterSnapshot} pinned at the last logged
+   * change, and only the segments that end at or before that change are deleted, so the
+   * changes made after the pin are kept in the log.
+   *
+   * @throws IOException if the snapshot can't be written
+   */
+  public synchronized void takeSnapshot() throws IOException {
+    long[] sequence = new long[1];
+    Path temp = directory.resolve(SNAPSHOT_TEMP_FILE);
+    CRC32 checksum = new CRC32();
+    try (RegisterSnapshot snapshot = itemRegister.openSnapshot(
+            () -> sequence[0] = log.getLastSequence());
+         OutputStream file = Files.newOutputStream(temp);
+         DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+             new BufferedOutputStream(file), checksum))) {
+      out.writeInt(SNAPSHOT_MAGIC);
+      out.writeInt(SNAPSHOT_VERSION);
+      out.writeLong(sequence[0]);
+      out.writeInt(snapshot.getNumberOfItems());
+      ItemCodec codec = new ItemCodec(true);
+      ByteBuffer block = ByteBuffer.allocate(SNAPSHOT_BLOCK_BYTES);
+      for (Item item : snapshot) {
+        int size = codec.encodedSize(item);
+        if (block.remaining() < size && block.position() > 0) {
+          writeBlock(out, block);
+        }
+        if (block.capacity() < size) {
+          block = ByteBuffer.allocate(size);
+        }
+        codec.encode(item, block);
+      }
+      if (block.position() > 0) {
+        writeBlock(out, block);
+      }
+      out.flush();
+      out.writeLong(checksum.getValue());
+    }
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+    Files.move(temp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+
+    log.rotate();
+    ArrayList<Path> segments = ItemLog.segments(directory);
+    for (int i = 0; i + 1 < segments.size(); i++) {
+      if (ItemLog.firstSequenceOf(segments.get(i + 1)) - 1 <= sequence[0]) {
+        Files.delete(segments.get(i));
+      }
+    }
+  }
+
+  private static void writeBlock(DataOutputStream out, ByteBuffer block) throws IOException {
+    out.writeInt(block.position());
+    out.write(block.array(), 0, block.position());
+    block.clear();
+  }
+
+  private void snapshotIfLogIsLarge() {
+    if (log.getSegmentSize() < SNAPSHOT_AFTER_BYTES) {
+      return;
+    }
+    try {
+      takeSnapshot();
+    } catch (IOException e) {
+      errors.report(new IOException("Couldn't save a snapshot of the register: "
+          + e.getMessage(), e));
+    }
+  }
+
+  /** Method to stop logging, after every logged change is saved.
+   *
+   * @throws IOException if the log can't be written
+   */
+  @Override
+  public void close() throws IOException {
+    snapshotTimer.shutdown();
+    itemRegister.setLog(null);
+    log.close();
+  }
+}
@@ -0,0 +1,220 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/** A class using a register served by a {@link RegisterServer}, in another program or on
+ * another machine, as a shard of a {@link ShardedItemRegister}.
+ *
+ * <p>An answer that the register refused the request, like an item number already in
+ * use, is thrown as an IllegalArgumentException with the message of the register. A
+ * server that can't be reached is thrown as an UncheckedIOException.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class RemoteRegisterShard implements RegisterShard {
+
+  /** The longest time to wait for the server, if nothing else is chosen. */
+  public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
+
+  private final URI address;
+  private final Duration timeout;
+  private final HttpClient client;
+
+  /** Constructor for the class, waiting up to 5 seconds for the server.
+   *
+   * @param address the address of the server, like http://localhost:8080, as URI
+   */
+  public RemoteRegisterShard(URI address) {
+
+    this(address, DEFAULT_TIMEOUT);
+  }
+
+  /** Constructor for the class. A {@link ShardedItemRegister} holds a lock while it waits
+   * for a change, so the timeout is also the longest time a server that doesn't answer
+   * holds up changes to other items.
+   *
+   * @param address the address of the server, like http://localhost:8080, as URI
+   * @param timeout the longest time to wait for the server to connect or answer as
+   *                Duration
+   */
+  public RemoteRegisterShard(URI address, Duration timeout) {
+
+    if (timeout.isNegative() || timeout.isZero()) {
+      throw new IllegalArgumentException("The timeout must be longer than 0.");
+    }
+    String text = address.toString();
+    this.address = URI.create(text.endsWith("/") ? text.substring(0, text.length() - 1)
+        : text);
+    this.timeout = timeout;
+    this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+  }
+
+  public URI getAddress() {
+
+    return address;
+  }
+
+  @Override
+  public void addItem(Item item) {
+    StringWriter body = new StringWriter();
+    try (ItemExporter exporter = new ItemExporter(body, ItemExporter.Format.JSON_LINES)) {
+      exporter.writeItem(item);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    send("POST", "/items", body.toString());
+  }
+
+  @Override
+  public Item getItem(String itemNumber) {
+    HttpResponse<String> response = request("GET", itemPath(itemNumber), null);
+    if (response.statusCode() == 404) {
+      return null;
+    }
+    return items(checked(response)).get(0);
+  }
+
+  @Override
+  public void moveStock(Collection<StockMovement> movements) {
+    StringBuilder body = new StringBuilder();
+    for (StockMovement movement : movements) {
+      body.append("{\"itemNumber\": ").append(RegisterServer.jsonText(movement.getItemNumber()))
+          .append(", \"change\": ").append(movement.getChange()).append("}\n");
+    }
+    send("POST", "/stock", body.toString());
+  }
+
+  @Override
+  public void changePrice(String itemNumber, double newPrice) {
+    send("POST", itemPath(itemNumber) + "/price", "{\"price\": " + newPrice + "}");
+  }
+
+  @Override
+  public void giveDiscount(String itemNumber, double discountPercent) {
+    send("POST", itemPath(itemNumber) + "/discount", "{\"percent\": " + discountPercent + "}");
+  }
+
+  @Override
+  public void changeDescription(String itemNumber, String newDescription) {
+    send("POST", itemPath(itemNumber) + "/description",
+        "{\"description\": " + RegisterServer.jsonText(newDescription) + "}");
+  }
+
+  @Override
+  public void deleteItem(String itemNumber) {
+    HttpResponse<String> response = request("DELETE", itemPath(itemNumber), null);
+    if (response.statusCode() != 404) {
+      checked(response);
+    }
+  }
+
+  @Override
+  public List<Item> getAllItems() {
+    return items(send("GET", "/items", null));
+  }
+
+  @Override
+  public List<Item> getItemsByCategory(int categoryNumber) {
+    return items(send("GET", "/items?category=" + categoryNumber, null));
+  }
+
+  @Override
+  public List<Item> getItemsBetweenPrice(double minPrice, double maxPrice, int limit) {
+    return items(send("GET", "/items?minPrice=" + minPrice + "&maxPrice=" + maxPrice
+        + "&limit=" + limit, null));
+  }
+
+  @Override
+  public List<Item> getItemsWithDescription(String description) {
+    return items(send("GET", "/items?description=" + encode(description), null));
+  }
+
+  @Override
+  public InventoryTotals getInventoryTotals() {
+    Map<String, String> fields = ItemImporter.parseJson(send("GET", "/totals", null).strip());
+    return new InventoryTotals(Long.parseLong(fields.get("numberOfItems")),
+        Long.parseLong(fields.get("numberOfIndividualItems")),
+        Long.parseLong(fields.get("stockValueInOre")));
+  }
+
+  private static String itemPath(String itemNumber) {
+    return "/items/" + encode(itemNumber);
+  }
+
+  private static String encode(String text) {
+    return URLEncoder.encode(text, StandardCharsets.UTF_8).replace("+", "%20");
+  }
+
+  private String send(String method, String path, String body) {
+    return checked(request(method, path, body));
+  }
+
+  /** Method to send a request to the server and wait for the answer.
+   *
+   * @param method the HTTP method as String
+   * @param path the path and query of the request as String
+   * @param body the body of the request, or null for none, as String
+   * @return returns the answer as HttpResponse
+   */
+  private HttpResponse<String> request(String method, String path, String body) {
+    HttpRequest request = HttpRequest.newBuilder(URI.create(address + path))
+        .timeout(timeout)
+        .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+            : HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+        .build();
+    try {
+      return client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Couldn't reach the shard " + address + ".", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UncheckedIOException(new InterruptedIOException(
+          "Stopped waiting for the shard " + address + "."));
+    }
+  }
+
+  /** Method to get the body of an answer, or throw the error the server answered with.
+   *
+   * @param response the answer as HttpResponse
+   * @return returns the body of the answer as String
+   */
+  private String checked(HttpResponse<String> response) {
+    if (response.statusCode() == 200) {
+      return response.body();
+    }
+    String message = response.body().strip();
+    try {
+      message = ItemImporter.parseJson(message).getOrDefault("error", message);
+    } catch (IllegalArgumentException e) {
+      // The answer wasn't JSON, so it is shown as it is.
+    }
+    if (response.statusCode() < 500) {
+      throw new IllegalArgumentException(message);
+    }
+    throw new UncheckedIOException(new IOException("The shard " + address + " failed: "
+        + message));
+  }
+
+  private static List<Item> items(String body) {
+    ArrayList<Item> items = new ArrayList<>();
+    for (String line : body.split("\n")) {
+      if (!line.isBlank()) {
+        items.add(ItemImporter.toItem(ItemImporter.parseJson(line.strip())));
+      }
+    }
+    return items;
+  }
+}
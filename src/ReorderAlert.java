@@ -0,0 +1,57 @@
+/** A class representing an item whose stock has gone down to its reorder point, or back
+ * up above it, as sent to the listeners of the {@link ReorderMonitor}.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class ReorderAlert {
+  private final Item item;
+  private final int reorderPoint;
+  private final boolean reorderNeeded;
+
+  /** Constructor for the class.
+   *
+   * @param item the item after the change as Item
+   * @param reorderPoint the reorder point of the item as int
+   * @param reorderNeeded true if the item must be ordered, false if it is restocked or
+   *                      has no reorder point any more
+   */
+  ReorderAlert(Item item, int reorderPoint, boolean reorderNeeded) {
+
+    this.item = item;
+    this.reorderPoint = reorderPoint;
+    this.reorderNeeded = reorderNeeded;
+  }
+
+  public Item getItem() {
+
+    return item;
+  }
+
+  public int getReorderPoint() {
+
+    return reorderPoint;
+  }
+
+  /** Method to find out if the item must be ordered, or has been restocked.
+   *
+   * @return returns true if the number of items went down to the reorder point
+   */
+  public boolean isReorderNeeded() {
+    return reorderNeeded;
+  }
+
+  /** Method to find how many items are missing to get back above the reorder point.
+   *
+   * @return returns the reorder point minus the number of items, or 0 when restocked, as int
+   */
+  public int getShortfall() {
+    return reorderNeeded ? reorderPoint - item.getNumberOfItems() : 0;
+  }
+
+  @Override
+  public String toString() {
+    return (reorderNeeded ? "Reorder needed: " : "Restocked: ") + item.getItemNumber()
+        + ", " + item.getNumberOfItems() + " items, reorder point " + reorderPoint;
+  }
+}
@@ -0,0 +1,319 @@
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/** A class keeping track of the items that must be ordered, because the number of items
+ * in storage is at or below their reorder point.
+ *
+ * <p>A reorder point can be set for an item, or for every item in a category. The reorder
+ * point of an item is used before the reorder point of its category. The register tells
+ * the monitor about every change, and the items at or below their reorder point are kept
+ * sorted by how many items are missing, most first. A change is handled in logarithmic
+ * time, and the items to order can be read without looking at the other items.
+ *
+ * <p>When a change takes an item down to its reorder point, or back up above it, an alert
+ * is sent to the listeners. The listeners are called on the thread making the change,
+ * while the item is locked, so they should be quick and not change the register. The
+ * alerts from changing a reorder point are sent after the register is unlocked again.
+ * Changes to items are not held up by the monitor until a reorder point is set. Reorder
+ * points are not saved with the register.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class ReorderMonitor {
+
+  /** The reorder point of an item without one. */
+  public static final int NO_REORDER_POINT = -1;
+
+  private final ItemRegister register;
+  private final HashMap<String, Integer> reorderPointsByItem;
+  private final EnumMap<Category, Integer> reorderPointsByCategory;
+  private final HashMap<String, Shortage> shortagesByItem;
+  private final TreeSet<Shortage> shortages;
+  private final CopyOnWriteArrayList<Consumer<ReorderAlert>> listeners;
+  private volatile boolean hasReorderPoints;
+
+  /** Constructor for the class.
+   *
+   * @param register the register whose items are followed as ItemRegister
+   */
+  ReorderMonitor(ItemRegister register) {
+
+    this.register = register;
+    this.reorderPointsByItem = new HashMap<>();
+    this.reorderPointsByCategory = new EnumMap<>(Category.class);
+    this.shortagesByItem = new HashMap<>();
+    this.shortages = new TreeSet<>();
+    this.listeners = new CopyOnWriteArrayList<>();
+  }
+
+  private static String itemKey(String itemNumber) {
+    return itemNumber.toLowerCase(Locale.ROOT);
+  }
+
+  private static void checkReorderPoint(int reorderPoint) {
+    if (reorderPoint < 0) {
+      throw new IllegalArgumentException("The reorder point can't be a negative number.");
+    }
+  }
+
+  private static Category checkCategory(int categoryInt) {
+    if (categoryInt < 1 || categoryInt > Category.values().length) {
+      throw new IllegalArgumentException("Category has to be between 1 and "
+          + Category.values().length + ".");
+    }
+    return Category.getCategory(categoryInt);
+  }
+
+  /** Method to set the reorder point of an item.
+   *
+   * @param itemNumber item number as String
+   * @param reorderPoint the number of items at or below which the item must be ordered
+   *                     as int
+   */
+  public void setReorderPoint(String itemNumber, int reorderPoint) {
+    checkReorderPoint(reorderPoint);
+    changeReorderPoint(itemNumber, reorderPoint);
+  }
+
+  /** Method to remove the reorder point of an item, so the reorder point of its category
+   * is used.
+   *
+   * @param itemNumber item number as String
+   */
+  public void removeReorderPoint(String itemNumber) {
+    changeReorderPoint(itemNumber, NO_REORDER_POINT);
+  }
+
+  private void changeReorderPoint(String itemNumber, int reorderPoint) {
+    ArrayList<ReorderAlert> alerts = new ArrayList<>();
+    register.runWhileUnchanged(() -> {
+      Item item = register.getItemWithItemNumber(itemNumber);
+      synchronized (this) {
+        if (reorderPoint == NO_REORDER_POINT) {
+          reorderPointsByItem.remove(itemKey(itemNumber));
+        } else {
+          reorderPointsByItem.put(itemKey(itemNumber), reorderPoint);
+        }
+        updateHasReorderPoints();
+        update(item, alerts);
+      }
+    });
+    sendAlerts(alerts);
+  }
+
+  /** Method to set the reorder point of every item in a category without its own reorder
+   * point.
+   *
+   * @param categoryInt category number as int
+   * @param reorderPoint the number of items at or below which the items must be ordered
+   *                     as int
+   */
+  public void setReorderPointForCategory(int categoryInt, int reorderPoint) {
+    checkReorderPoint(reorderPoint);
+    changeReorderPointForCategory(checkCategory(categoryInt), reorderPoint);
+  }
+
+  /** Method to remove the reorder point of a category.
+   *
+   * @param categoryInt category number as int
+   */
+  public void removeReorderPointForCategory(int categoryInt) {
+    changeReorderPointForCategory(checkCategory(categoryInt), NO_REORDER_POINT);
+  }
+
+  private void changeReorderPointForCategory(Category category, int reorderPoint) {
+    ArrayList<ReorderAlert> alerts = new ArrayList<>();
+    register.runWhileUnchanged(() -> {
+      ArrayList<Item> items = register.getItemsByCategory(category.getCategoryNumber());
+      synchronized (this) {
+        if (reorderPoint == NO_REORDER_POINT) {
+          reorderPointsByCategory.remove(category);
+        } else {
+          reorderPointsByCategory.put(category, reorderPoint);
+        }
+        updateHasReorderPoints();
+        for (Item item : items) {
+          update(item, alerts);
+        }
+      }
+    });
+    sendAlerts(alerts);
+  }
+
+  /** Method to note if any reorder point is set. Changes to items skip the monitor while
+   * none is, and since reorder points are only changed while every item is locked, a
+   * change can't miss a reorder point being set. Must be called while holding the lock of
+   * the monitor.
+   */
+  private void updateHasReorderPoints() {
+    hasReorderPoints = !reorderPointsByItem.isEmpty() || !reorderPointsByCategory.isEmpty();
+  }
+
+  /** Method to find the reorder point used for an item.
+   *
+   * @param itemNumber item number as String
+   * @return returns the reorder point of the item, or of its category, or
+   *         NO_REORDER_POINT, as int
+   */
+  public int getReorderPoint(String itemNumber) {
+    Item item = register.getItemWithItemNumber(itemNumber);
+    synchronized (this) {
+      return reorderPointOf(item);
+    }
+  }
+
+  /** Method to find the reorder point of a category.
+   *
+   * @param categoryInt category number as int
+   * @return returns the reorder point of the category, or NO_REORDER_POINT, as int
+   */
+  public synchronized int getReorderPointForCategory(int categoryInt) {
+    return reorderPointsByCategory.getOrDefault(checkCategory(categoryInt),
+        NO_REORDER_POINT);
+  }
+
+  private int reorderPointOf(Item item) {
+    Integer reorderPoint = reorderPointsByItem.get(itemKey(item.getItemNumber()));
+    if (reorderPoint == null) {
+      reorderPoint = reorderPointsByCategory.get(item.getItemCategory());
+    }
+    return reorderPoint == null ? NO_REORDER_POINT : reorderPoint;
+  }
+
+  /** Method to get the items that must be ordered, with the most missing items first.
+   *
+   * @return returns a list of the items at or below their reorder point
+   */
+  public ArrayList<Item> getItemsNeedingReorder() {
+    return getItemsNeedingReorder(Integer.MAX_VALUE);
+  }
+
+  /** Method to get the items that most need to be ordered.
+   *
+   * @param limit the highest number of items as int
+   * @return returns a list of the items at or below their reorder point, with the most
+   *         missing items first
+   */
+  public synchronized ArrayList<Item> getItemsNeedingReorder(int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("The limit can't be a negative number.");
+    }
+    ArrayList<Item> items = new ArrayList<>(Math.min(limit, shortages.size()));
+    Iterator<Shortage> iterator = shortages.iterator();
+    while (items.size() < limit && iterator.hasNext()) {
+      items.add(iterator.next().item);
+    }
+    return items;
+  }
+
+  public synchronized int getNumberOfItemsNeedingReorder() {
+
+    return shortages.size();
+  }
+
+  /** Method to get an alert every time an item goes down to its reorder point, or back
+   * up above it.
+   *
+   * @param listener the listener as Consumer
+   */
+  public void addListener(Consumer<ReorderAlert> listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("The listener can't be empty.");
+    }
+    listeners.add(listener);
+  }
+
+  public void removeListener(Consumer<ReorderAlert> listener) {
+
+    listeners.remove(listener);
+  }
+
+  /** Method to update the items to order after an item is added, changed or deleted.
+   * Must be called while holding the lock for the item.
+   *
+   * @param oldItem the item before the change, or null for a new item, as Item
+   * @param newItem the item after the change, or null for a deleted item, as Item
+   */
+  void itemChanged(Item oldItem, Item newItem) {
+    if (!hasReorderPoints) {
+      return;
+    }
+    ArrayList<ReorderAlert> alerts = new ArrayList<>(0);
+    synchronized (this) {
+      if (newItem == null) {
+        String key = itemKey(oldItem.getItemNumber());
+        reorderPointsByItem.remove(key);
+        updateHasReorderPoints();
+        Shortage shortage = shortagesByItem.remove(key);
+        if (shortage != null) {
+          shortages.remove(shortage);
+        }
+      } else {
+        update(newItem, alerts);
+      }
+    }
+    sendAlerts(alerts);
+  }
+
+  /** Method to put an item in or take it out of the items to order, and make an alert if
+   * it wasn't there before or isn't there any more.
+   *
+   * @param item the registered item as Item
+   * @param alerts the alerts to send as ArrayList
+   */
+  private void update(Item item, ArrayList<ReorderAlert> alerts) {
+    String key = itemKey(item.getItemNumber());
+    int reorderPoint = reorderPointOf(item);
+    boolean reorderNeeded = reorderPoint != NO_REORDER_POINT
+        && item.getNumberOfItems() <= reorderPoint;
+
+    Shortage oldShortage = shortagesByItem.remove(key);
+    if (oldShortage != null) {
+      shortages.remove(oldShortage);
+    }
+    if (reorderNeeded) {
+      Shortage shortage = new Shortage(key, item, reorderPoint - item.getNumberOfItems());
+      shortagesByItem.put(key, shortage);
+      shortages.add(shortage);
+    }
+    if (reorderNeeded != (oldShortage != null)) {
+      int alertPoint = reorderPoint != NO_REORDER_POINT ? reorderPoint
+          : oldShortage.item.getNumberOfItems() + oldShortage.missing;
+      alerts.add(new ReorderAlert(item, alertPoint, reorderNeeded));
+    }
+  }
+
+  private void sendAlerts(ArrayList<ReorderAlert> alerts) {
+    for (ReorderAlert alert : alerts) {
+      for (Consumer<ReorderAlert> listener : listeners) {
+        listener.accept(alert);
+      }
+    }
+  }
+
+  /** An item at or below its reorder point, sorted by the number of missing items. */
+  private static final class Shortage implements Comparable<Shortage> {
+    private final String key;
+    private final Item item;
+    private final int missing;
+
+    private Shortage(String key, Item item, int missing) {
+      this.key = key;
+      this.item = item;
+      this.missing = missing;
+    }
+
+    @Override
+    public int compareTo(Shortage other) {
+      int compared = Integer.compare(other.missing, missing);
+      return compared != 0 ? compared : key.compareTo(other.key);
+    }
+  }
+}
@@ -0,0 +1,321 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/** A class keeping a register up to date with the register of a
+ * {@link ReplicationLeader}, in another program or on another machine, so that questions
+ * to the register can be answered here while the leader makes the changes.
+ *
+ * <p>The follower connects to the leader, gets a snapshot of every item and then every
+ * change, and makes them in its own register. If the connection is lost, or the follower
+ * falls too far behind, it gets a new snapshot and the items that were deleted in the
+ * meantime are deleted here too. The register of a follower must only be changed by the
+ * follower, since every other change is overwritten or lost.
+ *
+ * <p>A follower knows how up to date it is: the staleness is the time since the leader
+ * sent the last heartbeat saying that the follower had every change. The time of the
+ * leader is turned into the time of the follower by the smallest difference between the
+ * time a heartbeat was sent and the time it was read, so a follower that reads its
+ * heartbeats late, because it is behind, is not taken to be up to date. A question that
+ * must not be answered from too old items asks for the register with the largest
+ * staleness it accepts, and waits for the follower to catch up if needed.
+ *
+ * <p>A lost connection to the leader is reported to the error listeners, kept as the
+ * last error, and given as the reason when the register is not up to date in time.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class ReplicationFollower implements Closeable {
+
+  /** The staleness of a follower that has never been up to date. */
+  public static final Duration NEVER_UP_TO_DATE = Duration.ofNanos(Long.MAX_VALUE);
+
+  private static final Duration RECONNECT_DELAY = Duration.ofMillis(200);
+  private static final Duration DEFAULT_WAIT = Duration.ofSeconds(1);
+  private static final int HEARTBEATS_BEFORE_LEADER_IS_LOST = 10;
+
+  private final InetSocketAddress leader;
+  private final ItemRegister register;
+  private final ItemCodec codec;
+  private final Object progress;
+  private final AtomicInteger snapshotsReceived;
+  private final ErrorListeners errors;
+  private volatile Socket socket;
+  private volatile boolean closed;
+  private volatile boolean connected;
+  private volatile long appliedSequence;
+  private volatile long upToDateNanos;
+  private volatile boolean everUpToDate;
+  private HashSet<String> snapshotKeys;
+  private int snapshotItemsLeft;
+  private long clockOffset;
+
+  /** Constructor for the class, starting to follow a leader with a new register.
+   *
+   * @param leader the address of the leader as InetSocketAddress
+   */
+  public ReplicationFollower(InetSocketAddress leader) {
+
+    this(leader, new ItemRegister());
+  }
+
+  /** Constructor for the class, starting to follow a leader.
+   *
+   * @param leader the address of the leader as InetSocketAddress
+   * @param register the register to keep up to date as ItemRegister
+   */
+  public ReplicationFollower(InetSocketAddress leader, ItemRegister register) {
+
+    this.leader = leader;
+    this.register = register;
+    this.codec = new ItemCodec(true);
+    this.progress = new Object();
+    this.snapshotsReceived = new AtomicInteger();
+    this.errors = new ErrorListeners();
+    this.appliedSequence = -1;
+    Thread receiver = new Thread(this::follow, "replication-follower");
+    receiver.setDaemon(true);
+    receiver.start();
+  }
+
+  /** Method to get the register of the follower, however old its items are.
+   *
+   * @return returns the register as ItemRegister
+   */
+  public ItemRegister getRegister() {
+    return register;
+  }
+
+  /** Method to get the register of the follower when it is no older than a limit,
+   * waiting up to a second for it to catch up.
+   *
+   * @param maxStaleness the largest staleness accepted as Duration
+   * @return returns the register as ItemRegister
+   * @throws IllegalStateException if the follower didn't catch up in time
+   */
+  public ItemRegister getRegister(Duration maxStaleness) {
+    return getRegister(maxStaleness, DEFAULT_WAIT);
+  }
+
+  /** Method to get the register of the follower when it is no older than a limit.
+   *
+   * @param maxStaleness the largest staleness accepted as Duration
+   * @param timeout the longest time to wait for the follower to catch up as Duration
+   * @return returns the register as ItemRegister
+   * @throws IllegalStateException if the follower didn't catch up in time
+   */
+  public ItemRegister getRegister(Duration maxStaleness, Duration timeout) {
+    long deadline = System.nanoTime() + timeout.toNanos();
+    synchronized (progress) {
+      while (getStaleness().compareTo(maxStaleness) > 0) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          Exception lastError = errors.getLastError();
+          throw new IllegalStateException("The register is not up to date with the leader."
+              + (connected || lastError == null ? "" : " " + lastError.getMessage()));
+        }
+        try {
+          progress.wait(Math.max(1, remaining / 1_000_000));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Stopped waiting for the leader.", e);
+        }
+      }
+    }
+    return register;
+  }
+
+  /** Method to find the time since the follower last knew it had every change of the
+   * leader.
+   *
+   * @return returns the staleness, or {@link #NEVER_UP_TO_DATE}, as Duration
+   */
+  public Duration getStaleness() {
+    if (!everUpToDate) {
+      return NEVER_UP_TO_DATE;
+    }
+    return Duration.ofNanos(System.nanoTime() - upToDateNanos);
+  }
+
+  public boolean isConnected() {
+
+    return connected;
+  }
+
+  /** Method to get the number of the last change made, in the order of the leader's
+   * change feed.
+   *
+   * @return returns the number of the change, or -1 if none, as long
+   */
+  public long getAppliedSequence() {
+    return appliedSequence;
+  }
+
+  public int getNumberOfSnapshotsReceived() {
+
+    return snapshotsReceived.get();
+  }
+
+  /** Method to get told every time the connection to the leader is lost. The listener is
+   * called on the thread of the follower, before it connects again.
+   *
+   * @param listener the listener as Consumer
+   */
+  public void addErrorListener(Consumer<Exception> listener) {
+    errors.add(listener);
+  }
+
+  public void removeErrorListener(Consumer<Exception> listener) {
+
+    errors.remove(listener);
+  }
+
+  /** Method to get the reason the connection to the leader was last lost.
+   *
+   * @return returns the last error, or null if there was none, as Exception
+   */
+  public Exception getLastError() {
+    return errors.getLastError();
+  }
+
+  /** Method to stop following the leader. The register keeps the items it has.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    Socket current = socket;
+    if (current != null) {
+      try {
+        current.close();
+      } catch (IOException e) {
+        // The follower is closing anyway.
+      }
+    }
+  }
+
+  private void follow() {
+    while (!closed) {
+      try (Socket connection = new Socket()) {
+        socket = connection;
+        connection.connect(leader);
+        connection.setTcpNoDelay(true);
+        connection.setSoTimeout((int) ReplicationLeader.HEARTBEAT_INTERVAL.toMillis()
+            * HEARTBEATS_BEFORE_LEADER_IS_LOST);
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(connection.getOutputStream()));
+        out.writeInt(ReplicationLeader.MAGIC);
+        out.writeInt(ReplicationLeader.VERSION);
+        out.flush();
+        clockOffset = Long.MAX_VALUE;
+        connected = true;
+        DataInputStream in = new DataInputStream(
+            new BufferedInputStream(connection.getInputStream()));
+        while (!closed) {
+          byte type = in.readByte();
+          int length = in.readInt();
+          if (length < 0 || length > ReplicationLeader.MAX_FRAME_LENGTH) {
+            throw new IOException("The leader sent a frame of " + length + " bytes.");
+          }
+          byte[] frame = new byte[length];
+          in.readFully(frame);
+          applyFrame(type, ByteBuffer.wrap(frame));
+        }
+      } catch (IOException | RuntimeException e) {
+        if (!closed) {
+          errors.report(new IOException("Lost the connection to the leader " + leader + ": "
+              + e.getMessage(), e));
+        }
+      } finally {
+        connected = false;
+      }
+      if (!closed) {
+        try {
+          Thread.sleep(RECONNECT_DELAY.toMillis());
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    }
+  }
+
+  /** Method to make the changes of one frame from the leader.
+   *
+   * @param type the type of the frame as byte
+   * @param frame the contents of the frame as ByteBuffer
+   */
+  private void applyFrame(byte type, ByteBuffer frame) {
+    switch (type) {
+      case ReplicationLeader.SNAPSHOT -> {
+        codec.reset();
+        snapshotItemsLeft = frame.getInt();
+        snapshotKeys = new HashSet<>();
+        if (snapshotItemsLeft == 0) {
+          finishSnapshot();
+        }
+      }
+      case ReplicationLeader.ITEMS -> {
+        while (frame.hasRemaining()) {
+          Item item = codec.decode(frame);
+          register.putItem(item);
+          snapshotKeys.add(item.getItemNumber().toLowerCase(Locale.ROOT));
+          snapshotItemsLeft--;
+        }
+        if (snapshotItemsLeft == 0) {
+          finishSnapshot();
+        }
+      }
+      case ReplicationLeader.CHANGES -> {
+        long sequence = frame.getLong();
+        while (frame.hasRemaining()) {
+          boolean deleted = frame.get() == 0;
+          Item item = codec.decode(frame);
+          if (deleted) {
+            register.deleteItem(item.getItemNumber());
+          } else {
+            register.putItem(item);
+          }
+        }
+        appliedSequence = sequence;
+      }
+      case ReplicationLeader.HEARTBEAT -> {
+        boolean upToDate = frame.get() == 1;
+        long sentNanos = frame.getLong();
+        clockOffset = Math.min(clockOffset, System.nanoTime() - sentNanos);
+        if (upToDate && snapshotKeys == null) {
+          upToDateNanos = everUpToDate ? Math.max(upToDateNanos, sentNanos + clockOffset)
+              : sentNanos + clockOffset;
+          everUpToDate = true;
+          synchronized (progress) {
+            progress.notifyAll();
+          }
+        }
+      }
+      default -> throw new IllegalArgumentException("The leader sent an unknown frame.");
+    }
+  }
+
+  /** Method to delete the items that are not in the snapshot just received, since they
+   * were deleted while the follower was behind.
+   */
+  private void finishSnapshot() {
+    for (Item item : register.getAllItems()) {
+      if (!snapshotKeys.contains(item.getItemNumber().toLowerCase(Locale.ROOT))) {
+        register.deleteItem(item.getItemNumber());
+      }
+    }
+    snapshotKeys = null;
+    snapshotsReceived.incrementAndGet();
+  }
+}
@@ -0,0 +1,323 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/** A class sending every change to a register to other registers, called followers, in
+ * other programs or on other machines, so that they can answer the questions to the
+ * register while this register, the leader, makes the changes. See
+ * {@link ReplicationFollower}.
+ *
+ * <p>A follower that connects first gets a snapshot of every item, and then every change
+ * made after the snapshot, in the order of the {@link ItemChangeFeed} of the register.
+ * The snapshot is a {@link RegisterSnapshot}, so the register is only held up while its
+ * version is pinned, and the changes made while the snapshot is sent are kept and sent
+ * after it. A follower never holds back the changes to the register: a follower that is
+ * so far behind that the feed has overwritten changes it hasn't got gets a new snapshot
+ * instead.
+ * A heartbeat with the time it was sent follows the changes, so a follower knows how up
+ * to date it is even when it reads the heartbeat late. A follower that can't be accepted
+ * or sent to is reported to the error listeners, and the leader goes on with the others.
+ *
+ * <p>The items are sent in the binary form of {@link ItemCodec}, in frames that start
+ * with their type and length:
+ *
+ * <pre>
+ * SNAPSHOT  the number of items in the snapshot as int, followed by ITEMS frames
+ * ITEMS     items of the snapshot, as many as fit in a frame
+ * CHANGES   the number of the last change as long, then for every change a byte that
+ *           is 1 for a changed item or 0 for a deleted item, and the item
+ * HEARTBEAT a byte that is 1 if every change made before the heartbeat has been sent,
+ *           and the time of the leader as long
+ * </pre>
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class ReplicationLeader implements Closeable {
+
+  /** The first int a follower sends. */
+  static final int MAGIC = 0x49545250;
+  /** The version of the protocol, sent by a follower after the magic number. */
+  static final int VERSION = 1;
+
+  static final byte SNAPSHOT = 1;
+  static final byte ITEMS = 2;
+  static final byte CHANGES = 3;
+  static final byte HEARTBEAT = 4;
+
+  /** The longest time between two frames, so followers can tell a lost leader. */
+  static final Duration HEARTBEAT_INTERVAL = Duration.ofMillis(50);
+
+  /** The largest frame a follower accepts, so a damaged length can't use up its memory. */
+  static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+  private static final int MAX_FRAME_BYTES = 64 * 1024;
+  private static final int MAX_CHANGES_PER_FRAME = 1024;
+
+  private final ItemRegister register;
+  private final ServerSocket serverSocket;
+  private final CopyOnWriteArrayList<Connection> connections;
+  private final AtomicInteger snapshotsSent;
+  private final ErrorListeners errors;
+  private volatile boolean closed;
+
+  /** Constructor for the class, starting to accept followers.
+   *
+   * @param register the register to send the changes of as ItemRegister
+   * @param address the address and port to listen on, port 0 for any free port, as
+   *                InetSocketAddress
+   * @throws IOException if the leader can't listen on the address
+   */
+  public ReplicationLeader(ItemRegister register, InetSocketAddress address)
+      throws IOException {
+
+    this.register = register;
+    this.serverSocket = new ServerSocket();
+    serverSocket.bind(address);
+    this.connections = new CopyOnWriteArrayList<>();
+    this.snapshotsSent = new AtomicInteger();
+    this.errors = new ErrorListeners();
+    Thread acceptor = new Thread(this::acceptFollowers, "replication-leader");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  public int getPort() {
+
+    return serverSocket.getLocalPort();
+  }
+
+  public int getNumberOfFollowers() {
+
+    return connections.size();
+  }
+
+  public int getNumberOfSnapshotsSent() {
+
+    return snapshotsSent.get();
+  }
+
+  /** Method to get told about every follower that couldn't be accepted or sent to. The
+   * listener is called on the thread of the follower.
+   *
+   * @param listener the listener as Consumer
+   */
+  public void addErrorListener(Consumer<Exception> listener) {
+    errors.add(listener);
+  }
+
+  public void removeErrorListener(Consumer<Exception> listener) {
+
+    errors.remove(listener);
+  }
+
+  /** Method to get the last error accepting or sending to a follower.
+   *
+   * @return returns the last error, or null if there was none, as Exception
+   */
+  public Exception getLastError() {
+    return errors.getLastError();
+  }
+
+  private void acceptFollowers() {
+    int followerNumber = 0;
+    while (!closed) {
+      try {
+        Socket socket = serverSocket.accept();
+        socket.setTcpNoDelay(true);
+        Connection connection = new Connection(socket);
+        connections.add(connection);
+        Thread sender = new Thread(connection::run,
+            "replication-follower-" + ++followerNumber);
+        sender.setDaemon(true);
+        sender.start();
+      } catch (IOException e) {
+        if (!closed) {
+          errors.report(new IOException("Couldn't accept a follower: " + e.getMessage(), e));
+        }
+      }
+    }
+  }
+
+  /** Method to stop sending changes and disconnect every follower.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    try {
+      serverSocket.close();
+    } catch (IOException e) {
+      // The leader is closing anyway.
+    }
+    for (Connection connection : connections) {
+      connection.close();
+    }
+  }
+
+  /** One connected follower, and its place in the change feed. */
+  private final class Connection {
+    private final Socket socket;
+    private final ItemCodec codec;
+    private ByteBuffer frame;
+    private ItemChangeFeed.Subscription subscription;
+
+    private Connection(Socket socket) {
+      this.socket = socket;
+      this.codec = new ItemCodec(true);
+      this.frame = ByteBuffer.allocate(MAX_FRAME_BYTES);
+    }
+
+    private void run() {
+      try (DataInputStream in = new DataInputStream(
+               new BufferedInputStream(socket.getInputStream()));
+           DataOutputStream out = new DataOutputStream(
+               new BufferedOutputStream(socket.getOutputStream()))) {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+          return;
+        }
+        sendSnapshot(out);
+        while (!closed) {
+          List<ItemChangeEvent> events = subscription.poll(MAX_CHANGES_PER_FRAME,
+              HEARTBEAT_INTERVAL);
+          if (subscription.getSkippedEvents() > 0) {
+            subscription.close();
+            sendSnapshot(out);
+            continue;
+          }
+          if (!events.isEmpty()) {
+            sendChanges(out, events);
+          }
+          long now = System.nanoTime();
+          frame.clear();
+          frame.put((byte) (events.size() < MAX_CHANGES_PER_FRAME
+              && subscription.getLag() == 0 ? 1 : 0));
+          frame.putLong(now);
+          writeFrame(out, HEARTBEAT);
+          out.flush();
+        }
+      } catch (SocketException e) {
+        // The follower disconnected, or the leader is closing.
+      } catch (IOException e) {
+        errors.report(new IOException("Stopped sending changes to a follower: "
+            + e.getMessage(), e));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        if (subscription != null) {
+          subscription.close();
+        }
+        close();
+        connections.remove(this);
+      }
+    }
+
+    /** Method to send every item, and start following the changes made after them. The
+     * subscription is started at the version of the snapshot, so no change is missed or
+     * sent twice. The changes made while the items are sent are read from the feed before
+     * it can overwrite them, and sent after the items.
+     *
+     * @param out the connection to the follower as DataOutputStream
+     * @throws IOException if the snapshot can't be sent
+     */
+    private void sendSnapshot(DataOutputStream out) throws IOException {
+      ItemChangeFeed feed = register.getChangeFeed();
+      int lagToRead = feed.getCapacity() / 2;
+      ArrayList<ItemChangeEvent> changes = new ArrayList<>();
+      try (RegisterSnapshot snapshot = register.openSnapshot(
+          () -> subscription = feed.subscribe(ItemChangeFeed.WhenFull.SKIP_EVENTS))) {
+        codec.reset();
+        frame.clear();
+        frame.putInt(snapshot.getNumberOfItems());
+        writeFrame(out, SNAPSHOT);
+        for (Item item : snapshot) {
+          putItem(out, ITEMS, item);
+          if (subscription.getLag() >= lagToRead) {
+            changes.addAll(subscription.poll(Integer.MAX_VALUE));
+          }
+        }
+        if (frame.position() > 0) {
+          writeFrame(out, ITEMS);
+        }
+      }
+      snapshotsSent.incrementAndGet();
+      for (int start = 0; start < changes.size(); start += MAX_CHANGES_PER_FRAME) {
+        sendChanges(out, changes.subList(start,
+            Math.min(start + MAX_CHANGES_PER_FRAME, changes.size())));
+      }
+    }
+
+    private void sendChanges(DataOutputStream out, List<ItemChangeEvent> events)
+        throws IOException {
+      frame.clear();
+      frame.putLong(events.get(events.size() - 1).getSequence());
+      for (ItemChangeEvent event : events) {
+        boolean deleted = event.getNewItem() == null;
+        while (frame.remaining() < 1 + codec.encodedSize(deleted ? event.getOldItem()
+            : event.getNewItem())) {
+          growFrame();
+        }
+        frame.put((byte) (deleted ? 0 : 1));
+        codec.encode(deleted ? event.getOldItem() : event.getNewItem(), frame);
+      }
+      writeFrame(out, CHANGES);
+    }
+
+    /** Method to add an item to the frame being filled, sending the frame first if the
+     * item doesn't fit.
+     *
+     * @param out the connection to the follower as DataOutputStream
+     * @param type the type of the frame as byte
+     * @param item the item as Item
+     * @throws IOException if the frame can't be sent
+     */
+    private void putItem(DataOutputStream out, byte type, Item item) throws IOException {
+      int size = codec.encodedSize(item);
+      if (frame.remaining() < size && frame.position() > 0) {
+        writeFrame(out, type);
+      }
+      while (frame.remaining() < size) {
+        growFrame();
+      }
+      codec.encode(item, frame);
+    }
+
+    private void growFrame() {
+      if (frame.capacity() >= MAX_FRAME_LENGTH) {
+        throw new IllegalStateException("The changes don't fit in the largest frame.");
+      }
+      ByteBuffer larger = ByteBuffer.allocate(frame.capacity() * 2);
+      frame.flip();
+      larger.put(frame);
+      frame = larger;
+    }
+
+    private void writeFrame(DataOutputStream out, byte type) throws IOException {
+      out.writeByte(type);
+      out.writeInt(frame.position());
+      out.write(frame.array(), 0, frame.position());
+      frame.clear();
+    }
+
+    private void close() {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        // The connection is closing anyway.
+      }
+    }
+  }
+}
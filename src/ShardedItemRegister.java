@@ -0,0 +1,590 @@
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/** A class spreading the items of a warehouse over several registers, called shards, so
+ * that the number of items and the number of changes are not limited by one program. The
+ * shards can be registers in the same program or registers served by other programs, see
+ * {@link RegisterShard}.
+ *
+ * <p>Every item number belongs to one shard, chosen by a consistent hash of the item
+ * number without regard to case, see {@link ConsistentHashRing}. Finding or changing one
+ * item is sent to its shard only. Finding items by category, price or description asks
+ * every shard at once and merges the sorted answers.
+ *
+ * <p>Shards can be added while the register is in use. The item numbers that belong to
+ * the new shard are then copied to it, one at a time, while holding a lock for the item
+ * number, so no change is lost. A change to an item that hasn't been copied yet copies it
+ * first. When every item is copied the new shard takes over its item numbers, and the old
+ * copies are deleted. While a shard is added, a list of items may show an item as it
+ * was a moment before, and the totals may count the items being copied twice. An item
+ * deleted after it was copied is remembered, so its old copy is never shown.
+ *
+ * <p>Changing the number of items of an item that doesn't exist does nothing, like in
+ * {@link ItemRegister}.
+ *
+ * <p>A change holds the lock for its item number while it waits for the shard, since
+ * the item could otherwise be copied to a new shard without the change. The lock is
+ * shared by the item numbers of one of 64 stripes, so a shard that is slow to answer
+ * also holds up changes to those item numbers, for at most the timeout of the shard, see
+ * {@link RemoteRegisterShard#DEFAULT_TIMEOUT}. Finding items takes no lock.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class ShardedItemRegister implements Closeable {
+
+  private static final int LOCK_STRIPES = 64;
+  private static final int[] ALL_STRIPES = IntStream.range(0, LOCK_STRIPES).toArray();
+  private static final Comparator<Item> BY_ITEM_NUMBER =
+      Comparator.comparing(ShardedItemRegister::itemKey);
+  private static final Comparator<Item> BY_PRICE =
+      Comparator.comparingDouble(Item::getPrice).thenComparing(BY_ITEM_NUMBER);
+
+  private final Object[] itemLocks;
+  private final ExecutorService executor;
+  private volatile Placement placement;
+  private Placement oldCopies;
+
+  public ShardedItemRegister() {
+
+    itemLocks = new Object[LOCK_STRIPES];
+    for (int i = 0; i < LOCK_STRIPES; i++) {
+      itemLocks[i] = new Object();
+    }
+    AtomicInteger threadNumber = new AtomicInteger();
+    executor = Executors.newCachedThreadPool(task -> {
+      Thread thread = new Thread(task, "shard-query-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    placement = new Placement(new ConsistentHashRing(new LinkedHashMap<>()), null);
+  }
+
+  private static String itemKey(String itemNumber) {
+    return itemNumber.toLowerCase(Locale.ROOT);
+  }
+
+  private static String itemKey(Item item) {
+    return itemKey(item.getItemNumber());
+  }
+
+  private Object lockFor(String key) {
+    return itemLocks[Math.floorMod(key.hashCode(), LOCK_STRIPES)];
+  }
+
+  /** Method to add a shard, and move the item numbers that belong to it from the other
+   * shards. The method returns when every item is moved. The register can be used by
+   * other threads in the meantime.
+   *
+   * @param name a name of the shard that is never changed, as String
+   * @param shard the new shard, best without items, as RegisterShard
+   */
+  public synchronized void addShard(String name, RegisterShard shard) {
+    if (name.isBlank()) {
+      throw new IllegalArgumentException("The name of the shard can't be left blank.");
+    }
+    finishAddingShard();
+    ConsistentHashRing ring = placement.ring;
+    if (ring.hasShard(name)) {
+      throw new IllegalArgumentException("There is already a shard named " + name + ".");
+    }
+    if (ring.isEmpty()) {
+      placement = new Placement(ring.with(name, shard), null);
+      return;
+    }
+    Placement moving = new Placement(ring, ring.with(name, shard));
+    lockStripes(ALL_STRIPES, 0, () -> placement = moving);
+    finishAddingShard();
+  }
+
+  /** Method to finish adding a shard, if moving the items failed before, for example
+   * because a shard couldn't be reached. Nothing happens if no shard is being added.
+   */
+  public synchronized void finishAddingShard() {
+    Placement moving = placement;
+    if (moving.next != null) {
+      for (RegisterShard shard : moving.ring.getShards()) {
+        for (Item item : shard.getAllItems()) {
+          String key = itemKey(item);
+          if (moving.next.ownerOf(key) != shard) {
+            synchronized (lockFor(key)) {
+              moveItem(moving, key);
+            }
+          }
+        }
+      }
+      oldCopies = moving;
+      placement = new Placement(moving.next, null);
+    }
+    if (oldCopies != null) {
+      for (String key : oldCopies.moved) {
+        oldCopies.ring.ownerOf(key).deleteItem(key);
+      }
+      oldCopies = null;
+    }
+  }
+
+  /** Method to copy an item to the shard it belongs to after the shard being added is
+   * added, if it isn't copied already. Must be called while holding the lock for the item
+   * number.
+   *
+   * @param moving the placement while the shard is added as Placement
+   * @param key the normalized item number as String
+   */
+  private static void moveItem(Placement moving, String key) {
+    RegisterShard from = moving.ring.ownerOf(key);
+    RegisterShard to = moving.next.ownerOf(key);
+    if (from == to || moving.moved.contains(key)) {
+      return;
+    }
+    Item item = from.getItem(key);
+    if (item != null) {
+      try {
+        to.addItem(item);
+      } catch (IllegalArgumentException e) {
+        if (to.getItem(key) == null) {
+          throw e;
+        }
+      }
+    }
+    moving.moved.add(key);
+  }
+
+  /** Method to run an action while holding the locks of some stripes, taken in increasing
+   * order.
+   *
+   * @param stripes the stripes to lock, sorted, as an array of int
+   * @param index the first stripe in the array not locked yet as int
+   * @param action the action to run as Runnable
+   */
+  private void lockStripes(int[] stripes, int index, Runnable action) {
+    if (index == stripes.length) {
+      action.run();
+    } else {
+      synchronized (itemLocks[stripes[index]]) {
+        lockStripes(stripes, index + 1, action);
+      }
+    }
+  }
+
+  /** Method to change an item on the shard it belongs to, while holding the lock for the
+   * item number, so the change can't be lost while the item is moved to a new shard. The
+   * lock is held while waiting for the shard, which for a remote shard is bounded by its
+   * timeout.
+   *
+   * @param itemNumber item number as String
+   * @param change the change to make on the shard as Consumer
+   */
+  private void change(String itemNumber, Consumer<RegisterShard> change) {
+    String key = itemKey(itemNumber);
+    synchronized (lockFor(key)) {
+      Placement current = placement;
+      if (current.next != null) {
+        moveItem(current, key);
+      }
+      change.accept(current.writerOf(key));
+    }
+  }
+
+  /** Method to get the names of the shards, in the order they were added.
+   *
+   * @return returns the names as a List
+   */
+  public List<String> getShardNames() {
+    Placement current = placement;
+    return (current.next != null ? current.next : current.ring).getShardNames();
+  }
+
+  /** Method to find the shard an item number belongs to.
+   *
+   * @param itemNumber item number as String
+   * @return returns the shard as RegisterShard
+   */
+  public RegisterShard getShardOf(String itemNumber) {
+    return placement.readerOf(itemKey(itemNumber));
+  }
+
+  /** Method to register a new item, on the shard its item number belongs to.
+   *
+   * @param itemNumber     item number as String
+   * @param description    description of item as String
+   * @param price          price of item as double
+   * @param brandName      brand name of item as String
+   * @param weight         weight of item as double
+   * @param length         length of item as double
+   * @param height         height of item as double
+   * @param color          color of item as String
+   * @param numberOfItems  number of items as int
+   * @param categoryNumber categoryNumber of item as int
+   */
+  public void newItem(String itemNumber, String description, double price, String brandName,
+                      double weight, double length, double height, String color, int numberOfItems,
+                      int categoryNumber) {
+    Item newItem = new Item(itemNumber, description, price, brandName, weight, length, height,
+        color, numberOfItems, categoryNumber);
+    change(itemNumber, shard -> shard.addItem(newItem));
+  }
+
+  /** Method to find an item with a specific itemNumber.
+   *
+   * @param itemNumber item number as String
+   * @return returns the item as Item
+   */
+  public Item getItemWithItemNumber(String itemNumber) {
+    Item item = findItem(itemNumber);
+    if (item == null) {
+      throw new IllegalArgumentException("This item doesn't exist.");
+    }
+    return item;
+  }
+
+  /** Method to test if the item number already exists.
+   *
+   * @param itemNumber item number as String
+   * @return returns if the item number is duplicate as boolean
+   */
+  public boolean testForDuplicateItemNumber(String itemNumber) {
+    return findItem(itemNumber) != null;
+  }
+
+  /** Method to find an item on the shard it belongs to. If the item isn't found and a
+   * shard was added in the meantime, the item may have been moved, so it is looked for
+   * again.
+   *
+   * @param itemNumber item number as String
+   * @return returns the item, or null if it doesn't exist
+   */
+  private Item findItem(String itemNumber) {
+    String key = itemKey(itemNumber);
+    while (true) {
+      Placement current = placement;
+      Item item = current.readerOf(key).getItem(itemNumber);
+      if (item != null || placement == current) {
+        return item;
+      }
+    }
+  }
+
+  /** Method to increase the amounts of one item. Nothing happens if the item doesn't
+   * exist.
+   *
+   * @param itemNumber item number as String
+   * @param addNumberOfItems the new number of items to add to the original number as int
+   */
+  public void increaseAmountOfOneItem(String itemNumber, int addNumberOfItems) {
+    changeStock(itemNumber, addNumberOfItems);
+  }
+
+  /** Method to decrease the amount of one item. The number of items never becomes
+   * negative. Nothing happens if the item doesn't exist.
+   *
+   * @param itemNumber item number as String
+   * @param subtractNumberOfItems the number of items to subtract from the original number as int
+   */
+  public void decreaseAmountOfOneItem(String itemNumber, int subtractNumberOfItems) {
+    changeStock(itemNumber, -subtractNumberOfItems);
+  }
+
+  /** Method to change the number of items of one item, if it exists. The shard is asked
+   * for the item while the lock for the item number is held, so it can't be added or
+   * deleted in between.
+   *
+   * @param itemNumber item number as String
+   * @param change the number of items to add, or subtract if negative, as int
+   */
+  private void changeStock(String itemNumber, int change) {
+    change(itemNumber, shard -> {
+      if (shard.getItem(itemNumber) != null) {
+        shard.moveStock(List.of(new StockMovement(itemNumber, change)));
+      }
+    });
+  }
+
+  /** Method to change the price on an item.
+   *
+   * @param itemNumber item number as String
+   * @param newPrice the new price of item as double
+   */
+  public void changePriceItem(String itemNumber, double newPrice) {
+    change(itemNumber, shard -> shard.changePrice(itemNumber, newPrice));
+  }
+
+  /** Method to create a discount on an item.
+   *
+   * @param itemNumber item number as String
+   * @param discountPercent the discount in percent as double
+   */
+  public void giveDiscountItem(String itemNumber, double discountPercent) {
+    change(itemNumber, shard -> shard.giveDiscount(itemNumber, discountPercent));
+  }
+
+  /** Method to change the description on an item.
+   *
+   * @param itemNumber item number as String
+   * @param newDescription description of item as String
+   */
+  public void changeDescriptionItem(String itemNumber, String newDescription) {
+    change(itemNumber, shard -> shard.changeDescription(itemNumber, newDescription));
+  }
+
+  /** Method to delete an item from the register. While a shard is added, the item number
+   * is remembered as deleted, so the old copy of a copied item is not shown in its place.
+   *
+   * @param itemNumber item number as String
+   */
+  public void deleteItem(String itemNumber) {
+    String key = itemKey(itemNumber);
+    synchronized (lockFor(key)) {
+      Placement current = placement;
+      if (current.next != null) {
+        moveItem(current, key);
+      }
+      current.writerOf(key).deleteItem(itemNumber);
+      if (current.next != null) {
+        current.deleted.add(key);
+      }
+    }
+  }
+
+  /** Method to get every item of every shard.
+   *
+   * @return returns the items sorted by item number
+   */
+  public ArrayList<Item> getAllItems() {
+    return gather(RegisterShard::getAllItems, BY_ITEM_NUMBER, Integer.MAX_VALUE);
+  }
+
+  /** Method to find the items in a category on every shard.
+   *
+   * @param categoryInt category number as int
+   * @return returns the items sorted by item number
+   */
+  public ArrayList<Item> getItemsByCategory(int categoryInt) {
+    return gather(shard -> shard.getItemsByCategory(categoryInt), BY_ITEM_NUMBER,
+        Integer.MAX_VALUE);
+  }
+
+  /** Method to find the items with a text in the description on every shard.
+   *
+   * @param description description of item from a user-input as String
+   * @return returns the items sorted by item number
+   */
+  public ArrayList<Item> getItemWithDescription(String description) {
+    return gather(shard -> shard.getItemsWithDescription(description), BY_ITEM_NUMBER,
+        Integer.MAX_VALUE);
+  }
+
+  /** Method to find one page of the items within a price-range on every shard. Every
+   * shard finds its cheapest items up to the end of the page, and the answers are merged.
+   *
+   * @param startPrice the lowest price as double
+   * @param endPrice the highest price as double
+   * @param offset number of items in the price-range to skip as int
+   * @param limit the highest number of items on the page as int
+   * @return returns list of the items on the page, sorted by price
+   */
+  public ArrayList<Item> getAllItemsBetweenPrice(double startPrice, double endPrice, int offset,
+                                                 int limit) {
+    if (offset < 0 || limit < 0) {
+      throw new IllegalArgumentException("The offset and limit can't be negative numbers.");
+    }
+    int end = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+    ArrayList<Item> items = gather(
+        shard -> shard.getItemsBetweenPrice(startPrice, endPrice, end), BY_PRICE, end);
+    return new ArrayList<>(items.subList(Math.min(offset, items.size()), items.size()));
+  }
+
+  /** Method to find the totals of every shard added together.
+   *
+   * @return returns the totals of the register as InventoryTotals
+   */
+  public InventoryTotals getInventoryTotals() {
+    long numberOfItems = 0;
+    long numberOfIndividualItems = 0;
+    long stockValueInOre = 0;
+    for (InventoryTotals totals : askEveryShard(placement.getShards(),
+        RegisterShard::getInventoryTotals)) {
+      numberOfItems += totals.getNumberOfItems();
+      numberOfIndividualItems += totals.getNumberOfIndividualItems();
+      stockValueInOre += totals.getStockValueInOre();
+    }
+    return new InventoryTotals(numberOfItems, numberOfIndividualItems, stockValueInOre);
+  }
+
+  /** Method to find number of items on every shard.
+   *
+   * @return returns number of items as int
+   */
+  public int getNumberOfItems() {
+    return (int) getInventoryTotals().getNumberOfItems();
+  }
+
+  /** Method to ask every shard for items, and merge the answers in order. While a shard
+   * is added, an item can be on two shards, and the copy on the shard it belongs to is
+   * used. The old copy is only used if the item wasn't found on the shard it belongs to
+   * and wasn't deleted there. The shards are asked again if a shard is added while they
+   * answer.
+   *
+   * @param query the question to ask every shard as Function
+   * @param order the order of the merged items as Comparator
+   * @param limit the highest number of items to merge as int
+   * @return returns the merged items
+   */
+  private ArrayList<Item> gather(Function<RegisterShard, List<Item>> query,
+                                 Comparator<Item> order, int limit) {
+    while (true) {
+      Placement current = placement;
+      List<RegisterShard> shards = current.getShards();
+      List<List<Item>> answers = askEveryShard(shards, query);
+      if (placement != current) {
+        continue;
+      }
+      ArrayList<List<Item>> runs = new ArrayList<>();
+      HashSet<String> found = new HashSet<>();
+      ArrayList<Item> oldCopiesFound = new ArrayList<>();
+      for (int i = 0; i < shards.size(); i++) {
+        ArrayList<Item> run = new ArrayList<>();
+        for (Item item : answers.get(i)) {
+          String key = itemKey(item);
+          if (current.readerOf(key) == shards.get(i)) {
+            run.add(item);
+            found.add(key);
+          } else if (current.next != null && current.ring.ownerOf(key) == shards.get(i)) {
+            oldCopiesFound.add(item);
+          }
+        }
+        run.sort(order);
+        runs.add(run);
+      }
+      oldCopiesFound.removeIf(item -> found.contains(itemKey(item))
+          || current.deleted.contains(itemKey(item)));
+      oldCopiesFound.sort(order);
+      runs.add(oldCopiesFound);
+      return merge(runs, order, limit);
+    }
+  }
+
+  /** Method to ask every shard the same question at once, and wait for every answer.
+   *
+   * @param shards the shards to ask as a List
+   * @param question the question as Function
+   * @return returns the answers, in the order of the shards
+   */
+  private <T> List<T> askEveryShard(List<RegisterShard> shards,
+                                    Function<RegisterShard, T> question) {
+    ArrayList<Future<T>> futures = new ArrayList<>(shards.size());
+    for (RegisterShard shard : shards) {
+      futures.add(executor.submit(() -> question.apply(shard)));
+    }
+    ArrayList<T> answers = new ArrayList<>(shards.size());
+    try {
+      for (Future<T> future : futures) {
+        answers.add(future.get());
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Stopped waiting for the shards.", e);
+    } finally {
+      for (Future<T> future : futures) {
+        future.cancel(true);
+      }
+    }
+    return answers;
+  }
+
+  /** Method to merge lists that are each sorted into one sorted list, by taking the
+   * first item of the list that comes first until enough items are taken.
+   *
+   * @param runs the sorted lists as a List
+   * @param order the order of the lists as Comparator
+   * @param limit the highest number of items to take as int
+   * @return returns the merged items
+   */
+  private static ArrayList<Item> merge(List<List<Item>> runs, Comparator<Item> order,
+                                       int limit) {
+    PriorityQueue<int[]> heads = new PriorityQueue<>((a, b) ->
+        order.compare(runs.get(a[0]).get(a[1]), runs.get(b[0]).get(b[1])));
+    int size = 0;
+    for (int run = 0; run < runs.size(); run++) {
+      size += runs.get(run).size();
+      if (!runs.get(run).isEmpty()) {
+        heads.add(new int[] {run, 0});
+      }
+    }
+    ArrayList<Item> merged = new ArrayList<>(Math.min(size, limit));
+    while (!heads.isEmpty() && merged.size() < limit) {
+      int[] head = heads.poll();
+      List<Item> run = runs.get(head[0]);
+      merged.add(run.get(head[1]));
+      if (++head[1] < run.size()) {
+        heads.add(head);
+      }
+    }
+    return merged;
+  }
+
+  /** Method to stop the threads asking the shards. The shards are not closed.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  /** Where the item numbers are placed: on a ring of shards, and while a shard is added,
+   * on the ring with the new shard too, with the item numbers copied to it so far and the
+   * item numbers deleted since the shard was added. */
+  private static final class Placement {
+    private final ConsistentHashRing ring;
+    private final ConsistentHashRing next;
+    private final Set<String> moved;
+    private final Set<String> deleted;
+
+    private Placement(ConsistentHashRing ring, ConsistentHashRing next) {
+      this.ring = ring;
+      this.next = next;
+      this.moved = ConcurrentHashMap.newKeySet();
+      this.deleted = ConcurrentHashMap.newKeySet();
+    }
+
+    private RegisterShard writerOf(String key) {
+      checkNotEmpty();
+      return next != null ? next.ownerOf(key) : ring.ownerOf(key);
+    }
+
+    private RegisterShard readerOf(String key) {
+      checkNotEmpty();
+      return next != null && moved.contains(key) ? next.ownerOf(key) : ring.ownerOf(key);
+    }
+
+    private List<RegisterShard> getShards() {
+      return next != null ? next.getShards() : ring.getShards();
+    }
+
+    private void checkNotEmpty() {
+      if (ring.isEmpty()) {
+        throw new IllegalStateException("The register has no shards.");
+      }
+    }
+  }
+}
@@ -0,0 +1,75 @@
+import java.util.AbstractCollection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/** A class keeping the items in the register sorted in one order. The register replaces
+ * the items as they change, so that the sorted items can be read at any time
+ * without sorting again. The view can only be read, not changed, and can be read while
+ * other threads change the register.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class SortedItemView extends AbstractCollection<Item> {
+
+  private final ConcurrentSkipListSet<Item> sortedItems;
+
+  /** Constructor for the class. Items that are equal by the comparator are sorted by
+   * item number.
+   *
+   * @param comparator the order of the items as Comparator
+   */
+  public SortedItemView(Comparator<Item> comparator) {
+
+    sortedItems = new ConcurrentSkipListSet<>(comparator.thenComparing(Item::getItemNumber));
+  }
+
+  /** Method to add a new item to the view.
+   *
+   * @param item the registered item as Item
+   */
+  void addItem(Item item) {
+    sortedItems.add(item);
+  }
+
+  /** Method to remove a deleted item from the view.
+   *
+   * @param item the registered item as Item
+   */
+  void removeItem(Item item) {
+    sortedItems.remove(item);
+  }
+
+  /** Method to update the view after an item is changed. The old item is found in its
+   * old place, and the new item is placed by its new values.
+   *
+   * @param oldItem the item before the change as Item
+   * @param newItem the item after the change as Item
+   */
+  void replaceItem(Item oldItem, Item newItem) {
+    sortedItems.remove(oldItem);
+    sortedItems.add(newItem);
+  }
+
+  @Override
+  public Iterator<Item> iterator() {
+    return Collections.unmodifiableSet(sortedItems).iterator();
+  }
+
+  /** Method to find the number of items in the view. The items are counted one by one,
+   * so use isEmpty to check for an empty view.
+   *
+   * @return returns number of items in the view as int
+   */
+  @Override
+  public int size() {
+    return sortedItems.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return sortedItems.isEmpty();
+  }
+}
@@ -0,0 +1,40 @@
+/** A class representing a change to the number of items of one item, like one line of a
+ * goods receipt or a pick list. A positive change adds items to the storage, and a
+ * negative change takes items out.
+ *
+ * @author 10119
+ * @version 1.1.0
+ */
+public class StockMovement {
+  private final String itemNumber;
+  private final int change;
+
+  /** Constructor for the class.
+   *
+   * @param itemNumber item number as String
+   * @param change     the number of items to add, or take out if negative, as int
+   */
+  public StockMovement(String itemNumber, int change) {
+
+    if (itemNumber.isBlank()) {
+      throw new IllegalArgumentException("The item number can't be left blank.");
+    }
+    this.itemNumber = itemNumber;
+    this.change = change;
+  }
+
+  public String getItemNumber() {
+
+    return itemNumber;
+  }
+
+  public int getChange() {
+
+    return change;
+  }
+
+  @Override
+  public String toString() {
+    return "Item number: " + itemNumber + ", Change: " + change;
+  }
+}